@@ -220,6 +220,43 @@ import java.util.List;
     name = "Report Results Export File",
     type = PropertyType.STRING,
     global = false, project = false),
+  @Property(
+    key = CoreProperties.INDEX_THREADS,
+    defaultValue = CoreProperties.INDEX_THREADS_DEFAULT_VALUE,
+    name = "Threads used to index files",
+    description = "Number of threads used to compute hash and detect language of files. Files are indexed sequentially when lower than 2.",
+    type = PropertyType.INTEGER,
+    global = false, project = false),
+  @Property(
+    key = CoreProperties.DECORATOR_THREADS,
+    defaultValue = CoreProperties.DECORATOR_THREADS_DEFAULT_VALUE,
+    name = "Threads used to execute decorators",
+    description = "Number of threads used to decorate sibling resources concurrently. Only thread-safe decorators are executed in parallel. "
+      + "Decorators are executed sequentially when lower than 2.",
+    type = PropertyType.INTEGER,
+    global = false, project = false),
+  @Property(
+    key = CoreProperties.MEASURES_BATCH_SIZE,
+    defaultValue = CoreProperties.MEASURES_BATCH_SIZE_DEFAULT_VALUE,
+    name = "Size of batches of measures",
+    description = "Maximum number of measures inserted in database in a single JDBC batch.",
+    type = PropertyType.INTEGER,
+    global = false, project = false),
+  @Property(
+    key = CoreProperties.MEASURES_MAX_FILES_IN_MEMORY,
+    defaultValue = CoreProperties.MEASURES_MAX_FILES_IN_MEMORY_DEFAULT_VALUE,
+    name = "Files which measures are kept in memory",
+    description = "Maximum number of files which measures are kept in memory. Measures of other files are moved to a disk cache. "
+      + "All measures are kept in memory when lower than 1.",
+    type = PropertyType.INTEGER,
+    global = false, project = false),
+  @Property(
+    key = CoreProperties.SOURCES_BATCH_SIZE,
+    defaultValue = CoreProperties.SOURCES_BATCH_SIZE_DEFAULT_VALUE,
+    name = "Size of batches of sources",
+    description = "Maximum number of file sources or component data inserted in database in a single JDBC batch.",
+    type = PropertyType.INTEGER,
+    global = false, project = false),
 
   // SERVER-SIDE TECHNICAL PROPERTIES
 
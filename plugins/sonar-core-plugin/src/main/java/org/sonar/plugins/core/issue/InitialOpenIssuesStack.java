@@ -20,7 +20,6 @@
 
 package org.sonar.plugins.core.issue;
 
-import java.util.Collections;
 import org.sonar.api.BatchExtension;
 import org.sonar.api.batch.InstantiationStrategy;
 import org.sonar.batch.index.Cache;
@@ -28,7 +27,6 @@ import org.sonar.batch.index.Caches;
 import org.sonar.core.issue.db.IssueChangeDto;
 import org.sonar.core.issue.db.IssueDto;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import static com.google.common.collect.Lists.newArrayList;
@@ -37,10 +35,13 @@ import static com.google.common.collect.Lists.newArrayList;
 public class InitialOpenIssuesStack implements BatchExtension {
 
   private final Cache<String, IssueDto> issuesCache;
-  private final Cache<String, ArrayList<IssueChangeDto>> issuesChangelogCache;
+  // changelog entries are grouped by issue key and ordered by insertion sequence
+  private final Cache<Long, IssueChangeDto> issuesChangelogCache;
+  private long changelogSequence = 0L;
 
   public InitialOpenIssuesStack(Caches caches) {
-    issuesCache = caches.createCache("last-open-issues");
+    issuesCache = caches.createCache("last-open-issues", IssueDto.class, new IssueDtoValueCoder());
+    caches.registerValueCoder(IssueChangeDto.class, new IssueChangeDtoValueCoder());
     issuesChangelogCache = caches.createCache("issues-changelog");
   }
 
@@ -64,18 +65,15 @@ public class InitialOpenIssuesStack implements BatchExtension {
   }
 
   public InitialOpenIssuesStack addChangelog(IssueChangeDto issueChangeDto) {
-    List<IssueChangeDto> changeDtos = issuesChangelogCache.get(issueChangeDto.getIssueKey());
-    if (changeDtos == null) {
-      changeDtos = newArrayList();
-    }
-    changeDtos.add(issueChangeDto);
-    issuesChangelogCache.put(issueChangeDto.getIssueKey(), newArrayList(changeDtos));
+    issuesChangelogCache.put(issueChangeDto.getIssueKey(), changelogSequence++, issueChangeDto);
     return this;
   }
 
-  public List<IssueChangeDto> selectChangelog(String issueKey) {
-    List<IssueChangeDto> changeDtos = issuesChangelogCache.get(issueKey);
-    return changeDtos != null ? changeDtos : Collections.<IssueChangeDto>emptyList();
+  /**
+   * Lazy-loading changelog of the issue, in the order it was added
+   */
+  public Iterable<IssueChangeDto> selectChangelog(String issueKey) {
+    return issuesChangelogCache.values(issueKey);
   }
 
   public void clear() {
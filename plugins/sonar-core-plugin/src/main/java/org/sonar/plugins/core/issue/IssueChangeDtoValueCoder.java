@@ -0,0 +1,65 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.issue;
+
+import com.persistit.Value;
+import com.persistit.encoding.CoderContext;
+import com.persistit.encoding.ValueCoder;
+import org.sonar.core.issue.db.IssueChangeDto;
+
+import static org.sonar.batch.index.ValueCoders.*;
+
+/**
+ * Compact encoding of {@link IssueChangeDto} in {@link InitialOpenIssuesStack}, used instead of Java serialization.
+ *
+ * @since 4.2
+ */
+class IssueChangeDtoValueCoder implements ValueCoder {
+
+  @Override
+  public void put(Value value, Object object, CoderContext context) {
+    IssueChangeDto dto = (IssueChangeDto) object;
+    putLong(value, dto.getId());
+    putString(value, dto.getKey());
+    putString(value, dto.getIssueKey());
+    putString(value, dto.getUserLogin());
+    putString(value, dto.getChangeType());
+    putString(value, dto.getChangeData());
+    putDate(value, dto.getCreatedAt());
+    putDate(value, dto.getUpdatedAt());
+    putDate(value, dto.getIssueChangeCreationDate());
+  }
+
+  @Override
+  public Object get(Value value, Class clazz, CoderContext context) {
+    IssueChangeDto dto = new IssueChangeDto();
+    value.registerEncodedObject(dto);
+    return dto
+      .setId(getLong(value))
+      .setKey(getString(value))
+      .setIssueKey(getString(value))
+      .setUserLogin(getString(value))
+      .setChangeType(getString(value))
+      .setChangeData(getString(value))
+      .setCreatedAt(getDate(value))
+      .setUpdatedAt(getDate(value))
+      .setIssueChangeCreationDate(getDate(value));
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.core.issue;
+
+import com.persistit.Value;
+import com.persistit.encoding.CoderContext;
+import com.persistit.encoding.ValueCoder;
+import org.sonar.core.issue.db.IssueDto;
+
+import static org.sonar.batch.index.ValueCoders.*;
+
+/**
+ * Compact encoding of {@link IssueDto} in {@link InitialOpenIssuesStack}, used instead of Java serialization.
+ *
+ * @since 4.2
+ */
+class IssueDtoValueCoder implements ValueCoder {
+
+  @Override
+  public void put(Value value, Object object, CoderContext context) {
+    IssueDto dto = (IssueDto) object;
+    putLong(value, dto.getId());
+    putString(value, dto.getKee());
+    putLong(value, dto.getComponentId());
+    putLong(value, dto.getRootComponentId());
+    putInteger(value, dto.getRuleId());
+    putString(value, dto.getSeverity());
+    value.put(dto.isManualSeverity());
+    putString(value, dto.getMessage());
+    putInteger(value, dto.getLine());
+    putDouble(value, dto.getEffortToFix());
+    putLong(value, dto.getTechnicalDebt());
+    putString(value, dto.getStatus());
+    putString(value, dto.getResolution());
+    putString(value, dto.getChecksum());
+    putString(value, dto.getReporter());
+    putString(value, dto.getAssignee());
+    putString(value, dto.getAuthorLogin());
+    putString(value, dto.getActionPlanKey());
+    putString(value, dto.getIssueAttributes());
+    putDate(value, dto.getIssueCreationDate());
+    putDate(value, dto.getIssueUpdateDate());
+    putDate(value, dto.getIssueCloseDate());
+    putDate(value, dto.getCreatedAt());
+    putDate(value, dto.getUpdatedAt());
+    putDate(value, dto.getSelectedAt());
+    putString(value, dto.getRuleRepo());
+    putString(value, dto.getRuleKey());
+    putString(value, dto.getComponentKey());
+    putString(value, dto.getRootComponentKey());
+  }
+
+  @Override
+  public Object get(Value value, Class clazz, CoderContext context) {
+    IssueDto dto = new IssueDto();
+    value.registerEncodedObject(dto);
+    dto.setId(getLong(value));
+    dto.setKee(getString(value));
+    dto.setComponentId(getLong(value));
+    dto.setRootComponentId(getLong(value));
+    dto.setRuleId(getInteger(value));
+    dto.setSeverity(getString(value));
+    dto.setManualSeverity(value.getBoolean());
+    dto.setMessage(getString(value));
+    dto.setLine(getInteger(value));
+    dto.setEffortToFix(getDouble(value));
+    dto.setTechnicalDebt(getLong(value));
+    dto.setStatus(getString(value));
+    dto.setResolution(getString(value));
+    dto.setChecksum(getString(value));
+    dto.setReporter(getString(value));
+    dto.setAssignee(getString(value));
+    dto.setAuthorLogin(getString(value));
+    dto.setActionPlanKey(getString(value));
+    dto.setIssueAttributes(getString(value));
+    dto.setIssueCreationDate(getDate(value));
+    dto.setIssueUpdateDate(getDate(value));
+    dto.setIssueCloseDate(getDate(value));
+    dto.setCreatedAt(getDate(value));
+    dto.setUpdatedAt(getDate(value));
+    dto.setSelectedAt(getDate(value));
+    dto.setRuleKey(getString(value), getString(value));
+    dto.setComponentKey(getString(value));
+    dto.setRootComponentKey(getString(value));
+    return dto;
+  }
+}
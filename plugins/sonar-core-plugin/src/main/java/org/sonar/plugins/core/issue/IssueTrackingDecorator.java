@@ -162,8 +162,7 @@ public class IssueTrackingDecorator implements Decorator {
       }
 
       // populate existing changelog
-      Collection<IssueChangeDto> issueChangeDtos = initialOpenIssues.selectChangelog(issue.key());
-      for (IssueChangeDto issueChangeDto : issueChangeDtos) {
+      for (IssueChangeDto issueChangeDto : initialOpenIssues.selectChangelog(issue.key())) {
         issue.addChange(issueChangeDto.toFieldDiffs());
       }
 
@@ -22,6 +22,7 @@ package org.sonar.plugins.core.sensors;
 import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.DependedUpon;
+import org.sonar.api.batch.ThreadSafe;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.MeasureUtils;
@@ -34,6 +35,7 @@ import java.util.Collection;
 /**
  * @since 2.2
  */
+@ThreadSafe
 public final class FilesDecorator implements Decorator {
 
   public boolean shouldExecuteOnProject(Project project) {
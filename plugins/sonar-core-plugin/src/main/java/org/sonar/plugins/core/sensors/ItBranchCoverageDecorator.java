@@ -22,12 +22,14 @@ package org.sonar.plugins.core.sensors;
 import com.google.common.collect.ImmutableList;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.DependsUpon;
+import org.sonar.api.batch.ThreadSafe;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.MeasureUtils;
 import org.sonar.api.measures.Metric;
 
 import java.util.List;
 
+@ThreadSafe
 public final class ItBranchCoverageDecorator extends AbstractCoverageDecorator {
 
   @DependsUpon
@@ -93,13 +93,26 @@ public final class TechnicalDebtDecorator implements Decorator {
     Map<Characteristic, Double> characteristicCosts = newHashMap();
     Map<Requirement, Double> requirementCosts = newHashMap();
 
-    for (Requirement requirement : model.requirements()) {
-      List<Issue> requirementIssues = issuesByRequirement.get(requirement);
-      double value = computeTechnicalDebt(CoreMetrics.TECHNICAL_DEBT, context, requirement, requirementIssues);
+    // only the requirements having issues on the resource or on its children have technical debt
+    for (Requirement requirement : issuesByRequirement.keySet()) {
+      addTechnicalDebt(requirement, computeTechnicalDebt(issuesByRequirement.get(requirement)), requirementCosts);
+    }
+    for (Measure measure : context.getChildrenMeasures(new RequirementsFilter(CoreMetrics.TECHNICAL_DEBT))) {
+      Requirement requirement = measure.getRequirement();
+      if (requirement != null && measure.getValue() != null) {
+        addTechnicalDebt(requirement, measure.getValue(), requirementCosts);
+      }
+    }
 
-      requirementCosts.put(requirement, value);
-      total += value;
-      propagateTechnicalDebtInParents(requirement.characteristic(), value, characteristicCosts);
+    if (ResourceUtils.isProject(context.getResource())) {
+      // the root characteristics having requirements are saved on projects even when they have no technical debt
+      for (Requirement requirement : model.requirements()) {
+        propagateTechnicalDebtInParents(requirement.characteristic(), 0.0, characteristicCosts);
+      }
+    }
+    for (Map.Entry<Requirement, Double> entry : requirementCosts.entrySet()) {
+      total += entry.getValue();
+      propagateTechnicalDebtInParents(entry.getKey().characteristic(), entry.getValue(), characteristicCosts);
     }
 
     context.saveMeasure(new Measure(CoreMetrics.TECHNICAL_DEBT, total, DECIMALS_PRECISION));
@@ -107,6 +120,11 @@ public final class TechnicalDebtDecorator implements Decorator {
     saveOnRequirement(context, requirementCosts);
   }
 
+  private static void addTechnicalDebt(Requirement requirement, double value, Map<Requirement, Double> requirementCosts) {
+    Double cost = requirementCosts.get(requirement);
+    requirementCosts.put(requirement, cost == null ? value : value + cost);
+  }
+
   private void saveOnCharacteristic(DecoratorContext context, Map<Characteristic, Double> characteristicCosts) {
     for (Map.Entry<Characteristic, Double> entry : characteristicCosts.entrySet()) {
       saveTechnicalDebt(context, entry.getKey(), entry.getValue(), false);
@@ -165,19 +183,10 @@ public final class TechnicalDebtDecorator implements Decorator {
     return issuesByRequirement;
   }
 
-  private double computeTechnicalDebt(Metric metric, DecoratorContext context, Requirement requirement, Collection<Issue> issues) {
+  private double computeTechnicalDebt(Collection<Issue> issues) {
     double value = 0.0;
-    if (issues != null) {
-      for (Issue issue : issues){
-        value += converter.toDays(((DefaultIssue) issue).technicalDebt());
-      }
-    }
-
-    for (Measure measure : context.getChildrenMeasures(MeasuresFilters.requirement(metric, requirement))) {
-      Requirement measureRequirement = measure.getRequirement();
-      if (measureRequirement != null && measureRequirement.equals(requirement) && measure.getValue() != null) {
-        value += measure.getValue();
-      }
+    for (Issue issue : issues) {
+      value += converter.toDays(((DefaultIssue) issue).technicalDebt());
     }
     return value;
   }
@@ -198,6 +207,29 @@ public final class TechnicalDebtDecorator implements Decorator {
     return context.getMeasure(CoreMetrics.TECHNICAL_DEBT) == null;
   }
 
+  /**
+   * Measures of the given metric which are related to a requirement
+   */
+  private static class RequirementsFilter extends MeasuresFilters.MetricFilter<Collection<Measure>> {
+
+    RequirementsFilter(Metric metric) {
+      super(metric);
+    }
+
+    public Collection<Measure> filter(Collection<Measure> measures) {
+      List<Measure> result = newArrayList();
+      if (measures != null) {
+        for (Measure measure : measures) {
+          if (measure.getClass().equals(Measure.class) && filterOnMetricKey().equals(measure.getMetricKey())
+            && measure.getPersonId() == null && measure.getRequirement() != null) {
+            result.add(measure);
+          }
+        }
+      }
+      return result;
+    }
+  }
+
   public static List<PropertyDefinition> definitions() {
     return ImmutableList.of(
       PropertyDefinition.builder(TechnicalDebtConverter.PROPERTY_HOURS_IN_DAY)
@@ -29,10 +29,13 @@ import org.sonar.api.resources.Resource;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.technicaldebt.batch.Characteristic;
 import org.sonar.api.technicaldebt.batch.Requirement;
+import org.sonar.batch.components.PastMeasuresIndex;
 import org.sonar.batch.components.PastMeasuresLoader;
 import org.sonar.batch.components.PastSnapshot;
 import org.sonar.batch.components.TimeMachineConfiguration;
 
+import javax.annotation.Nullable;
+
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -43,7 +46,7 @@ public class VariationDecorator implements Decorator {
   private List<PastSnapshot> projectPastSnapshots;
   private MetricFinder metricFinder;
   private PastMeasuresLoader pastMeasuresLoader;
-
+  private final Map<PastSnapshot, PastMeasuresIndex> pastMeasuresIndexes = Maps.newHashMap();
 
   public VariationDecorator(PastMeasuresLoader pastMeasuresLoader, MetricFinder metricFinder, TimeMachineConfiguration timeMachineConfiguration) {
     this(pastMeasuresLoader, metricFinder, timeMachineConfiguration.getProjectPastSnapshots());
@@ -82,8 +85,33 @@ public class VariationDecorator implements Decorator {
   }
 
   private void computeVariation(Resource resource, DecoratorContext context, PastSnapshot pastSnapshot) {
-    List<Object[]> pastMeasures = pastMeasuresLoader.getPastMeasures(resource, pastSnapshot);
-    compareWithPastMeasures(context, pastSnapshot.getIndex(), pastMeasures);
+    if (resource.getId() != null) {
+      compareWithPastMeasures(context, pastSnapshot.getIndex(), resource.getId(), getPastMeasuresIndex(pastSnapshot));
+    } else {
+      List<Object[]> pastMeasures = pastMeasuresLoader.getPastMeasures(resource, pastSnapshot);
+      compareWithPastMeasures(context, pastSnapshot.getIndex(), pastMeasures);
+    }
+  }
+
+  private PastMeasuresIndex getPastMeasuresIndex(PastSnapshot pastSnapshot) {
+    PastMeasuresIndex pastMeasuresIndex = pastMeasuresIndexes.get(pastSnapshot);
+    if (pastMeasuresIndex == null) {
+      // past measures of all the resources of the module are loaded at once
+      pastMeasuresIndex = pastMeasuresLoader.getPastMeasuresIndex(pastSnapshot);
+      pastMeasuresIndexes.put(pastSnapshot, pastMeasuresIndex);
+    }
+    return pastMeasuresIndex;
+  }
+
+  void compareWithPastMeasures(DecoratorContext context, int index, int resourceId, PastMeasuresIndex pastMeasures) {
+    // for each measure, search equivalent past measure
+    for (Measure measure : context.getMeasures(MeasuresFilters.all())) {
+      MeasureKey key = toKey(measure);
+      Double pastValue = pastMeasures.get(resourceId, key.metricId, key.characteristicId, key.personId, key.ruleId);
+      if (updateVariation(measure, pastValue, index)) {
+        context.saveMeasure(measure);
+      }
+    }
   }
 
   void compareWithPastMeasures(DecoratorContext context, int index, List<Object[]> pastMeasures) {
@@ -95,23 +123,30 @@ public class VariationDecorator implements Decorator {
     // for each measure, search equivalent past measure
     for (Measure measure : context.getMeasures(MeasuresFilters.all())) {
       // compare with past measure
-      Integer metricId = measure.getMetric().getId() != null ? measure.getMetric().getId() : metricFinder.findByKey(measure.getMetric().getKey()).getId();
-      Characteristic characteristic = measure.getCharacteristic();
-      Requirement requirement = measure.getRequirement();
-      Integer characteristicId = characteristic != null ? characteristic.id() : requirement != null ? requirement.id() : null;
-      Integer personId = measure.getPersonId();
-      Integer ruleId = measure instanceof RuleMeasure ? ((RuleMeasure) measure).getRule().getId() : null;
-
-      Object[] pastMeasure = pastMeasuresByKey.get(new MeasureKey(metricId, characteristicId, personId, ruleId));
+      Object[] pastMeasure = pastMeasuresByKey.get(toKey(measure));
       if (updateVariation(measure, pastMeasure, index)) {
         context.saveMeasure(measure);
       }
     }
   }
 
+  private MeasureKey toKey(Measure measure) {
+    Integer metricId = measure.getMetric().getId() != null ? measure.getMetric().getId() : metricFinder.findByKey(measure.getMetric().getKey()).getId();
+    Characteristic characteristic = measure.getCharacteristic();
+    Requirement requirement = measure.getRequirement();
+    Integer characteristicId = characteristic != null ? characteristic.id() : requirement != null ? requirement.id() : null;
+    Integer personId = measure.getPersonId();
+    Integer ruleId = measure instanceof RuleMeasure ? ((RuleMeasure) measure).getRule().getId() : null;
+    return new MeasureKey(metricId, characteristicId, personId, ruleId);
+  }
+
   boolean updateVariation(Measure measure, Object[] pastMeasure, int index) {
-    if (pastMeasure != null && PastMeasuresLoader.hasValue(pastMeasure) && measure.getValue() != null) {
-      double variation = measure.getValue() - PastMeasuresLoader.getValue(pastMeasure);
+    return updateVariation(measure, pastMeasure != null && PastMeasuresLoader.hasValue(pastMeasure) ? PastMeasuresLoader.getValue(pastMeasure) : null, index);
+  }
+
+  private boolean updateVariation(Measure measure, @Nullable Double pastValue, int index) {
+    if (pastValue != null && measure.getValue() != null) {
+      double variation = measure.getValue() - pastValue;
       measure.setVariation(index, variation);
       return true;
     }
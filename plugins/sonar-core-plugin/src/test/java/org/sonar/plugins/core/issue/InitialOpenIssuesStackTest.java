@@ -27,6 +27,7 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.CoreProperties;
+import org.sonar.api.utils.DateUtils;
 import org.sonar.batch.bootstrap.BootstrapProperties;
 import org.sonar.batch.bootstrap.BootstrapSettings;
 import org.sonar.batch.bootstrap.TempFolderProvider;
@@ -35,8 +36,10 @@ import org.sonar.core.issue.db.IssueChangeDto;
 import org.sonar.core.issue.db.IssueDto;
 
 import java.io.IOException;
+import java.util.Date;
 import java.util.List;
 
+import static com.google.common.collect.Lists.newArrayList;
 import static org.fest.assertions.Assertions.assertThat;
 
 public class InitialOpenIssuesStackTest {
@@ -83,6 +86,44 @@ public class InitialOpenIssuesStackTest {
     assertThat(stack.selectAllIssues()).isEmpty();
   }
 
+  @Test
+  public void restore_all_fields_of_issues() {
+    Date date = DateUtils.parseDateTime("2013-05-18T12:00:00+0200");
+    IssueDto issueDto = new IssueDto().setId(10L).setKee("ISSUE-1").setComponentId(100L).setRootComponentId(1L).setRuleId(50)
+      .setSeverity("BLOCKER").setManualSeverity(true).setMessage("the message").setLine(42).setEffortToFix(3.14).setTechnicalDebt(10L)
+      .setStatus("OPEN").setChecksum("c7b5db46591806455cf082bb348631e8").setAssignee("henry").setIssueAttributes("JIRA=FOO-123")
+      .setIssueCreationDate(date).setCreatedAt(date).setSelectedAt(date)
+      .setRuleKey("squid", "AvoidCycle").setComponentKey("org.struts.Action").setRootComponentKey("org.struts");
+    stack.addIssue(issueDto);
+
+    IssueDto reloaded = stack.selectAndRemoveIssues("org.struts.Action").get(0);
+    assertThat(reloaded).isNotSameAs(issueDto);
+    assertThat(reloaded.getId()).isEqualTo(10L);
+    assertThat(reloaded.getKee()).isEqualTo("ISSUE-1");
+    assertThat(reloaded.getComponentId()).isEqualTo(100L);
+    assertThat(reloaded.getRootComponentId()).isEqualTo(1L);
+    assertThat(reloaded.getRuleId()).isEqualTo(50);
+    assertThat(reloaded.getSeverity()).isEqualTo("BLOCKER");
+    assertThat(reloaded.isManualSeverity()).isTrue();
+    assertThat(reloaded.getMessage()).isEqualTo("the message");
+    assertThat(reloaded.getLine()).isEqualTo(42);
+    assertThat(reloaded.getEffortToFix()).isEqualTo(3.14);
+    assertThat(reloaded.getTechnicalDebt()).isEqualTo(10L);
+    assertThat(reloaded.getStatus()).isEqualTo("OPEN");
+    assertThat(reloaded.getResolution()).isNull();
+    assertThat(reloaded.getChecksum()).isEqualTo("c7b5db46591806455cf082bb348631e8");
+    assertThat(reloaded.getAssignee()).isEqualTo("henry");
+    assertThat(reloaded.getIssueAttributes()).isEqualTo("JIRA=FOO-123");
+    assertThat(reloaded.getIssueCreationDate()).isEqualTo(date);
+    assertThat(reloaded.getIssueCloseDate()).isNull();
+    assertThat(reloaded.getCreatedAt()).isEqualTo(date);
+    assertThat(reloaded.getSelectedAt()).isEqualTo(date);
+    assertThat(reloaded.getRuleRepo()).isEqualTo("squid");
+    assertThat(reloaded.getRuleKey()).isEqualTo("AvoidCycle");
+    assertThat(reloaded.getComponentKey()).isEqualTo("org.struts.Action");
+    assertThat(reloaded.getRootComponentKey()).isEqualTo("org.struts");
+  }
+
   @Test
   public void get_and_remove_with_many_issues_on_same_resource() {
     stack.addIssue(new IssueDto().setComponentKey_unit_test_only("org.struts.Action").setKee("ISSUE-1"));
@@ -109,15 +150,65 @@ public class InitialOpenIssuesStackTest {
     stack.addChangelog(new IssueChangeDto().setKey("CHANGE-1").setIssueKey("ISSUE-1"));
     stack.addChangelog(new IssueChangeDto().setKey("CHANGE-2").setIssueKey("ISSUE-1"));
 
-    List<IssueChangeDto> issueChangeDtos = stack.selectChangelog("ISSUE-1");
+    List<IssueChangeDto> issueChangeDtos = newArrayList(stack.selectChangelog("ISSUE-1"));
     assertThat(issueChangeDtos).hasSize(2);
     assertThat(issueChangeDtos.get(0).getKey()).isEqualTo("CHANGE-1");
     assertThat(issueChangeDtos.get(1).getKey()).isEqualTo("CHANGE-2");
   }
 
+  @Test
+  public void select_changelog_of_interleaved_issues() {
+    stack.addChangelog(new IssueChangeDto().setKey("CHANGE-1").setIssueKey("ISSUE-1"));
+    stack.addChangelog(new IssueChangeDto().setKey("CHANGE-2").setIssueKey("ISSUE-2"));
+    stack.addChangelog(new IssueChangeDto().setKey("CHANGE-3").setIssueKey("ISSUE-1"));
+
+    List<IssueChangeDto> issueChangeDtos = newArrayList(stack.selectChangelog("ISSUE-1"));
+    assertThat(issueChangeDtos).hasSize(2);
+    assertThat(issueChangeDtos.get(0).getKey()).isEqualTo("CHANGE-1");
+    assertThat(issueChangeDtos.get(1).getKey()).isEqualTo("CHANGE-3");
+
+    issueChangeDtos = newArrayList(stack.selectChangelog("ISSUE-2"));
+    assertThat(issueChangeDtos).hasSize(1);
+    assertThat(issueChangeDtos.get(0).getKey()).isEqualTo("CHANGE-2");
+  }
+
+  @Test
+  public void select_changelog_of_many_issues() {
+    for (int i = 0; i < 1000; i++) {
+      stack.addChangelog(new IssueChangeDto().setKey("CHANGE-" + i).setIssueKey("ISSUE-" + (i % 100)));
+    }
+
+    for (int i = 0; i < 100; i++) {
+      List<IssueChangeDto> issueChangeDtos = newArrayList(stack.selectChangelog("ISSUE-" + i));
+      assertThat(issueChangeDtos).hasSize(10);
+      for (int j = 0; j < 10; j++) {
+        assertThat(issueChangeDtos.get(j).getKey()).isEqualTo("CHANGE-" + (j * 100 + i));
+      }
+    }
+  }
+
+  @Test
+  public void restore_all_fields_of_changelog() {
+    Date date = DateUtils.parseDateTime("2013-05-18T12:00:00+0200");
+    stack.addChangelog(new IssueChangeDto().setId(10L).setKey("CHANGE-1").setIssueKey("ISSUE-1").setUserLogin("henry")
+      .setChangeType(IssueChangeDto.TYPE_FIELD_CHANGE).setChangeData("severity=MAJOR|BLOCKER")
+      .setCreatedAt(date).setUpdatedAt(date).setIssueChangeCreationDate(date));
+
+    IssueChangeDto reloaded = stack.selectChangelog("ISSUE-1").iterator().next();
+    assertThat(reloaded.getId()).isEqualTo(10L);
+    assertThat(reloaded.getKey()).isEqualTo("CHANGE-1");
+    assertThat(reloaded.getIssueKey()).isEqualTo("ISSUE-1");
+    assertThat(reloaded.getUserLogin()).isEqualTo("henry");
+    assertThat(reloaded.getChangeType()).isEqualTo(IssueChangeDto.TYPE_FIELD_CHANGE);
+    assertThat(reloaded.getChangeData()).isEqualTo("severity=MAJOR|BLOCKER");
+    assertThat(reloaded.getCreatedAt()).isEqualTo(date);
+    assertThat(reloaded.getUpdatedAt()).isEqualTo(date);
+    assertThat(reloaded.getIssueChangeCreationDate()).isEqualTo(date);
+  }
+
   @Test
   public void return_empty_changelog() {
-    assertThat(stack.selectChangelog("ISSUE-1")).isEmpty();
+    assertThat(newArrayList(stack.selectChangelog("ISSUE-1"))).isEmpty();
   }
 
   @Test
@@ -137,9 +228,9 @@ public class InitialOpenIssuesStackTest {
   public void clear_issues_changelog() {
     stack.addChangelog(new IssueChangeDto().setKey("CHANGE-1").setIssueKey("ISSUE-1"));
 
-    assertThat(stack.selectChangelog("ISSUE-1")).hasSize(1);
+    assertThat(newArrayList(stack.selectChangelog("ISSUE-1"))).hasSize(1);
 
     stack.clear();
-    assertThat(stack.selectChangelog("ISSUE-1")).isEmpty();
+    assertThat(newArrayList(stack.selectChangelog("ISSUE-1"))).isEmpty();
   }
 }
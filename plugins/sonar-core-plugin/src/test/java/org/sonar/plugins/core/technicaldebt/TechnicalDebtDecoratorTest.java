@@ -50,6 +50,7 @@ import org.sonar.api.technicaldebt.batch.internal.DefaultRequirement;
 import org.sonar.api.test.IsMeasure;
 import org.sonar.core.technicaldebt.TechnicalDebtConverter;
 
+import java.util.Collections;
 import java.util.List;
 
 import static com.google.common.collect.Lists.newArrayList;
@@ -226,6 +227,48 @@ public class TechnicalDebtDecoratorTest {
     verify(context).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, requirement, 7.0)));
   }
 
+  @Test
+  public void only_compute_requirements_having_technical_debt() throws Exception {
+    WorkDayDuration technicalDebt = mock(WorkDayDuration.class);
+    when(converter.toDays(technicalDebt)).thenReturn(1.0);
+
+    Issue issue = createIssue("rule1", "repo1").setTechnicalDebt(technicalDebt);
+    when(issuable.issues()).thenReturn(newArrayList(issue));
+
+    DefaultCharacteristic characteristic = new DefaultCharacteristic().setKey("characteristic");
+    RuleKey ruleKey1 = RuleKey.of("repo1", "rule1");
+    DefaultRequirement requirement1 = new DefaultRequirement().setRuleKey(ruleKey1).setCharacteristic(characteristic);
+    DefaultRequirement requirement2 = new DefaultRequirement().setRuleKey(RuleKey.of("repo2", "rule2")).setCharacteristic(characteristic);
+
+    when(defaultTechnicalDebtModel.requirementsByRule(ruleKey1)).thenReturn(requirement1);
+    doReturn(newArrayList(requirement1, requirement2)).when(defaultTechnicalDebtModel).requirements();
+
+    decorator.decorate(resource, context);
+
+    verify(context).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, requirement1, 1.0)));
+    verify(context, never()).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, requirement2, 0.0)));
+    // children measures are loaded once, whatever the number of requirements
+    verify(context, times(1)).getChildrenMeasures(any(MeasuresFilter.class));
+    verify(defaultTechnicalDebtModel, never()).requirements();
+  }
+
+  @Test
+  public void save_root_characteristics_without_technical_debt_on_project() throws Exception {
+    when(context.getResource()).thenReturn(new Project("foo"));
+    when(issuable.issues()).thenReturn(Collections.<Issue>emptyList());
+
+    DefaultCharacteristic rootCharacteristic = new DefaultCharacteristic().setKey("rootCharacteristic");
+    DefaultCharacteristic characteristic = new DefaultCharacteristic().setKey("characteristic").setParent(rootCharacteristic);
+    DefaultRequirement requirement = new DefaultRequirement().setRuleKey(RuleKey.of("repo1", "rule1")).setCharacteristic(characteristic);
+    doReturn(newArrayList(requirement)).when(defaultTechnicalDebtModel).requirements();
+
+    decorator.decorate(resource, context);
+
+    verify(context).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, 0.0)));
+    verify(context).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, rootCharacteristic, 0.0)));
+    verify(context, never()).saveMeasure(argThat(new IsCharacteristicMeasure(CoreMetrics.TECHNICAL_DEBT, characteristic, 0.0)));
+  }
+
   @Test
   public void always_save_technical_debt_for_positive_values() throws Exception {
     // for a project
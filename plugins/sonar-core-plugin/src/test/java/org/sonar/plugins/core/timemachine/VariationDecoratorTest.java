@@ -28,6 +28,7 @@ import org.sonar.api.resources.JavaPackage;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.rules.Rule;
+import org.sonar.batch.components.PastMeasuresIndex;
 import org.sonar.batch.components.PastMeasuresLoader;
 import org.sonar.batch.components.PastSnapshot;
 import org.sonar.batch.components.TimeMachineConfiguration;
@@ -131,6 +132,44 @@ public class VariationDecoratorTest extends AbstractDbUnitTestCase {
     assertThat(violations.getVariation1()).isEqualTo(20.0);
   }
 
+  @Test
+  public void shouldLoadPastMeasuresOfModuleOnce() {
+    Resource project = new Project("foo").setId(1);
+    Resource javaPackage = new JavaPackage("org.foo").setId(2);
+
+    PastMeasuresLoader pastMeasuresLoader = mock(PastMeasuresLoader.class);
+    PastSnapshot pastSnapshot1 = new PastSnapshot("days", new Date()).setIndex(1);
+    PastMeasuresIndex pastMeasures = new PastMeasuresIndex();
+    pastMeasures.put(1, NCLOC_ID, null, null, null, 1000.0);
+    pastMeasures.put(2, NCLOC_ID, null, null, null, 180.0);
+    pastMeasures.put(2, COVERAGE_ID, null, null, null, 75.0);
+    when(pastMeasuresLoader.getPastMeasuresIndex(pastSnapshot1)).thenReturn(pastMeasures);
+
+    VariationDecorator decorator = new VariationDecorator(pastMeasuresLoader, mock(MetricFinder.class), Arrays.asList(pastSnapshot1));
+
+    DecoratorContext packageContext = mock(DecoratorContext.class);
+    Measure packageNcloc = newMeasure(NCLOC, 200.0);
+    Measure packageCoverage = newMeasure(COVERAGE, 80.0);
+    when(packageContext.getMeasures(Matchers.<MeasuresFilter>anyObject())).thenReturn(Arrays.asList(packageNcloc, packageCoverage));
+    decorator.decorate(javaPackage, packageContext);
+
+    DecoratorContext projectContext = mock(DecoratorContext.class);
+    Measure projectNcloc = newMeasure(NCLOC, 1100.0);
+    Measure projectCoverage = newMeasure(COVERAGE, 80.0);
+    when(projectContext.getMeasures(Matchers.<MeasuresFilter>anyObject())).thenReturn(Arrays.asList(projectNcloc, projectCoverage));
+    decorator.decorate(project, projectContext);
+
+    verify(pastMeasuresLoader, times(1)).getPastMeasuresIndex(pastSnapshot1);
+    verify(pastMeasuresLoader, never()).getPastMeasures(any(Resource.class), any(PastSnapshot.class));
+
+    assertThat(packageNcloc.getVariation1()).isEqualTo(20.0);
+    assertThat(packageCoverage.getVariation1()).isEqualTo(5.0);
+    assertThat(projectNcloc.getVariation1()).isEqualTo(100.0);
+    assertThat(projectCoverage.getVariation1()).isNull();
+    verify(packageContext, times(2)).saveMeasure(Matchers.<Measure>anyObject());
+    verify(projectContext, times(1)).saveMeasure(Matchers.<Measure>anyObject());
+  }
+
   private Measure newMeasure(Metric metric, double value) {
     return new Measure(metric, value);
   }
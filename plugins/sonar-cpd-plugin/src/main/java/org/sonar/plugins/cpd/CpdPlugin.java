@@ -63,6 +63,16 @@ public final class CpdPlugin extends SonarPlugin {
         .subCategory(CoreProperties.SUBCATEGORY_DUPLICATIONS_EXCLUSIONS)
         .multiValues(true)
         .build(),
+      PropertyDefinition.builder(CoreProperties.CPD_THREADS)
+        .defaultValue(CoreProperties.CPD_THREADS_DEFAULT_VALUE)
+        .name("Threads")
+        .description("Number of threads used to chunk files and to detect duplications. Files are processed sequentially when lower than 2. "
+          + "Detection is also sequential when cross project detection is enabled.")
+        .hidden()
+        .category(CoreProperties.CATEGORY_GENERAL)
+        .subCategory(CoreProperties.SUBCATEGORY_DUPLICATIONS)
+        .type(PropertyType.INTEGER)
+        .build(),
 
       CpdSensor.class,
       SumDuplicationsDecorator.class,
@@ -20,6 +20,7 @@
 
 package org.sonar.plugins.cpd;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringEscapeUtils;
@@ -59,7 +60,10 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -67,6 +71,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -111,11 +116,71 @@ public class SonarEngine extends CpdEngine {
   private SonarDuplicationsIndex createIndex(Project project, Iterable<InputFile> sourceFiles) {
     final SonarDuplicationsIndex index = indexFactory.create(project);
 
-    TokenChunker tokenChunker = JavaTokenProducer.build();
-    StatementChunker statementChunker = JavaStatementBuilder.build();
-    BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
+    int threads = settings.getInt(CoreProperties.CPD_THREADS);
+    if (threads > 1) {
+      populateConcurrently(index, sourceFiles, threads);
+    } else {
+      FileChunker chunker = new FileChunker(fileSystem.sourceCharset());
+      for (InputFile inputFile : sourceFiles) {
+        index.insert(inputFile, chunker.chunk(inputFile));
+      }
+    }
+
+    return index;
+  }
+
+  /**
+   * Token and statement chunkers are not thread-safe, so each thread uses its own {@link FileChunker}.
+   * Blocks are inserted on the calling thread, in the order of files. At most two files per thread are chunked
+   * but not inserted yet, so that the blocks of all files are never held in memory at the same time.
+   */
+  private void populateConcurrently(SonarDuplicationsIndex index, Iterable<InputFile> sourceFiles, int threads) {
+    final Charset charset = fileSystem.sourceCharset();
+    final ThreadLocal<FileChunker> chunkers = new ThreadLocal<FileChunker>() {
+      @Override
+      protected FileChunker initialValue() {
+        return new FileChunker(charset);
+      }
+    };
+    int maxPendingFiles = 2 * threads;
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    try {
+      Deque<InputFile> pendingFiles = new ArrayDeque<InputFile>();
+      Deque<Future<List<Block>>> pendingBlocks = new ArrayDeque<Future<List<Block>>>();
+      for (final InputFile inputFile : sourceFiles) {
+        if (pendingFiles.size() == maxPendingFiles) {
+          index.insert(pendingFiles.poll(), pendingBlocks.poll().get());
+        }
+        pendingFiles.add(inputFile);
+        pendingBlocks.add(executorService.submit(new Callable<List<Block>>() {
+          public List<Block> call() {
+            return chunkers.get().chunk(inputFile);
+          }
+        }));
+      }
+      while (!pendingFiles.isEmpty()) {
+        index.insert(pendingFiles.poll(), pendingBlocks.poll().get());
+      }
+    } catch (InterruptedException e) {
+      throw new SonarException("Fail to populate index of duplications", e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
 
-    for (InputFile inputFile : sourceFiles) {
+  private static class FileChunker {
+    private final TokenChunker tokenChunker = JavaTokenProducer.build();
+    private final StatementChunker statementChunker = JavaStatementBuilder.build();
+    private final BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
+    private final Charset charset;
+
+    FileChunker(Charset charset) {
+      this.charset = charset;
+    }
+
+    List<Block> chunk(InputFile inputFile) {
       LOG.debug("Populating index from {}", inputFile);
       String resourceEffectiveKey = inputFile.attribute(DefaultInputFile.ATTRIBUTE_COMPONENT_KEY);
 
@@ -123,7 +188,7 @@ public class SonarEngine extends CpdEngine {
 
       Reader reader = null;
       try {
-        reader = new InputStreamReader(new FileInputStream(inputFile.file()), fileSystem.sourceCharset());
+        reader = new InputStreamReader(new FileInputStream(inputFile.file()), charset);
         statements = statementChunker.chunk(tokenChunker.chunk(reader));
       } catch (FileNotFoundException e) {
         throw new SonarException("Cannot find file " + inputFile.file(), e);
@@ -131,38 +196,64 @@ public class SonarEngine extends CpdEngine {
         IOUtils.closeQuietly(reader);
       }
 
-      List<Block> blocks = blockChunker.chunk(resourceEffectiveKey, statements);
-      index.insert(inputFile, blocks);
+      return blockChunker.chunk(resourceEffectiveKey, statements);
     }
-
-    return index;
   }
 
-  private void detect(SonarDuplicationsIndex index, SensorContext context, Iterable<InputFile> sourceFiles) {
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
+  /**
+   * Up to {@link CoreProperties#CPD_THREADS} files are analysed at the same time. The in-memory index is read-only once populated,
+   * so detections don't share any state. Results are saved on the calling thread, in the order of files.
+   */
+  void detect(SonarDuplicationsIndex index, SensorContext context, Iterable<InputFile> sourceFiles) {
+    int threads = index.isCrossProject() ? 1 : Math.max(1, settings.getInt(CoreProperties.CPD_THREADS));
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
     try {
+      Deque<Detection> detections = new ArrayDeque<Detection>();
       for (InputFile inputFile : sourceFiles) {
+        if (detections.size() == threads) {
+          save(context, detections.poll());
+        }
         LOG.debug("Detection of duplications for {}", inputFile);
         String resourceEffectiveKey = inputFile.attribute(DefaultInputFile.ATTRIBUTE_COMPONENT_KEY);
 
         Collection<Block> fileBlocks = index.getByInputFile(inputFile, resourceEffectiveKey);
-
-        List<CloneGroup> clones;
-        try {
-          clones = executorService.submit(new Task(index, fileBlocks)).get(TIMEOUT, TimeUnit.SECONDS);
-        } catch (TimeoutException e) {
-          clones = null;
-          LOG.warn("Timeout during detection of duplications for " + inputFile, e);
-        } catch (InterruptedException e) {
-          throw new SonarException("Fail during detection of duplication for " + inputFile, e);
-        } catch (ExecutionException e) {
-          throw new SonarException("Fail during detection of duplication for " + inputFile, e);
-        }
-
-        save(context, inputFile, clones);
+        detections.add(new Detection(inputFile, executorService.submit(new Task(index, fileBlocks))));
+      }
+      while (!detections.isEmpty()) {
+        save(context, detections.poll());
       }
     } finally {
-      executorService.shutdown();
+      executorService.shutdownNow();
+    }
+  }
+
+  private static void save(SensorContext context, Detection detection) {
+    InputFile inputFile = detection.inputFile;
+    List<CloneGroup> clones;
+    try {
+      clones = detection.future.get(Math.max(0L, detection.deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      clones = null;
+      detection.future.cancel(true);
+      LOG.warn("Timeout during detection of duplications for " + inputFile, e);
+    } catch (InterruptedException e) {
+      throw new SonarException("Fail during detection of duplication for " + inputFile, e);
+    } catch (ExecutionException e) {
+      throw new SonarException("Fail during detection of duplication for " + inputFile, e);
+    }
+
+    save(context, inputFile, clones);
+  }
+
+  private static class Detection {
+    private final InputFile inputFile;
+    private final Future<List<CloneGroup>> future;
+    private final long deadline;
+
+    Detection(InputFile inputFile, Future<List<CloneGroup>> future) {
+      this.inputFile = inputFile;
+      this.future = future;
+      this.deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
     }
   }
 
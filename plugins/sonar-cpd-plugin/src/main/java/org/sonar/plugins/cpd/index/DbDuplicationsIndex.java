@@ -21,6 +21,8 @@ package org.sonar.plugins.cpd.index;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.resources.Project;
 import org.sonar.api.scan.filesystem.internal.InputFile;
@@ -29,15 +31,21 @@ import org.sonar.core.duplication.DuplicationDao;
 import org.sonar.core.duplication.DuplicationUnitDto;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.DataUtils;
 
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Blocks of other projects are loaded for each file. To limit memory consumption, candidates of current file are streamed
+ * from database into flat arrays sorted by hash, in the same way as {@link org.sonar.duplications.index.PackedMemoryCloneIndex}.
+ * Arrays are reused from one file to another.
+ */
 public class DbDuplicationsIndex {
 
-  private final Map<ByteArray, Collection<Block>> cache = Maps.newHashMap();
+  private static final int DEFAULT_INITIAL_CAPACITY = 1024;
 
   private final ResourcePersister resourcePersister;
   private final int currentProjectSnapshotId;
@@ -46,6 +54,14 @@ public class DbDuplicationsIndex {
 
   private DuplicationDao dao;
 
+  private final Map<Integer, String> resourceKeysBySnapshotId = Maps.newHashMap();
+  private int size;
+  private long[] hashes = new long[DEFAULT_INITIAL_CAPACITY];
+  private int[] snapshotIds = new int[DEFAULT_INITIAL_CAPACITY];
+  private int[] indexesInFile = new int[DEFAULT_INITIAL_CAPACITY];
+  private int[] startLines = new int[DEFAULT_INITIAL_CAPACITY];
+  private int[] endLines = new int[DEFAULT_INITIAL_CAPACITY];
+
   public DbDuplicationsIndex(ResourcePersister resourcePersister, Project currentProject, DuplicationDao dao) {
     this.dao = dao;
     this.resourcePersister = resourcePersister;
@@ -62,41 +78,94 @@ public class DbDuplicationsIndex {
 
   public void prepareCache(InputFile inputFile) {
     int resourceSnapshotId = getSnapshotIdFor(inputFile);
-    List<DuplicationUnitDto> units = dao.selectCandidates(resourceSnapshotId, lastSnapshotId, languageKey);
-    cache.clear();
-    // TODO Godin: maybe remove conversion of units to blocks?
-    for (DuplicationUnitDto unit : units) {
-      String hash = unit.getHash();
-      String resourceKey = unit.getResourceKey();
-      int indexInFile = unit.getIndexInFile();
-      int startLine = unit.getStartLine();
-      int endLine = unit.getEndLine();
-
-      // TODO Godin: in fact we could work directly with id instead of key - this will allow to decrease memory consumption
-      Block block = Block.builder()
-        .setResourceId(resourceKey)
-        .setBlockHash(new ByteArray(hash))
-        .setIndexInFile(indexInFile)
-        .setLines(startLine, endLine)
-        .build();
-
-      // Group blocks by hash
-      Collection<Block> sameHash = cache.get(block.getBlockHash());
-      if (sameHash == null) {
-        sameHash = Lists.newArrayList();
-        cache.put(block.getBlockHash(), sameHash);
+    size = 0;
+    resourceKeysBySnapshotId.clear();
+    dao.selectCandidates(resourceSnapshotId, lastSnapshotId, languageKey, new ResultHandler() {
+      public void handleResult(ResultContext context) {
+        add((DuplicationUnitDto) context.getResultObject());
       }
-      sameHash.add(block);
+    });
+    DataUtils.sort(byHash);
+  }
+
+  private void add(DuplicationUnitDto unit) {
+    ensureCapacity();
+    int snapshotId = unit.getSnapshotId();
+    if (!resourceKeysBySnapshotId.containsKey(snapshotId)) {
+      resourceKeysBySnapshotId.put(snapshotId, unit.getResourceKey());
+    }
+    hashes[size] = parseHash(unit.getHash());
+    snapshotIds[size] = snapshotId;
+    indexesInFile[size] = unit.getIndexInFile();
+    startLines[size] = unit.getStartLine();
+    endLines[size] = unit.getEndLine();
+    size++;
+  }
+
+  private void ensureCapacity() {
+    if (size < hashes.length) {
+      return;
     }
+    int newCapacity = (hashes.length * 3) / 2 + 1;
+    long[] oldHashes = hashes;
+    hashes = new long[newCapacity];
+    System.arraycopy(oldHashes, 0, hashes, 0, size);
+    snapshotIds = grow(snapshotIds, newCapacity);
+    indexesInFile = grow(indexesInFile, newCapacity);
+    startLines = grow(startLines, newCapacity);
+    endLines = grow(endLines, newCapacity);
+  }
+
+  private int[] grow(int[] array, int newCapacity) {
+    int[] result = new int[newCapacity];
+    System.arraycopy(array, 0, result, 0, size);
+    return result;
+  }
+
+  /**
+   * Same value as {@link ByteArray#toLong()} for the hash stored in hexadecimal.
+   */
+  static long parseHash(String hexString) {
+    long result = 0L;
+    int length = Math.min(16, hexString.length());
+    for (int i = 0; i < length; i++) {
+      result = (result << 4) | Character.digit(hexString.charAt(i), 16);
+    }
+    return result;
   }
 
   public Collection<Block> getByHash(ByteArray hash) {
-    Collection<Block> result = cache.get(hash);
-    if (result != null) {
-      return result;
-    } else {
+    long value = hash.toLong();
+    int index = binarySearch(value);
+    if (index == size || hashes[index] != value) {
       return Collections.emptyList();
     }
+    Block.Builder builder = Block.builder();
+    List<Block> result = Lists.newArrayList();
+    while (index < size && hashes[index] == value) {
+      result.add(builder
+        .setResourceId(resourceKeysBySnapshotId.get(snapshotIds[index]))
+        .setBlockHash(hash)
+        .setIndexInFile(indexesInFile[index])
+        .setLines(startLines[index], endLines[index])
+        .build());
+      index++;
+    }
+    return result;
+  }
+
+  private int binarySearch(long value) {
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >> 1;
+      if (hashes[mid] < value) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+    return lower;
   }
 
   public void insert(InputFile inputFile, Collection<Block> blocks) {
@@ -118,4 +187,30 @@ public class DbDuplicationsIndex {
     dao.insert(units);
   }
 
+  private final DataUtils.Sortable byHash = new DataUtils.Sortable() {
+    public void swap(int i, int j) {
+      long hash = hashes[i];
+      hashes[i] = hashes[j];
+      hashes[j] = hash;
+      swap(snapshotIds, i, j);
+      swap(indexesInFile, i, j);
+      swap(startLines, i, j);
+      swap(endLines, i, j);
+    }
+
+    private void swap(int[] array, int i, int j) {
+      int tmp = array[i];
+      array[i] = array[j];
+      array[j] = tmp;
+    }
+
+    public boolean isLess(int i, int j) {
+      return hashes[i] < hashes[j];
+    }
+
+    public int size() {
+      return size;
+    }
+  };
+
 }
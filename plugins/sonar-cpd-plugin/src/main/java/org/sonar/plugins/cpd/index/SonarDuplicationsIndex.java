@@ -43,6 +43,14 @@ public class SonarDuplicationsIndex extends AbstractCloneIndex {
     this.db = db;
   }
 
+  /**
+   * Blocks of other projects are loaded for each file by {@link #getByInputFile(InputFile, String)}, so
+   * detections of different files can't be executed concurrently.
+   */
+  public boolean isCrossProject() {
+    return db != null;
+  }
+
   public void insert(InputFile inputFile, Collection<Block> blocks) {
     for (Block block : blocks) {
       mem.insert(block);
@@ -20,28 +20,47 @@
 package org.sonar.plugins.cpd;
 
 import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.SensorContext;
+import org.sonar.api.config.Settings;
 import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.resources.Project;
+import org.sonar.api.scan.filesystem.FileQuery;
+import org.sonar.api.scan.filesystem.internal.DefaultInputFile;
 import org.sonar.api.scan.filesystem.internal.InputFile;
 import org.sonar.api.scan.filesystem.internal.InputFileBuilder;
 import org.sonar.api.test.IsMeasure;
+import org.sonar.batch.scan.filesystem.DefaultModuleFileSystem;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.CloneGroup;
 import org.sonar.duplications.index.ClonePart;
+import org.sonar.plugins.cpd.index.IndexFactory;
+import org.sonar.plugins.cpd.index.SonarDuplicationsIndex;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 public class SonarEngineTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private SensorContext context;
   private InputFile inputFile;
 
@@ -149,6 +168,68 @@ public class SonarEngineTest {
         + "</g></duplications>")));
   }
 
+  @Test
+  public void should_detect_duplications_concurrently() {
+    SonarDuplicationsIndex index = new SonarDuplicationsIndex();
+    List<InputFile> inputFiles = Lists.newArrayList();
+    for (int i = 0; i < 5; i++) {
+      InputFile file = new InputFileBuilder(new java.io.File(""), Charsets.UTF_8, "src/main/java/Foo" + i + ".java")
+        .attribute(DefaultInputFile.ATTRIBUTE_COMPONENT_KEY, "key" + i)
+        .build();
+      index.insert(file, Arrays.asList(newBlock("key" + i, "aaaaaaaaaaaaaaaa", 0), newBlock("key" + i, "bbbbbbbbbbbbbbbb", 1)));
+      inputFiles.add(file);
+    }
+    Settings settings = new Settings().setProperty(CoreProperties.CPD_THREADS, 3);
+
+    new SonarEngine(null, null, settings).detect(index, context, inputFiles);
+
+    for (InputFile file : inputFiles) {
+      verify(context).saveMeasure(file, CoreMetrics.DUPLICATED_FILES, 1d);
+      verify(context).saveMeasure(file, CoreMetrics.DUPLICATED_BLOCKS, 1d);
+    }
+  }
+
+  @Test
+  public void should_populate_index_concurrently() throws Exception {
+    StringBuilder source = new StringBuilder("class Foo {\n");
+    for (int i = 0; i < 20; i++) {
+      source.append("  int method").append(i).append("() { return ").append(i).append("; }\n");
+    }
+    source.append("}\n");
+    List<InputFile> inputFiles = Lists.newArrayList();
+    // more files than can be pending with 2 threads
+    for (int i = 0; i < 10; i++) {
+      java.io.File file = temp.newFile("Foo" + i + ".java");
+      FileUtils.write(file, source, Charsets.UTF_8);
+      inputFiles.add(new InputFileBuilder(file, Charsets.UTF_8, "src/main/java/Foo" + i + ".java")
+        .attribute(DefaultInputFile.ATTRIBUTE_COMPONENT_KEY, "key" + i)
+        .build());
+    }
+    DefaultModuleFileSystem fileSystem = mock(DefaultModuleFileSystem.class);
+    when(fileSystem.inputFiles(any(FileQuery.class))).thenReturn((Iterable) inputFiles);
+    when(fileSystem.sourceCharset()).thenReturn(Charsets.UTF_8);
+    IndexFactory indexFactory = mock(IndexFactory.class);
+    when(indexFactory.create(any(Project.class))).thenReturn(new SonarDuplicationsIndex());
+    Project project = mock(Project.class);
+    when(project.getLanguageKey()).thenReturn("java");
+    Settings settings = new Settings().setProperty(CoreProperties.CPD_THREADS, 2);
+
+    new SonarEngine(indexFactory, fileSystem, settings).analyse(project, context);
+
+    for (InputFile inputFile : inputFiles) {
+      verify(context).saveMeasure(inputFile, CoreMetrics.DUPLICATED_FILES, 1d);
+    }
+  }
+
+  private static Block newBlock(String resourceId, String hash, int index) {
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(new ByteArray(hash))
+      .setIndexInFile(index)
+      .setLines(index * 10 + 1, index * 10 + 10)
+      .build();
+  }
+
   private CloneGroup newCloneGroup(ClonePart... parts) {
     return CloneGroup.builder().setLength(0).setOrigin(parts[0]).setParts(Arrays.asList(parts)).build();
   }
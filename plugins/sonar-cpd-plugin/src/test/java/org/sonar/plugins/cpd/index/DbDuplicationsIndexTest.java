@@ -0,0 +1,161 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.cpd.index;
+
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.api.database.model.Snapshot;
+import org.sonar.api.resources.Project;
+import org.sonar.api.scan.filesystem.internal.InputFile;
+import org.sonar.batch.index.ResourcePersister;
+import org.sonar.core.duplication.DuplicationDao;
+import org.sonar.core.duplication.DuplicationUnitDto;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DbDuplicationsIndexTest {
+
+  DuplicationDao dao = mock(DuplicationDao.class);
+  InputFile inputFile = mock(InputFile.class);
+  DbDuplicationsIndex index;
+
+  @Before
+  public void setUp() {
+    Project project = mock(Project.class);
+    when(project.getLanguageKey()).thenReturn("java");
+    ResourcePersister resourcePersister = mock(ResourcePersister.class);
+    Snapshot projectSnapshot = snapshot(1);
+    when(resourcePersister.getSnapshotOrFail(project)).thenReturn(projectSnapshot);
+    index = new DbDuplicationsIndex(resourcePersister, project, dao) {
+      @Override
+      int getSnapshotIdFor(InputFile inputFile) {
+        return 2;
+      }
+    };
+  }
+
+  @Test
+  public void should_get_candidates_by_hash() {
+    mockCandidates(
+      unit(10, "bar", "00000000000000bb", 3, 7, 17),
+      unit(11, "baz", "00000000000000aa", 0, 1, 11),
+      unit(10, "bar", "00000000000000aa", 1, 2, 12),
+      unit(12, "qix", "ff000000000000aa", 0, 1, 10));
+
+    index.prepareCache(inputFile);
+
+    List<Block> blocks = newArrayList(index.getByHash(new ByteArray("00000000000000aa")));
+    assertThat(blocks).hasSize(2);
+    for (Block block : blocks) {
+      assertThat(block.getBlockHash()).isEqualTo(new ByteArray("00000000000000aa"));
+      if (block.getResourceId().equals("bar")) {
+        assertThat(block.getIndexInFile()).isEqualTo(1);
+        assertThat(block.getStartLine()).isEqualTo(2);
+        assertThat(block.getEndLine()).isEqualTo(12);
+      } else {
+        assertThat(block.getResourceId()).isEqualTo("baz");
+        assertThat(block.getIndexInFile()).isEqualTo(0);
+      }
+    }
+    assertThat(index.getByHash(new ByteArray("ff000000000000aa"))).hasSize(1);
+    assertThat(index.getByHash(new ByteArray("00000000000000cc"))).isEmpty();
+  }
+
+  @Test
+  public void should_reset_candidates_for_each_file() {
+    mockCandidates(unit(10, "bar", "00000000000000bb", 3, 7, 17));
+    index.prepareCache(inputFile);
+    assertThat(index.getByHash(new ByteArray("00000000000000bb"))).hasSize(1);
+
+    mockCandidates(unit(10, "baz", "00000000000000aa", 3, 7, 17));
+    index.prepareCache(inputFile);
+    assertThat(index.getByHash(new ByteArray("00000000000000bb"))).isEmpty();
+    List<Block> blocks = newArrayList(index.getByHash(new ByteArray("00000000000000aa")));
+    assertThat(blocks).hasSize(1);
+    // resource keys are reset too
+    assertThat(blocks.get(0).getResourceId()).isEqualTo("baz");
+  }
+
+  @Test
+  public void should_increase_capacity() {
+    DuplicationUnitDto[] units = new DuplicationUnitDto[5000];
+    for (int i = 0; i < units.length; i++) {
+      units[i] = unit(i, "res" + i, String.format("%016x", units.length - i), 0, i, i + 10);
+    }
+    mockCandidates(units);
+
+    index.prepareCache(inputFile);
+
+    for (int i = 0; i < units.length; i++) {
+      Block block = index.getByHash(new ByteArray(String.format("%016x", units.length - i))).iterator().next();
+      assertThat(block.getResourceId()).isEqualTo("res" + i);
+      assertThat(block.getStartLine()).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void should_parse_hash_as_byte_array() {
+    assertThat(DbDuplicationsIndex.parseHash("00000000000000aa")).isEqualTo(new ByteArray("00000000000000aa").toLong());
+    assertThat(DbDuplicationsIndex.parseHash("fedcba9876543210")).isEqualTo(new ByteArray("fedcba9876543210").toLong());
+    assertThat(DbDuplicationsIndex.parseHash("aa")).isEqualTo(new ByteArray("aa").toLong());
+  }
+
+  private void mockCandidates(final DuplicationUnitDto... units) {
+    doAnswer(new Answer<Void>() {
+      public Void answer(InvocationOnMock invocation) {
+        ResultHandler handler = (ResultHandler) invocation.getArguments()[3];
+        for (DuplicationUnitDto unit : Arrays.asList(units)) {
+          ResultContext context = mock(ResultContext.class);
+          when(context.getResultObject()).thenReturn(unit);
+          handler.handleResult(context);
+        }
+        return null;
+      }
+    }).when(dao).selectCandidates(eq(2), any(Integer.class), anyString(), any(ResultHandler.class));
+  }
+
+  private static DuplicationUnitDto unit(int snapshotId, String resourceKey, String hash, int indexInFile, int startLine, int endLine) {
+    DuplicationUnitDto unit = new DuplicationUnitDto(1, snapshotId, hash, indexInFile, startLine, endLine);
+    unit.setResourceKey(resourceKey);
+    return unit;
+  }
+
+  private static Snapshot snapshot(int id) {
+    Snapshot snapshot = mock(Snapshot.class);
+    when(snapshot.getId()).thenReturn(id);
+    return snapshot;
+  }
+}
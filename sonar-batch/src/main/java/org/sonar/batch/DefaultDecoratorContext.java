@@ -40,6 +40,10 @@ import org.sonar.api.resources.Resource;
 import org.sonar.api.rules.Violation;
 import org.sonar.api.violations.ViolationQuery;
 
+/**
+ * Access to index is synchronized on the index itself, as resources can be decorated concurrently
+ * (see {@link org.sonar.api.CoreProperties#DECORATOR_THREADS}).
+ */
 public class DefaultDecoratorContext implements DecoratorContext {
 
   private static final String SAVE_MEASURE_METHOD = "saveMeasure";
@@ -67,7 +71,9 @@ public class DefaultDecoratorContext implements DecoratorContext {
   }
 
   public Project getProject() {
-    return index.getProject();
+    synchronized (index) {
+      return index.getProject();
+    }
   }
 
   public List<DecoratorContext> getChildren() {
@@ -82,11 +88,15 @@ public class DefaultDecoratorContext implements DecoratorContext {
   }
 
   public <M> M getMeasures(MeasuresFilter<M> filter) {
-    return index.getMeasures(resource, filter);
+    synchronized (index) {
+      return index.getMeasures(resource, filter);
+    }
   }
 
   public Measure getMeasure(Metric metric) {
-    return index.getMeasure(resource, metric);
+    synchronized (index) {
+      return index.getMeasure(resource, metric);
+    }
   }
 
   public Collection<Measure> getChildrenMeasures(MeasuresFilter filter) {
@@ -114,8 +124,10 @@ public class DefaultDecoratorContext implements DecoratorContext {
 
   public DecoratorContext saveMeasure(Measure measure) {
     checkReadOnly(SAVE_MEASURE_METHOD);
-    if(measurementFilters.accept(resource, measure)) {
-      index.addMeasure(resource, measure);
+    synchronized (index) {
+      if (measurementFilters.accept(resource, measure)) {
+        index.addMeasure(resource, measure);
+      }
     }
     return this;
   }
@@ -130,50 +142,70 @@ public class DefaultDecoratorContext implements DecoratorContext {
   * {@inheritDoc}
   */
   public List<Violation> getViolations(ViolationQuery violationQuery) {
-    return index.getViolations(violationQuery);
+    synchronized (index) {
+      return index.getViolations(violationQuery);
+    }
   }
 
   /**
   * {@inheritDoc}
   */
   public List<Violation> getViolations() {
-    return index.getViolations(resource);
+    synchronized (index) {
+      return index.getViolations(resource);
+    }
   }
 
   public Dependency saveDependency(Dependency dependency) {
     checkReadOnly("addDependency");
-    return index.addDependency(dependency);
+    synchronized (index) {
+      return index.addDependency(dependency);
+    }
   }
 
   public Set<Dependency> getDependencies() {
-    return index.getDependencies();
+    synchronized (index) {
+      return index.getDependencies();
+    }
   }
 
   public Collection<Dependency> getIncomingDependencies() {
-    return index.getIncomingEdges(resource);
+    synchronized (index) {
+      return index.getIncomingEdges(resource);
+    }
   }
 
   public Collection<Dependency> getOutgoingDependencies() {
-    return index.getOutgoingEdges(resource);
+    synchronized (index) {
+      return index.getOutgoingEdges(resource);
+    }
   }
 
   public List<Event> getEvents() {
-    return index.getEvents(resource);
+    synchronized (index) {
+      return index.getEvents(resource);
+    }
   }
 
   public Event createEvent(String name, String description, String category, Date date) {
-    return index.addEvent(resource, name, description, category, date);
+    synchronized (index) {
+      return index.addEvent(resource, name, description, category, date);
+    }
   }
 
   public void deleteEvent(Event event) {
-    index.deleteEvent(event);
+    synchronized (index) {
+      index.deleteEvent(event);
+    }
   }
 
   public DefaultDecoratorContext saveViolation(Violation violation, boolean force) {
     if (violation.getResource() == null) {
       violation.setResource(resource);
     }
-    index.addViolation(violation, force);
+    synchronized (index) {
+      index.addViolation(violation, force);
+    }
     return this;
   }
 
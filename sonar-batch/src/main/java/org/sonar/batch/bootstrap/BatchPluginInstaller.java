@@ -19,16 +19,42 @@
  */
 package org.sonar.batch.bootstrap;
 
+import com.google.common.base.Joiner;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.BatchComponent;
 import org.sonar.core.plugins.DefaultPluginMetadata;
 import org.sonar.core.plugins.PluginInstaller;
 import org.sonar.home.cache.FileCache;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
 
 public class BatchPluginInstaller extends PluginInstaller implements BatchComponent {
 
+  private static final Logger LOG = LoggerFactory.getLogger(BatchPluginInstaller.class);
+
+  /**
+   * Suffix of the file that stores the manifest of a cached plugin. As the plugin is cached in a directory
+   * named by its hash, the file does not need to be invalidated.
+   */
+  static final String METADATA_SUFFIX = "_metadata.properties";
+  private static final String METADATA_FORMAT = "1";
+  private static final String LIST_SEPARATOR = ",";
+
   private FileCache cache;
 
   public BatchPluginInstaller(FileCache cache) {
@@ -36,7 +62,11 @@ public class BatchPluginInstaller extends PluginInstaller implements BatchCompon
   }
 
   public DefaultPluginMetadata installToCache(File pluginFile, boolean isCore) {
-    DefaultPluginMetadata metadata = extractMetadata(pluginFile, isCore);
+    DefaultPluginMetadata metadata = loadMetadata(pluginFile, isCore);
+    if (metadata == null) {
+      metadata = extractMetadata(pluginFile, isCore);
+      saveMetadata(pluginFile, metadata);
+    }
     install(metadata, null, pluginFile);
     return metadata;
   }
@@ -46,4 +76,106 @@ public class BatchPluginInstaller extends PluginInstaller implements BatchCompon
     return cache.unzip(pluginFile);
   }
 
+  static File metadataFile(File pluginFile) {
+    return new File(pluginFile.getParentFile(), pluginFile.getName() + METADATA_SUFFIX);
+  }
+
+  /**
+   * @return null if the metadata has not been saved yet or can not be read
+   */
+  @CheckForNull
+  private DefaultPluginMetadata loadMetadata(File pluginFile, boolean isCore) {
+    File file = metadataFile(pluginFile);
+    if (!file.exists()) {
+      return null;
+    }
+    Properties props = new Properties();
+    InputStream input = null;
+    try {
+      input = new FileInputStream(file);
+      props.load(input);
+    } catch (IOException e) {
+      LOG.debug("Fail to read plugin metadata: " + file, e);
+      return null;
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+    if (!METADATA_FORMAT.equals(props.getProperty("format")) || props.getProperty("key") == null) {
+      return null;
+    }
+    DefaultPluginMetadata metadata = DefaultPluginMetadata.create(pluginFile);
+    metadata.setKey(props.getProperty("key"));
+    metadata.setName(props.getProperty("name"));
+    metadata.setDescription(props.getProperty("description"));
+    metadata.setLicense(props.getProperty("license"));
+    metadata.setOrganization(props.getProperty("organization"));
+    metadata.setOrganizationUrl(props.getProperty("organizationUrl"));
+    metadata.setMainClass(props.getProperty("mainClass"));
+    metadata.setVersion(props.getProperty("version"));
+    metadata.setSonarVersion(props.getProperty("sonarVersion"));
+    metadata.setHomepage(props.getProperty("homepage"));
+    metadata.setIssueTrackerUrl(props.getProperty("issueTrackerUrl"));
+    metadata.setPathsToInternalDeps(splitList(props.getProperty("dependencies")));
+    metadata.setUseChildFirstClassLoader(Boolean.parseBoolean(props.getProperty("useChildFirstClassLoader")));
+    metadata.setBasePlugin(props.getProperty("basePlugin"));
+    metadata.setImplementationBuild(props.getProperty("implementationBuild"));
+    metadata.setParent(props.getProperty("parent"));
+    metadata.setRequiredPlugins(splitList(props.getProperty("requirePlugins")));
+    metadata.setCore(isCore);
+    return metadata;
+  }
+
+  /**
+   * Failures are ignored, the manifest is then read again during next analysis.
+   */
+  private void saveMetadata(File pluginFile, DefaultPluginMetadata metadata) {
+    Properties props = new Properties();
+    props.setProperty("format", METADATA_FORMAT);
+    setProperty(props, "key", metadata.getKey());
+    setProperty(props, "name", metadata.getName());
+    setProperty(props, "description", metadata.getDescription());
+    setProperty(props, "license", metadata.getLicense());
+    setProperty(props, "organization", metadata.getOrganization());
+    setProperty(props, "organizationUrl", metadata.getOrganizationUrl());
+    setProperty(props, "mainClass", metadata.getMainClass());
+    setProperty(props, "version", metadata.getVersion());
+    setProperty(props, "sonarVersion", metadata.getSonarVersion());
+    setProperty(props, "homepage", metadata.getHomepage());
+    setProperty(props, "issueTrackerUrl", metadata.getIssueTrackerUrl());
+    setProperty(props, "dependencies", Joiner.on(LIST_SEPARATOR).join(metadata.getPathsToInternalDeps()));
+    setProperty(props, "useChildFirstClassLoader", String.valueOf(metadata.isUseChildFirstClassLoader()));
+    setProperty(props, "basePlugin", metadata.getBasePlugin());
+    setProperty(props, "implementationBuild", metadata.getImplementationBuild());
+    setProperty(props, "parent", metadata.getParent());
+    setProperty(props, "requirePlugins", Joiner.on(LIST_SEPARATOR).join(metadata.getRequiredPlugins()));
+
+    File file = metadataFile(pluginFile);
+    OutputStream output = null;
+    File tempFile = null;
+    try {
+      // written to a temp file then renamed, as another process can read it at the same time
+      tempFile = File.createTempFile(pluginFile.getName(), ".tmp", pluginFile.getParentFile());
+      output = new FileOutputStream(tempFile);
+      props.store(output, null);
+      output.close();
+      if (!tempFile.renameTo(file)) {
+        FileUtils.deleteQuietly(tempFile);
+      }
+    } catch (IOException e) {
+      LOG.debug("Fail to save plugin metadata: " + file, e);
+      IOUtils.closeQuietly(output);
+      FileUtils.deleteQuietly(tempFile);
+    }
+  }
+
+  private static void setProperty(Properties props, String key, @Nullable String value) {
+    if (value != null) {
+      props.setProperty(key, value);
+    }
+  }
+
+  private static List<String> splitList(@Nullable String value) {
+    return Arrays.asList(StringUtils.split(StringUtils.defaultString(value), LIST_SEPARATOR));
+  }
+
 }
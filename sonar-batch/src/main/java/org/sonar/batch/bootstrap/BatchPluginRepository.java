@@ -20,6 +20,7 @@
 package org.sonar.batch.bootstrap;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang.StringUtils;
@@ -71,15 +72,18 @@ public class BatchPluginRepository implements PluginRepository {
   void doStart(List<RemotePlugin> remotePlugins) {
     PluginFilter filter = new PluginFilter(settings, analysisMode);
     metadataByKey = Maps.newHashMap();
+    List<RemotePlugin> acceptedPlugins = Lists.newArrayList();
     for (RemotePlugin remote : remotePlugins) {
       if (filter.accepts(remote.getKey())) {
-        File pluginFile = pluginDownloader.downloadPlugin(remote);
-        PluginMetadata metadata = pluginInstaller.installToCache(pluginFile, remote.isCore());
-        if (StringUtils.isBlank(metadata.getBasePlugin()) || filter.accepts(metadata.getBasePlugin())) {
-          metadataByKey.put(metadata.getKey(), metadata);
-        } else {
-          LOG.debug("Excluded plugin: " + metadata.getKey());
-        }
+        acceptedPlugins.add(remote);
+      }
+    }
+    for (Map.Entry<RemotePlugin, File> entry : pluginDownloader.downloadPlugins(acceptedPlugins).entrySet()) {
+      PluginMetadata metadata = pluginInstaller.installToCache(entry.getValue(), entry.getKey().isCore());
+      if (StringUtils.isBlank(metadata.getBasePlugin()) || filter.accepts(metadata.getBasePlugin())) {
+        metadataByKey.put(metadata.getKey(), metadata);
+      } else {
+        LOG.debug("Excluded plugin: " + metadata.getKey());
       }
     }
     classLoaders = new PluginClassloaders(Thread.currentThread().getContextClassLoader());
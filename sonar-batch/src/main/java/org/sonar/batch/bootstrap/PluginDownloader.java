@@ -19,7 +19,9 @@
  */
 package org.sonar.batch.bootstrap;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.commons.lang.CharUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -33,10 +35,17 @@ import org.sonar.home.cache.FileCache;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class PluginDownloader implements BatchComponent {
 
   private static final Logger LOG = LoggerFactory.getLogger(PluginDownloader.class);
+  private static final int MAX_CONCURRENT_DOWNLOADS = 4;
 
   private ServerClient server;
   private FileCache fileCache;
@@ -67,6 +76,60 @@ public class PluginDownloader implements BatchComponent {
     }
   }
 
+  /**
+   * Plugins that are not in the cache yet are downloaded concurrently.
+   *
+   * @return cached files of the given plugins, in the same order
+   * @since 4.2
+   */
+  public Map<RemotePlugin, File> downloadPlugins(List<RemotePlugin> remotes) {
+    Map<RemotePlugin, File> files = Maps.newLinkedHashMap();
+    List<RemotePlugin> missingRemotes = Lists.newArrayList();
+    for (RemotePlugin remote : remotes) {
+      RemotePluginFile file = remote.file();
+      File cachedFile = fileCache.get(file.getFilename(), file.getHash());
+      files.put(remote, cachedFile);
+      if (cachedFile == null) {
+        missingRemotes.add(remote);
+      }
+    }
+
+    int threads = Math.min(MAX_CONCURRENT_DOWNLOADS, missingRemotes.size());
+    if (threads < 2) {
+      for (RemotePlugin remote : missingRemotes) {
+        files.put(remote, downloadPlugin(remote));
+      }
+      return files;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<File>> futures = Lists.newArrayListWithCapacity(missingRemotes.size());
+      for (final RemotePlugin remote : missingRemotes) {
+        futures.add(executor.submit(new Callable<File>() {
+          @Override
+          public File call() {
+            return downloadPlugin(remote);
+          }
+        }));
+      }
+      for (int index = 0; index < missingRemotes.size(); index++) {
+        files.put(missingRemotes.get(index), futures.get(index).get());
+      }
+      return files;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while downloading plugins", e);
+
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   public List<RemotePlugin> downloadPluginIndex() {
     String url = "/deploy/plugins/index.txt";
     try {
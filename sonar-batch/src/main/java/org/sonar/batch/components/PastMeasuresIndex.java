@@ -0,0 +1,131 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.components;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Values of past measures, indexed by resource, metric, characteristic, person and rule ids.
+ * Keys and values are stored in primitive arrays (open addressing with linear probing), so that the measures
+ * of thousands of directories do not require millions of objects.
+ *
+ * @since 4.2
+ */
+public final class PastMeasuresIndex {
+
+  private static final int KEY_SIZE = 5;
+  // ids generated by database are strictly positive
+  private static final int NULL_ID = 0;
+
+  private int[] keys;
+  private double[] values;
+  private int size = 0;
+
+  public PastMeasuresIndex() {
+    this(16);
+  }
+
+  public PastMeasuresIndex(int expectedSize) {
+    int capacity = 16;
+    while (capacity < expectedSize * 2) {
+      capacity <<= 1;
+    }
+    keys = new int[capacity * KEY_SIZE];
+    values = new double[capacity];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void put(int resourceId, int metricId, @Nullable Integer characteristicId, @Nullable Integer personId, @Nullable Integer ruleId, double value) {
+    if ((size + 1) * 2 > values.length) {
+      rehash(values.length * 2);
+    }
+    int slot = insertionSlot(resourceId, metricId, id(characteristicId), id(personId), id(ruleId));
+    if (keys[slot * KEY_SIZE] == NULL_ID) {
+      size++;
+    }
+    set(slot, resourceId, metricId, id(characteristicId), id(personId), id(ruleId), value);
+  }
+
+  @CheckForNull
+  public Double get(int resourceId, int metricId, @Nullable Integer characteristicId, @Nullable Integer personId, @Nullable Integer ruleId) {
+    int slot = insertionSlot(resourceId, metricId, id(characteristicId), id(personId), id(ruleId));
+    return keys[slot * KEY_SIZE] == NULL_ID ? null : values[slot];
+  }
+
+  /**
+   * Slot of the given key if it exists, else the empty slot where it should be inserted.
+   */
+  private int insertionSlot(int resourceId, int metricId, int characteristicId, int personId, int ruleId) {
+    int mask = values.length - 1;
+    int slot = hash(resourceId, metricId, characteristicId, personId, ruleId) & mask;
+    while (true) {
+      int offset = slot * KEY_SIZE;
+      if (keys[offset] == NULL_ID
+        || (keys[offset] == resourceId && keys[offset + 1] == metricId && keys[offset + 2] == characteristicId
+        && keys[offset + 3] == personId && keys[offset + 4] == ruleId)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private void set(int slot, int resourceId, int metricId, int characteristicId, int personId, int ruleId, double value) {
+    int offset = slot * KEY_SIZE;
+    keys[offset] = resourceId;
+    keys[offset + 1] = metricId;
+    keys[offset + 2] = characteristicId;
+    keys[offset + 3] = personId;
+    keys[offset + 4] = ruleId;
+    values[slot] = value;
+  }
+
+  private void rehash(int capacity) {
+    int[] oldKeys = keys;
+    double[] oldValues = values;
+    keys = new int[capacity * KEY_SIZE];
+    values = new double[capacity];
+    for (int oldSlot = 0; oldSlot < oldValues.length; oldSlot++) {
+      int offset = oldSlot * KEY_SIZE;
+      if (oldKeys[offset] != NULL_ID) {
+        int slot = insertionSlot(oldKeys[offset], oldKeys[offset + 1], oldKeys[offset + 2], oldKeys[offset + 3], oldKeys[offset + 4]);
+        set(slot, oldKeys[offset], oldKeys[offset + 1], oldKeys[offset + 2], oldKeys[offset + 3], oldKeys[offset + 4], oldValues[oldSlot]);
+      }
+    }
+  }
+
+  private static int id(@Nullable Integer id) {
+    return id != null ? id.intValue() : NULL_ID;
+  }
+
+  private static int hash(int resourceId, int metricId, int characteristicId, int personId, int ruleId) {
+    int h = resourceId;
+    h = 31 * h + metricId;
+    h = 31 * h + characteristicId;
+    h = 31 * h + personId;
+    h = 31 * h + ruleId;
+    // spread the high bits, as ids are often sequential
+    h ^= (h >>> 20) ^ (h >>> 12);
+    return h ^ (h >>> 7) ^ (h >>> 4);
+  }
+}
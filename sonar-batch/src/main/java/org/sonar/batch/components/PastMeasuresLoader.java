@@ -29,10 +29,12 @@ import org.sonar.api.measures.Metric;
 import org.sonar.api.measures.MetricFinder;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.Scopes;
 
 import javax.annotation.Nullable;
 import javax.persistence.Query;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -91,6 +93,41 @@ public class PastMeasuresLoader implements BatchExtension {
     return q.getResultList();
   }
 
+  /**
+   * Load with a single query the past measures of the module and of its directories, so that variations of a module
+   * do not require a query per resource. Measures of files are not loaded, as they are purged.
+   *
+   * @since 4.2
+   */
+  public PastMeasuresIndex getPastMeasuresIndex(@Nullable PastSnapshot modulePastSnapshot) {
+    if (modulePastSnapshot == null || modulePastSnapshot.getProjectSnapshot() == null) {
+      return new PastMeasuresIndex();
+    }
+    Snapshot moduleSnapshot = modulePastSnapshot.getProjectSnapshot();
+    String sql = "select s.project_id, m.metric_id, m.characteristic_id, m.person_id, m.rule_id, m.value from project_measures m, snapshots s" +
+      " where m.snapshot_id=s.id and m.metric_id in (:metricIds) and m.value is not null" +
+      "       and (s.id=:moduleSnapshotId or (s.root_snapshot_id=:rootSnapshotId and s.path like :modulePath))" +
+      "       and s.scope in (:scopes) and s.qualifier<>:lib and s.status=:status";
+    List<Object[]> rows = session.createNativeQuery(sql)
+      .setParameter("metricIds", metricByIds.keySet())
+      .setParameter("moduleSnapshotId", moduleSnapshot.getId())
+      .setParameter("rootSnapshotId", ObjectUtils.defaultIfNull(moduleSnapshot.getRootId(), moduleSnapshot.getId()))
+      .setParameter("modulePath", StringUtils.defaultString(moduleSnapshot.getPath()) + moduleSnapshot.getId() + ".%")
+      .setParameter("scopes", Arrays.asList(Scopes.PROJECT, Scopes.DIRECTORY))
+      .setParameter("lib", Qualifiers.LIBRARY)
+      .setParameter("status", Snapshot.STATUS_PROCESSED)
+      .getResultList();
+
+    PastMeasuresIndex index = new PastMeasuresIndex(rows.size());
+    for (Object[] row : rows) {
+      // can be BigDecimal on Oracle
+      int resourceId = ((Number) row[0]).intValue();
+      Object[] measure = Arrays.copyOfRange(row, 1, row.length);
+      index.put(resourceId, getMetricId(measure), getCharacteristicId(measure), getPersonId(measure), getRuleId(measure), getValue(measure));
+    }
+    return index;
+  }
+
   public static int getMetricId(Object[] row) {
     // can be BigDecimal on Oracle
     return ((Number) row[0]).intValue();
@@ -22,15 +22,21 @@ package org.sonar.batch.index;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.MeasuresFilter;
 import org.sonar.api.measures.MeasuresFilters;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.utils.SonarException;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 public final class Bucket {
 
@@ -40,6 +46,11 @@ public final class Bucket {
   private Bucket parent;
   private List<Bucket> children;
 
+  // key of the measures moved to the measure cache, null if measures are in memory
+  private Integer spilledKey;
+  // measures reloaded from the measure cache, which can be replaced by equal instances
+  private Set<Measure> restoredMeasures;
+
   public Bucket(Resource resource) {
     this.resource = resource;
   }
@@ -85,7 +96,12 @@ public final class Bucket {
     if (metricMeasures != null) {
       int index = metricMeasures.indexOf(measure);
       if (index > -1) {
-        if (metricMeasures.get(index) == measure) {
+        Measure existing = metricMeasures.get(index);
+        if (existing == measure) {
+          add = false;
+        } else if (restoredMeasures != null && restoredMeasures.remove(existing)) {
+          // the caller still references the instance which was spilled
+          metricMeasures.set(index, measure);
           add = false;
         } else {
           throw new SonarException("Can not add twice the same measure on " + resource + ": " + measure);
@@ -97,8 +113,48 @@ public final class Bucket {
     }
   }
 
+  /**
+   * Removes from memory the measures which can be stored in columns.
+   *
+   * @return the removed measures
+   * @see MeasureColumns#accept(Measure)
+   */
+  List<Measure> removeCompactableMeasures() {
+    List<Measure> result = Lists.newArrayList();
+    Iterator<Measure> it = measuresByMetric.values().iterator();
+    while (it.hasNext()) {
+      Measure measure = it.next();
+      if (MeasureColumns.accept(measure)) {
+        result.add(measure);
+        it.remove();
+      }
+    }
+    restoredMeasures = null;
+    return result;
+  }
+
+  void restoreMeasures(List<Measure> measures) {
+    if (restoredMeasures == null) {
+      restoredMeasures = Sets.newIdentityHashSet();
+    }
+    for (Measure measure : measures) {
+      measuresByMetric.put(measure.getMetricKey(), measure);
+      restoredMeasures.add(measure);
+    }
+  }
+
+  @CheckForNull
+  Integer getSpilledKey() {
+    return spilledKey;
+  }
+
+  void setSpilledKey(@Nullable Integer spilledKey) {
+    this.spilledKey = spilledKey;
+  }
+
   public void clear() {
     measuresByMetric = null;
+    restoredMeasures = null;
     children = null;
     if (parent != null) {
       parent.removeChild(this);
@@ -106,6 +162,10 @@ public final class Bucket {
     }
   }
 
+  /**
+   * Measures are copied into a new collection, as they can be spilled by {@link MeasureCache} while the
+   * result is being read.
+   */
   public <M> M getMeasures(final MeasuresFilter<M> filter) {
     Collection<Measure> unfiltered;
     if (filter instanceof MeasuresFilters.MetricFilter) {
@@ -113,7 +173,7 @@ public final class Bucket {
     } else {
       unfiltered = measuresByMetric.values();
     }
-    return filter.filter(unfiltered);
+    return filter.filter(Lists.newArrayList(unfiltered));
   }
 
   public boolean isExcluded() {
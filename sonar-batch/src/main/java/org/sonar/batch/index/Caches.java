@@ -24,6 +24,7 @@ import com.google.common.collect.Sets;
 import com.persistit.Exchange;
 import com.persistit.Persistit;
 import com.persistit.Volume;
+import com.persistit.encoding.ValueCoder;
 import com.persistit.exception.PersistitException;
 import com.persistit.logging.Slf4jAdapter;
 import org.apache.commons.io.FileUtils;
@@ -90,6 +91,28 @@ public class Caches implements BatchComponent, Startable {
     }
   }
 
+  /**
+   * Creates a cache which values are encoded by the given coder instead of Java serialization.
+   *
+   * @since 4.2
+   */
+  public <K extends Serializable, V extends Serializable> Cache<K, V> createCache(String cacheName, Class<V> valueClass, ValueCoder valueCoder) {
+    registerValueCoder(valueClass, valueCoder);
+    return createCache(cacheName);
+  }
+
+  /**
+   * Registers a compact encoding for the instances of the given class, whatever the cache they are stored in.
+   * Values of classes without coder are stored with Java serialization.
+   *
+   * @since 4.2
+   */
+  public Caches registerValueCoder(Class<?> valueClass, ValueCoder valueCoder) {
+    Preconditions.checkState(persistit != null, "Caches are not initialized");
+    persistit.getCoderManager().registerValueCoder(valueClass, valueCoder);
+    return this;
+  }
+
   @Override
   public void start() {
   }
@@ -25,7 +25,8 @@ public class ComponentDataCache implements BatchComponent {
   private final Cache cache;
 
   public ComponentDataCache(Caches caches) {
-    cache = caches.createCache("componentData");
+    // other implementations of Data are not guaranteed to support readString(), so they are still serialized
+    cache = caches.createCache("componentData", StringData.class, new DataValueCoder());
   }
 
   public <D extends Data> ComponentDataCache setData(String componentKey, String dataType, D data) {
@@ -19,6 +19,8 @@
  */
 package org.sonar.batch.index;
 
+import org.sonar.api.CoreProperties;
+import org.sonar.api.config.Settings;
 import org.sonar.api.database.model.Snapshot;
 import org.sonar.core.persistence.BatchSession;
 import org.sonar.core.persistence.MyBatis;
@@ -32,33 +34,40 @@ public class ComponentDataPersister implements ScanPersister {
   private final SnapshotCache snapshots;
   private final SnapshotDataDao dao;
   private final MyBatis mybatis;
+  private final int batchSize;
 
   public ComponentDataPersister(ComponentDataCache data, SnapshotCache snapshots,
-                                SnapshotDataDao dao, MyBatis mybatis) {
+                                SnapshotDataDao dao, MyBatis mybatis, Settings settings) {
     this.data = data;
     this.snapshots = snapshots;
     this.dao = dao;
     this.mybatis = mybatis;
+    int size = settings.getInt(CoreProperties.SOURCES_BATCH_SIZE);
+    this.batchSize = size > 0 ? size : BatchSession.MAX_BATCH_SIZE;
   }
 
   @Override
   public void persist() {
-    BatchSession session = mybatis.openBatchSession();
-    for (Map.Entry<String, Snapshot> componentEntry : snapshots.snapshots()) {
-      String componentKey = componentEntry.getKey();
-      Snapshot snapshot = componentEntry.getValue();
-      for (Cache.Entry<Data> dataEntry : data.entries(componentKey)) {
-        Data value = dataEntry.value();
-        if (value != null) {
-          SnapshotDataDto dto = new SnapshotDataDto();
-          dto.setSnapshotId(snapshot.getId());
-          dto.setResourceId(snapshot.getResourceId());
-          dto.setDataType(dataEntry.key());
-          dto.setData(value.writeString());
-          dao.insert(session, dto);
+    BatchSession session = mybatis.openBatchSession(batchSize);
+    try {
+      for (Map.Entry<String, Snapshot> componentEntry : snapshots.snapshots()) {
+        String componentKey = componentEntry.getKey();
+        Snapshot snapshot = componentEntry.getValue();
+        for (Cache.Entry<Data> dataEntry : data.entries(componentKey)) {
+          Data value = dataEntry.value();
+          if (value != null) {
+            SnapshotDataDto dto = new SnapshotDataDto();
+            dto.setSnapshotId(snapshot.getId());
+            dto.setResourceId(snapshot.getResourceId());
+            dto.setDataType(dataEntry.key());
+            dto.setData(value.writeString());
+            dao.insert(session, dto);
+          }
         }
       }
+      session.commit();
+    } finally {
+      MyBatis.closeQuietly(session);
     }
-    session.commit();
   }
 }
@@ -92,9 +92,10 @@ public class DefaultIndex extends SonarIndex {
   private ModuleIssues moduleIssues;
 
   private ResourceKeyMigration migration;
+  private final MeasureCache measureCache;
 
   public DefaultIndex(PersistenceManager persistence, DefaultResourceCreationLock lock, ProjectTree projectTree, MetricFinder metricFinder,
-    ScanGraph graph, DeprecatedViolations deprecatedViolations, ResourceKeyMigration migration) {
+    ScanGraph graph, DeprecatedViolations deprecatedViolations, ResourceKeyMigration migration, MeasureCache measureCache) {
     this.persistence = persistence;
     this.lock = lock;
     this.projectTree = projectTree;
@@ -102,6 +103,7 @@ public class DefaultIndex extends SonarIndex {
     this.graph = graph;
     this.deprecatedViolations = deprecatedViolations;
     this.migration = migration;
+    this.measureCache = measureCache;
   }
 
   public void start() {
@@ -152,11 +154,13 @@ public class DefaultIndex extends SonarIndex {
    * Keep only project stuff
    */
   public void clear() {
+    measureCache.log();
     Iterator<Map.Entry<Resource, Bucket>> it = buckets.entrySet().iterator();
     while (it.hasNext()) {
       Map.Entry<Resource, Bucket> entry = it.next();
       Resource resource = entry.getKey();
       if (!ResourceUtils.isSet(resource)) {
+        measureCache.remove(entry.getValue());
         entry.getValue().clear();
         it.remove();
       }
@@ -178,6 +182,7 @@ public class DefaultIndex extends SonarIndex {
   public Measure getMeasure(Resource resource, Metric metric) {
     Bucket bucket = buckets.get(resource);
     if (bucket != null) {
+      measureCache.load(bucket);
       Measure measure = bucket.getMeasures(MeasuresFilters.metric(metric));
       if (measure != null) {
         return persistence.reloadMeasure(measure);
@@ -190,6 +195,7 @@ public class DefaultIndex extends SonarIndex {
   public <M> M getMeasures(Resource resource, MeasuresFilter<M> filter) {
     Bucket bucket = buckets.get(resource);
     if (bucket != null) {
+      measureCache.load(bucket);
       // TODO the data measures which are not kept in memory are not reloaded yet. Use getMeasure().
       return bucket.getMeasures(filter);
     }
@@ -208,6 +214,7 @@ public class DefaultIndex extends SonarIndex {
         throw new SonarException("Unknown metric: " + measure.getMetricKey());
       }
       measure.setMetric(metric);
+      measureCache.load(bucket);
       bucket.addMeasure(measure);
 
       if (measure.getPersistenceMode().useDatabase()) {
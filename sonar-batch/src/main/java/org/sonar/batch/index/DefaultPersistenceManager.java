@@ -38,16 +38,18 @@ public final class DefaultPersistenceManager implements PersistenceManager {
   private DependencyPersister dependencyPersister;
   private LinkPersister linkPersister;
   private EventPersister eventPersister;
+  private MeasureCache measureCache;
 
   public DefaultPersistenceManager(ResourcePersister resourcePersister, SourcePersister sourcePersister,
                                    MeasurePersister measurePersister, DependencyPersister dependencyPersister,
-                                   LinkPersister linkPersister, EventPersister eventPersister) {
+                                   LinkPersister linkPersister, EventPersister eventPersister, MeasureCache measureCache) {
     this.resourcePersister = resourcePersister;
     this.sourcePersister = sourcePersister;
     this.measurePersister = measurePersister;
     this.dependencyPersister = dependencyPersister;
     this.linkPersister = linkPersister;
     this.eventPersister = eventPersister;
+    this.measureCache = measureCache;
   }
 
   public void clear() {
@@ -60,7 +62,9 @@ public final class DefaultPersistenceManager implements PersistenceManager {
   }
 
   public void dump() {
+    measureCache.handOverUnsavedMeasures();
     measurePersister.dump();
+    sourcePersister.flush();
   }
 
   public void saveProject(Project project, Project parent) {
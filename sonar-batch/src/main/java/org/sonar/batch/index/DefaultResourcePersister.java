@@ -20,6 +20,7 @@
 package org.sonar.batch.index;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.database.DatabaseSession;
@@ -41,10 +42,12 @@ import org.sonar.api.utils.SonarException;
 import javax.persistence.NonUniqueResultException;
 import javax.persistence.Query;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public final class DefaultResourcePersister implements ResourcePersister {
 
@@ -59,6 +62,9 @@ public final class DefaultResourcePersister implements ResourcePersister {
   private final ResourcePermissions permissions;
   private final SnapshotCache snapshotCache;
   private final ResourceCache resourceCache;
+  // existing files and directories of the module being registered in bulk, by key. Null when bulk registration is stopped.
+  private Map<String, ResourceModel> bulkModelsByKey;
+  private Set<String> bulkDuplicatedKeys;
 
   public DefaultResourcePersister(DatabaseSession session, ResourcePermissions permissions, SnapshotCache snapshotCache, ResourceCache resourceCache) {
     this.session = session;
@@ -232,19 +238,98 @@ public final class DefaultResourcePersister implements ResourcePersister {
   private Snapshot persistFileOrDirectory(Project project, Resource resource, Resource parentReference) {
     Snapshot moduleSnapshot = snapshotsByResource.get(project);
     Integer moduleId = moduleSnapshot.getResourceId();
-    ResourceModel model = findOrCreateModel(resource);
-    model.setRootId(moduleId);
-    model = session.save(model);
+    ResourceModel model;
+    if (bulkModelsByKey != null) {
+      model = saveModelInBulk(resource, moduleId);
+    } else {
+      model = findOrCreateModel(resource);
+      model.setRootId(moduleId);
+      model = session.save(model);
+    }
     resource.setId(model.getId());
 
     Snapshot parentSnapshot = (Snapshot) ObjectUtils.defaultIfNull(getSnapshot(parentReference), moduleSnapshot);
     Snapshot snapshot = new Snapshot(model, parentSnapshot);
     snapshot.setBuildDate(new Date());
     snapshot = session.save(snapshot);
-    session.commit();
+    if (bulkModelsByKey == null) {
+      session.commit();
+    }
     return snapshot;
   }
 
+  public void startBulkRegistration(Project module) {
+    bulkModelsByKey = Maps.newHashMap();
+    bulkDuplicatedKeys = Sets.newHashSet();
+    // files and directories reference their module as root, sub-modules reference the root project.
+    // Keys of files and directories are prefixed by the key of their module.
+    Query query = session.createQuery("from " + ResourceModel.class.getSimpleName()
+      + " r WHERE r.rootId=:rootId AND r.scope<>:scope AND r.key LIKE :key ESCAPE '/'");
+    query.setParameter("rootId", getSnapshotOrFail(module).getResourceId());
+    query.setParameter(SCOPE, Scopes.PROJECT);
+    query.setParameter("key", likePrefix(module.getKey() + ":"));
+    List<ResourceModel> models = query.getResultList();
+    for (ResourceModel model : models) {
+      if (bulkModelsByKey.put(model.getKey(), model) != null) {
+        // fails only if the resource is registered, as when resources are loaded one by one
+        bulkDuplicatedKeys.add(model.getKey());
+      }
+    }
+  }
+
+  public void stopBulkRegistration() {
+    bulkModelsByKey = null;
+    bulkDuplicatedKeys = null;
+    session.commit();
+  }
+
+  /**
+   * just for unit tests
+   */
+  Map<String, ResourceModel> getBulkModelsByKey() {
+    return bulkModelsByKey;
+  }
+
+  static String likePrefix(String prefix) {
+    String escaped = StringUtils.replace(prefix, "/", "//");
+    escaped = StringUtils.replace(escaped, "%", "/%");
+    escaped = StringUtils.replace(escaped, "_", "/_");
+    return escaped + "%";
+  }
+
+  /**
+   * Existing resources are updated only if they changed. As the session is cleared when committed, they can be detached.
+   */
+  private ResourceModel saveModelInBulk(Resource resource, Integer moduleId) {
+    if (bulkDuplicatedKeys.contains(resource.getEffectiveKey())) {
+      throw new SonarException("The resource '" + resource.getEffectiveKey() + "' is duplicated in database.");
+    }
+    ResourceModel model = bulkModelsByKey.remove(resource.getEffectiveKey());
+    if (model == null) {
+      if (StringUtils.isBlank(resource.getEffectiveKey())) {
+        throw new SonarException("Unable to persist resource " + resource.toString() + ". Resource effective key is blank. This may be caused by an outdated plugin.");
+      }
+      model = createModel(resource);
+      model.setRootId(moduleId);
+      return session.save(model);
+    }
+    List<Object> before = columns(model);
+    mergeModel(model, resource);
+    model.setRootId(moduleId);
+    if (!before.equals(columns(model))) {
+      model = (ResourceModel) session.merge(model);
+    }
+    return model;
+  }
+
+  /**
+   * Columns of files and directories that can be changed by {@link #mergeModel(ResourceModel, Resource)}. Values can be null.
+   */
+  private static List<Object> columns(ResourceModel model) {
+    return Arrays.<Object>asList(model.getKey(), model.getDeprecatedKey(), model.getEnabled(), model.getRootId(), model.getName(),
+      model.getLongName(), model.getDescription(), model.getPath(), model.getScope(), model.getQualifier(), model.getLanguageKey());
+  }
+
   public Snapshot getLastSnapshot(Snapshot snapshot, boolean onlyOlder) {
     String hql = "SELECT s FROM " + Snapshot.class.getSimpleName() + " s WHERE s.last=:last AND s.resourceId=:resourceId";
     if (onlyOlder) {
@@ -0,0 +1,172 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.index;
+
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.BatchComponent;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.config.Settings;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.Scopes;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps in memory the measures of the last accessed files only. Measures of the other files are
+ * moved to a {@link Cache} in columns (see {@link MeasureColumns}) and are reloaded when the file is accessed again.
+ * Disabled when {@link CoreProperties#MEASURES_MAX_FILES_IN_MEMORY} is lower than 1.
+ * <p/>
+ * In delayed mode, the spilled measures which wait to be saved are removed from {@link MeasurePersister}, so that
+ * no reference is kept in memory. They are given back to the persister when they are reloaded or when
+ * {@link #handOverUnsavedMeasures()} is called before dump.
+ *
+ * @since 4.2
+ */
+public class MeasureCache implements BatchComponent {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MeasureCache.class);
+
+  private final Cache<Integer, MeasureColumns> cache;
+  private final int maxFilesInMemory;
+  private final Map<String, Metric> metricsByKey = Maps.newHashMap();
+  private final Map<Bucket, Boolean> filesInMemory;
+  private final MeasurePersister persister;
+  // resources of the spilled measures which wait to be saved, by key in cache
+  private final Map<Integer, Resource> unsavedResourcesByKey = Maps.newHashMap();
+  private int nextKey = 0;
+  private long spills = 0;
+  private long restores = 0;
+
+  public MeasureCache(Caches caches, Settings settings, MeasurePersister persister) {
+    this.persister = persister;
+    this.cache = caches.createCache("measures");
+    this.maxFilesInMemory = settings.getInt(CoreProperties.MEASURES_MAX_FILES_IN_MEMORY);
+    // access-ordered, so that the least recently used file is spilled first
+    this.filesInMemory = new LinkedHashMap<Bucket, Boolean>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Bucket, Boolean> eldest) {
+        if (size() > maxFilesInMemory) {
+          spill(eldest.getKey());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  public boolean isEnabled() {
+    return maxFilesInMemory > 0;
+  }
+
+  /**
+   * Must be called before reading or writing the measures of the bucket.
+   */
+  public void load(Bucket bucket) {
+    if (isEnabled() && Scopes.isFile(bucket.getResource())) {
+      if (bucket.getSpilledKey() != null) {
+        restore(bucket);
+      }
+      filesInMemory.put(bucket, Boolean.TRUE);
+    }
+  }
+
+  private void spill(Bucket bucket) {
+    List<Measure> measures = bucket.removeCompactableMeasures();
+    if (!measures.isEmpty()) {
+      boolean[] unsaved = new boolean[measures.size()];
+      for (int row = 0; row < measures.size(); row++) {
+        Measure measure = measures.get(row);
+        metricsByKey.put(measure.getMetricKey(), measure.getMetric());
+        unsaved[row] = persister.removeUnsavedMeasure(bucket.getResource(), measure);
+      }
+      Integer key = nextKey++;
+      MeasureColumns columns = MeasureColumns.of(measures, unsaved);
+      cache.put(key, columns);
+      if (columns.hasUnsaved()) {
+        unsavedResourcesByKey.put(key, bucket.getResource());
+      }
+      bucket.setSpilledKey(key);
+      spills++;
+    }
+  }
+
+  private void restore(Bucket bucket) {
+    Integer key = bucket.getSpilledKey();
+    MeasureColumns columns = cache.get(key);
+    cache.remove(key);
+    unsavedResourcesByKey.remove(key);
+    bucket.setSpilledKey(null);
+    List<Measure> measures = columns.toMeasures(metricsByKey);
+    bucket.restoreMeasures(measures);
+    handOverUnsavedMeasures(bucket.getResource(), columns, measures);
+    restores++;
+  }
+
+  /**
+   * Gives back to {@link MeasurePersister} the spilled measures which wait to be saved. They stay spilled,
+   * so the copies loaded in memory are released after dump.
+   */
+  public void handOverUnsavedMeasures() {
+    for (Map.Entry<Integer, Resource> entry : unsavedResourcesByKey.entrySet()) {
+      MeasureColumns columns = cache.get(entry.getKey());
+      handOverUnsavedMeasures(entry.getValue(), columns, columns.toMeasures(metricsByKey));
+      columns.clearUnsaved();
+      cache.put(entry.getKey(), columns);
+    }
+    unsavedResourcesByKey.clear();
+  }
+
+  private void handOverUnsavedMeasures(Resource resource, MeasureColumns columns, List<Measure> measures) {
+    if (columns.hasUnsaved()) {
+      for (int row = 0; row < measures.size(); row++) {
+        if (columns.isUnsaved(row)) {
+          persister.addUnsavedMeasure(resource, measures.get(row));
+        }
+      }
+    }
+  }
+
+  /**
+   * Forgets the measures of the given bucket, which is removed from index.
+   */
+  public void remove(Bucket bucket) {
+    if (isEnabled()) {
+      filesInMemory.remove(bucket);
+      Integer key = bucket.getSpilledKey();
+      if (key != null) {
+        cache.remove(key);
+        unsavedResourcesByKey.remove(key);
+        bucket.setSpilledKey(null);
+      }
+    }
+  }
+
+  public void log() {
+    if (isEnabled()) {
+      LOG.debug("Measures of files spilled {} times and reloaded {} times", spills, restores);
+    }
+  }
+}
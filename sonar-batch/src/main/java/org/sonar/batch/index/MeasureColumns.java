@@ -0,0 +1,189 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.index;
+
+import com.google.common.collect.Lists;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.measures.PersistenceMode;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures of a resource stored in primitive columns, one row per measure. Only the plain measures
+ * accepted by {@link #accept(Measure)} can be stored.
+ *
+ * @since 4.2
+ */
+final class MeasureColumns implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Values are restored with {@link Measure#setValue(Double, int)}, which rounds them.
+   */
+  private static final int VALUE_PRECISION = 10;
+  private static final int VARIATIONS = 5;
+  private static final long NO_ID = -1L;
+  private static final PersistenceMode[] PERSISTENCE_MODES = PersistenceMode.values();
+
+  private final String[] metricKeys;
+  // NaN when the measure has no value, as measure values can not be NaN
+  private final double[] values;
+  private final long[] ids;
+  private final byte[] persistenceModes;
+  // allocated only if at least one measure has variations or data
+  private double[] variations;
+  private String[] data;
+  // allocated only if at least one measure waits to be saved by MeasurePersister
+  private boolean[] unsaved;
+
+  private MeasureColumns(int size) {
+    metricKeys = new String[size];
+    values = new double[size];
+    ids = new long[size];
+    persistenceModes = new byte[size];
+  }
+
+  /**
+   * Measures with rule, characteristic, requirement, person, date, alert, tendency, description or url
+   * are not supported.
+   */
+  static boolean accept(Measure measure) {
+    return measure.getClass() == Measure.class
+      && measure.getMetric() != null
+      && measure.getCharacteristic() == null
+      && measure.getRequirement() == null
+      && measure.getPersonId() == null
+      && measure.getDate() == null
+      && measure.getAlertStatus() == null
+      && measure.getAlertText() == null
+      && measure.getTendency() == null
+      && measure.getDescription() == null
+      && measure.getUrl() == null
+      && hasRestorableValue(measure);
+  }
+
+  private static boolean hasRestorableValue(Measure measure) {
+    Double value = measure.getValue();
+    return value == null || BigDecimal.valueOf(value).scale() <= VALUE_PRECISION;
+  }
+
+  static MeasureColumns of(List<Measure> measures) {
+    MeasureColumns columns = new MeasureColumns(measures.size());
+    for (int row = 0; row < measures.size(); row++) {
+      columns.set(row, measures.get(row));
+    }
+    return columns;
+  }
+
+  /**
+   * @param unsaved flags of the measures which wait to be saved, in the same order than measures
+   */
+  static MeasureColumns of(List<Measure> measures, boolean[] unsaved) {
+    MeasureColumns columns = of(measures);
+    for (boolean flag : unsaved) {
+      if (flag) {
+        columns.unsaved = unsaved;
+        break;
+      }
+    }
+    return columns;
+  }
+
+  boolean hasUnsaved() {
+    return unsaved != null;
+  }
+
+  boolean isUnsaved(int row) {
+    return unsaved != null && unsaved[row];
+  }
+
+  void clearUnsaved() {
+    unsaved = null;
+  }
+
+  private void set(int row, Measure measure) {
+    metricKeys[row] = measure.getMetricKey();
+    Double value = measure.getValue();
+    values[row] = value == null ? Double.NaN : value;
+    Long id = measure.getId();
+    ids[row] = id == null ? NO_ID : id;
+    persistenceModes[row] = (byte) measure.getPersistenceMode().ordinal();
+    for (int index = 1; index <= VARIATIONS; index++) {
+      Double variation = measure.getVariation(index);
+      if (variation != null) {
+        if (variations == null) {
+          variations = new double[VARIATIONS * values.length];
+          Arrays.fill(variations, Double.NaN);
+        }
+        variations[row * VARIATIONS + index - 1] = variation;
+      }
+    }
+    if (measure.getData() != null) {
+      if (data == null) {
+        data = new String[values.length];
+      }
+      data[row] = measure.getData();
+    }
+  }
+
+  int size() {
+    return metricKeys.length;
+  }
+
+  /**
+   * @param metricsByKey metrics of the stored measures
+   */
+  List<Measure> toMeasures(Map<String, Metric> metricsByKey) {
+    List<Measure> measures = Lists.newArrayListWithCapacity(size());
+    for (int row = 0; row < size(); row++) {
+      measures.add(get(row, metricsByKey.get(metricKeys[row])));
+    }
+    return measures;
+  }
+
+  private Measure get(int row, Metric metric) {
+    Measure measure = new Measure(metric);
+    if (!Double.isNaN(values[row])) {
+      measure.setValue(values[row], VALUE_PRECISION);
+    }
+    if (ids[row] != NO_ID) {
+      measure.setId(ids[row]);
+    }
+    measure.setPersistenceMode(PERSISTENCE_MODES[persistenceModes[row]]);
+    if (variations != null) {
+      for (int index = 1; index <= VARIATIONS; index++) {
+        double variation = variations[row * VARIATIONS + index - 1];
+        if (!Double.isNaN(variation)) {
+          measure.setVariation(index, variation);
+        }
+      }
+    }
+    if (data != null && data[row] != null) {
+      measure.setData(data[row]);
+    }
+    return measure;
+  }
+}
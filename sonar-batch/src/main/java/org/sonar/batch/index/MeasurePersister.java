@@ -23,8 +23,12 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.config.Settings;
 import org.sonar.api.database.model.MeasureMapper;
 import org.sonar.api.database.model.MeasureModel;
 import org.sonar.api.database.model.Snapshot;
@@ -37,11 +41,14 @@ import org.sonar.api.rules.RuleFinder;
 import org.sonar.api.technicaldebt.batch.Characteristic;
 import org.sonar.api.technicaldebt.batch.Requirement;
 import org.sonar.api.utils.SonarException;
+import org.sonar.core.persistence.BatchSession;
 import org.sonar.core.persistence.MyBatis;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public final class MeasurePersister {
   private final MyBatis mybatis;
@@ -49,13 +56,16 @@ public final class MeasurePersister {
   private final RuleFinder ruleFinder;
   private final MemoryOptimizer memoryOptimizer;
   private final SetMultimap<Resource, Measure> unsavedMeasuresByResource = LinkedHashMultimap.create();
+  private final int batchSize;
   private boolean delayedMode = false;
 
-  public MeasurePersister(MyBatis mybatis, ResourcePersister resourcePersister, RuleFinder ruleFinder, MemoryOptimizer memoryOptimizer) {
+  public MeasurePersister(MyBatis mybatis, ResourcePersister resourcePersister, RuleFinder ruleFinder, MemoryOptimizer memoryOptimizer, Settings settings) {
     this.mybatis = mybatis;
     this.resourcePersister = resourcePersister;
     this.ruleFinder = ruleFinder;
     this.memoryOptimizer = memoryOptimizer;
+    int size = settings.getInt(CoreProperties.MEASURES_BATCH_SIZE);
+    this.batchSize = size > 0 ? size : BatchSession.MAX_BATCH_SIZE;
   }
 
   public void setDelayedMode(boolean delayedMode) {
@@ -74,6 +84,8 @@ public final class MeasurePersister {
 
   public void saveMeasure(Resource resource, Measure measure) {
     if (shouldSaveLater(measure)) {
+      // replaces an equal measure, for example a copy reloaded by MeasureCache
+      unsavedMeasuresByResource.remove(resource, measure);
       unsavedMeasuresByResource.put(resource, measure);
       return;
     }
@@ -89,6 +101,27 @@ public final class MeasurePersister {
     }
   }
 
+  /**
+   * @return true if the measure was waiting to be saved in delayed mode
+   * @see MeasureCache
+   */
+  boolean removeUnsavedMeasure(Resource resource, Measure measure) {
+    return unsavedMeasuresByResource.remove(resource, measure);
+  }
+
+  @VisibleForTesting
+  Set<Measure> getUnsavedMeasures(Resource resource) {
+    return Sets.newLinkedHashSet(unsavedMeasuresByResource.get(resource));
+  }
+
+  /**
+   * @see MeasureCache
+   */
+  void addUnsavedMeasure(Resource resource, Measure measure) {
+    unsavedMeasuresByResource.remove(resource, measure);
+    unsavedMeasuresByResource.put(resource, measure);
+  }
+
   private MeasureModel insertOrUpdate(Resource resource, Measure measure) {
     Snapshot snapshot = resourcePersister.getSnapshotOrFail(resource);
     if (measure.getId() != null) {
@@ -183,26 +216,67 @@ public final class MeasurePersister {
     return model;
   }
 
-  private void insert(Iterable<MeasureModelAndDetails> values) {
+  /**
+   * Measures are inserted in JDBC batches of {@link CoreProperties#MEASURES_BATCH_SIZE} rows. Measures with large data
+   * are still inserted one by one because the generated id is required to insert the data. All the measures are committed
+   * together.
+   */
+  private void insert(List<MeasureModelAndDetails> values) {
     SqlSession session = mybatis.openSession();
     try {
-      MeasureMapper mapper = session.getMapper(MeasureMapper.class);
+      // The batch executor shares the connection, and so the transaction, of the session. It's not closed because it would
+      // close the connection, but its statements are closed when flushed. BatchSession is not used because it commits
+      // every batchSize statements.
+      SqlSession batchSession = mybatis.getSessionFactory().openSession(ExecutorType.BATCH, session.getConnection());
+      try {
+        insert(session, batchSession, values);
+      } catch (RuntimeException e) {
+        session.rollback(true);
+        // The failing row can't be identified from the JDBC batch, so the measures are replayed to report it (SONAR-4066)
+        LoggerFactory.getLogger(getClass()).warn("Fail to insert measures by JDBC batches", e);
+        insertOneByOne(session, values);
+        // the batch failed although each measure can be inserted
+        throw e;
+      }
+      session.commit(true);
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
 
-      for (MeasureModelAndDetails value : values) {
-        try {
-          mapper.insert(value.getMeasureModel());
-          if (value.getMeasureModel().getMeasureData() != null) {
-            mapper.insertData(value.getMeasureModel().getMeasureData());
-          }
-        } catch (Exception e) {
-          // SONAR-4066
-          throw new SonarException(String.format("Unable to save measure for metric [%s] on resource [%s]", value.getMetricKey(), value.getResourceKey()), e);
+  private void insert(SqlSession session, SqlSession batchSession, List<MeasureModelAndDetails> values) {
+    MeasureMapper batchMapper = batchSession.getMapper(MeasureMapper.class);
+    int pendingStatements = 0;
+    for (MeasureModelAndDetails value : values) {
+      if (value.getMeasureModel().getMeasureData() != null) {
+        // keep order of insertions
+        batchSession.flushStatements();
+        pendingStatements = 0;
+        insertOneByOne(session, Collections.singletonList(value));
+      } else {
+        batchMapper.batchInsert(value.getMeasureModel());
+        pendingStatements++;
+        if (pendingStatements >= batchSize) {
+          batchSession.flushStatements();
+          pendingStatements = 0;
         }
       }
+    }
+    batchSession.flushStatements();
+  }
 
-      session.commit();
-    } finally {
-      MyBatis.closeQuietly(session);
+  private void insertOneByOne(SqlSession session, List<MeasureModelAndDetails> values) {
+    MeasureMapper mapper = session.getMapper(MeasureMapper.class);
+    for (MeasureModelAndDetails value : values) {
+      try {
+        mapper.insert(value.getMeasureModel());
+        if (value.getMeasureModel().getMeasureData() != null) {
+          mapper.insertData(value.getMeasureModel().getMeasureData());
+        }
+      } catch (Exception e) {
+        // SONAR-4066
+        throw new SonarException(String.format("Unable to save measure for metric [%s] on resource [%s]", value.getMetricKey(), value.getResourceKey()), e);
+      }
     }
   }
 
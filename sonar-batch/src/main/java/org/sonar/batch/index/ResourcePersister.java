@@ -51,4 +51,16 @@ public interface ResourcePersister {
   Snapshot getLastSnapshot(Snapshot snapshot, boolean onlyOlder);
 
   void clear();
+
+  /**
+   * Files and directories of the module saved until {@link #stopBulkRegistration()} are looked up among the existing resources
+   * of the module, which are loaded at once, and are committed together.
+   * @since 4.2
+   */
+  void startBulkRegistration(Project module);
+
+  /**
+   * @since 4.2
+   */
+  void stopBulkRegistration();
 }
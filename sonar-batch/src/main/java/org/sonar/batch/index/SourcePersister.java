@@ -19,24 +19,39 @@
  */
 package org.sonar.batch.index;
 
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import org.sonar.api.database.DatabaseSession;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.config.Settings;
 import org.sonar.api.database.model.Snapshot;
-import org.sonar.api.database.model.SnapshotSource;
 import org.sonar.api.resources.DuplicatedSourceException;
 import org.sonar.api.resources.Resource;
+import org.sonar.core.persistence.BatchSession;
+import org.sonar.core.persistence.MyBatis;
+import org.sonar.core.source.db.SnapshotSourceDao;
+import org.sonar.core.source.db.SnapshotSourceDto;
 
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * Sources are kept in memory and inserted in JDBC batches of {@link CoreProperties#SOURCES_BATCH_SIZE} rows.
+ */
 public final class SourcePersister {
 
-  private DatabaseSession session;
-  private Set<Integer> savedSnapshotIds = Sets.newHashSet();
-  private ResourcePersister resourcePersister;
+  private final Set<Integer> savedSnapshotIds = Sets.newHashSet();
+  private final Map<Integer, String> unsavedSourcesBySnapshotId = Maps.newLinkedHashMap();
+  private final ResourcePersister resourcePersister;
+  private final SnapshotSourceDao dao;
+  private final MyBatis mybatis;
+  private final int batchSize;
 
-  public SourcePersister(DatabaseSession session, ResourcePersister resourcePersister) {
-    this.session = session;
+  public SourcePersister(ResourcePersister resourcePersister, SnapshotSourceDao dao, MyBatis mybatis, Settings settings) {
     this.resourcePersister = resourcePersister;
+    this.dao = dao;
+    this.mybatis = mybatis;
+    int size = settings.getInt(CoreProperties.SOURCES_BATCH_SIZE);
+    this.batchSize = size > 0 ? size : BatchSession.MAX_BATCH_SIZE;
   }
 
   public void saveSource(Resource resource, String source) {
@@ -44,18 +59,39 @@ public final class SourcePersister {
     if (isCached(snapshot)) {
       throw new DuplicatedSourceException(resource);
     }
-    session.save(new SnapshotSource(snapshot.getId(), source));
-    session.commit();
+    unsavedSourcesBySnapshotId.put(snapshot.getId(), source);
     addToCache(snapshot);
+    if (unsavedSourcesBySnapshotId.size() >= batchSize) {
+      flush();
+    }
   }
 
   public String getSource(Resource resource) {
-    SnapshotSource source = null;
     Snapshot snapshot = resourcePersister.getSnapshot(resource);
-    if (snapshot!=null && snapshot.getId()!=null) {
-      source = session.getSingleResult(SnapshotSource.class, "snapshotId", snapshot.getId());
+    if (snapshot != null && snapshot.getId() != null) {
+      String unsavedSource = unsavedSourcesBySnapshotId.get(snapshot.getId());
+      return unsavedSource != null ? unsavedSource : dao.selectSnapshotSource(snapshot.getId());
+    }
+    return null;
+  }
+
+  /**
+   * Inserts the sources which are still in memory.
+   */
+  public void flush() {
+    if (unsavedSourcesBySnapshotId.isEmpty()) {
+      return;
+    }
+    BatchSession session = mybatis.openBatchSession(batchSize);
+    try {
+      for (Map.Entry<Integer, String> entry : unsavedSourcesBySnapshotId.entrySet()) {
+        dao.insert(session, new SnapshotSourceDto().setSnapshotId(entry.getKey()).setData(entry.getValue()));
+      }
+      session.commit();
+    } finally {
+      MyBatis.closeQuietly(session);
     }
-    return source!=null ? source.getData() : null;
+    unsavedSourcesBySnapshotId.clear();
   }
 
   private boolean isCached(Snapshot snapshot) {
@@ -67,6 +103,7 @@ public final class SourcePersister {
   }
 
   public void clear() {
+    flush();
     savedSnapshotIds.clear();
   }
 }
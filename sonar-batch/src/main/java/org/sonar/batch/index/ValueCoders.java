@@ -0,0 +1,92 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.index;
+
+import com.persistit.Value;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.util.Date;
+
+/**
+ * Helpers for the implementations of {@link com.persistit.encoding.ValueCoder} that write
+ * fields one after the other in the {@link Value} stream. Fields must be read in the order
+ * they have been written.
+ *
+ * @since 4.2
+ */
+public final class ValueCoders {
+
+  private static final long NULL_DATE = Long.MIN_VALUE;
+
+  private ValueCoders() {
+    // only static methods
+  }
+
+  public static void putString(Value value, @Nullable String s) {
+    value.put((Object) s);
+  }
+
+  @CheckForNull
+  public static String getString(Value value) {
+    return (String) value.get();
+  }
+
+  public static void putInteger(Value value, @Nullable Integer i) {
+    value.put((Object) i);
+  }
+
+  @CheckForNull
+  public static Integer getInteger(Value value) {
+    return (Integer) value.get();
+  }
+
+  public static void putLong(Value value, @Nullable Long l) {
+    value.put((Object) l);
+  }
+
+  @CheckForNull
+  public static Long getLong(Value value) {
+    return (Long) value.get();
+  }
+
+  public static void putDouble(Value value, @Nullable Double d) {
+    value.put((Object) d);
+  }
+
+  @CheckForNull
+  public static Double getDouble(Value value) {
+    return (Double) value.get();
+  }
+
+  /**
+   * Dates are stored as a single long, without the overhead of an object.
+   */
+  public static void putDate(Value value, @Nullable Date d) {
+    value.put(d == null ? NULL_DATE : d.getTime());
+  }
+
+  @CheckForNull
+  public static Date getDate(Value value) {
+    long time = value.getLong();
+    return time == NULL_DATE ? null : new Date(time);
+  }
+}
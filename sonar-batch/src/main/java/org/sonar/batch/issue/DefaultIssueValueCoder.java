@@ -0,0 +1,244 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.issue;
+
+import com.persistit.Value;
+import com.persistit.encoding.CoderContext;
+import com.persistit.encoding.ValueCoder;
+import org.sonar.api.issue.IssueComment;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.issue.internal.DefaultIssueComment;
+import org.sonar.api.issue.internal.FieldDiffs;
+import org.sonar.api.issue.internal.WorkDayDuration;
+import org.sonar.api.rule.RuleKey;
+
+import javax.annotation.Nullable;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.collect.Lists.newArrayListWithCapacity;
+import static org.sonar.batch.index.ValueCoders.*;
+
+/**
+ * Compact encoding of {@link DefaultIssue} in {@link IssueCache}. It replaces Java serialization, which
+ * is the main CPU cost of issue tracking on large projects.
+ * <p/>
+ * Fields are written in a fixed order, so any change in this order makes the values previously
+ * stored unreadable. That's not a problem as caches are not shared between executions.
+ *
+ * @since 4.2
+ */
+class DefaultIssueValueCoder implements ValueCoder {
+
+  private static final int NO_CHANGE = -1;
+  private static final int DETACHED_CHANGE = -2;
+
+  @Override
+  public void put(Value value, Object object, CoderContext context) {
+    DefaultIssue issue = (DefaultIssue) object;
+    putString(value, issue.key());
+    putString(value, issue.componentKey());
+    putString(value, issue.projectKey());
+    RuleKey ruleKey = issue.ruleKey();
+    putString(value, ruleKey != null ? ruleKey.repository() : null);
+    putString(value, ruleKey != null ? ruleKey.rule() : null);
+    putString(value, issue.severity());
+    value.put(issue.manualSeverity());
+    putString(value, issue.message());
+    putInteger(value, issue.line());
+    putDouble(value, issue.effortToFix());
+    WorkDayDuration technicalDebt = issue.technicalDebt();
+    putLong(value, technicalDebt != null ? technicalDebt.toLong() : null);
+    putString(value, issue.status());
+    putString(value, issue.resolution());
+    putString(value, issue.reporter());
+    putString(value, issue.assignee());
+    putString(value, issue.checksum());
+    putString(value, issue.authorLogin());
+    putString(value, issue.actionPlanKey());
+    putDate(value, issue.creationDate());
+    putDate(value, issue.updateDate());
+    putDate(value, issue.closeDate());
+    putDate(value, issue.selectedAt());
+    value.put(issue.isNew());
+    value.put(issue.isEndOfLife());
+    value.put(issue.isOnDisabledRule());
+    value.put(issue.isChanged());
+    value.put(issue.mustSendNotifications());
+    putAttributes(value, issue.attributes());
+    putComments(value, issue.comments());
+    putChanges(value, issue.changes(), issue.currentChange());
+  }
+
+  @Override
+  public Object get(Value value, Class clazz, CoderContext context) {
+    DefaultIssue issue = new DefaultIssue();
+    value.registerEncodedObject(issue);
+    issue.setKey(getString(value));
+    issue.setComponentKey(getString(value));
+    issue.setProjectKey(getString(value));
+    String repository = getString(value);
+    String rule = getString(value);
+    if (repository != null && rule != null) {
+      issue.setRuleKey(RuleKey.of(repository, rule));
+    }
+    issue.setSeverity(getString(value));
+    issue.setManualSeverity(value.getBoolean());
+    issue.setMessage(getString(value));
+    issue.setLine(getInteger(value));
+    issue.setEffortToFix(getDouble(value));
+    Long technicalDebt = getLong(value);
+    issue.setTechnicalDebt(technicalDebt != null ? WorkDayDuration.fromLong(technicalDebt) : null);
+    String status = getString(value);
+    if (status != null) {
+      issue.setStatus(status);
+    }
+    issue.setResolution(getString(value));
+    issue.setReporter(getString(value));
+    issue.setAssignee(getString(value));
+    issue.setChecksum(getString(value));
+    issue.setAuthorLogin(getString(value));
+    issue.setActionPlanKey(getString(value));
+    issue.setCreationDate(getDate(value));
+    issue.setUpdateDate(getDate(value));
+    issue.setCloseDate(getDate(value));
+    issue.setSelectedAt(getDate(value));
+    issue.setNew(value.getBoolean());
+    issue.setEndOfLife(value.getBoolean());
+    issue.setOnDisabledRule(value.getBoolean());
+    issue.setChanged(value.getBoolean());
+    issue.setSendNotifications(value.getBoolean());
+    getAttributes(value, issue);
+    getComments(value, issue);
+    getChanges(value, issue);
+    return issue;
+  }
+
+  private static void putAttributes(Value value, Map<String, String> attributes) {
+    value.put(attributes.size());
+    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+      putString(value, attribute.getKey());
+      putString(value, attribute.getValue());
+    }
+  }
+
+  private static void getAttributes(Value value, DefaultIssue issue) {
+    int size = value.getInt();
+    for (int i = 0; i < size; i++) {
+      issue.setAttribute(getString(value), getString(value));
+    }
+  }
+
+  private static void putComments(Value value, List<IssueComment> comments) {
+    value.put(comments.size());
+    for (IssueComment comment : comments) {
+      DefaultIssueComment defaultComment = (DefaultIssueComment) comment;
+      putString(value, defaultComment.key());
+      putString(value, defaultComment.issueKey());
+      putString(value, defaultComment.userLogin());
+      putString(value, defaultComment.markdownText());
+      putDate(value, defaultComment.createdAt());
+      putDate(value, defaultComment.updatedAt());
+      value.put(defaultComment.isNew());
+    }
+  }
+
+  private static void getComments(Value value, DefaultIssue issue) {
+    int size = value.getInt();
+    for (int i = 0; i < size; i++) {
+      DefaultIssueComment comment = new DefaultIssueComment()
+        .setKey(getString(value))
+        .setIssueKey(getString(value))
+        .setUserLogin(getString(value))
+        .setMarkdownText(getString(value))
+        .setCreatedAt(getDate(value))
+        .setUpdatedAt(getDate(value))
+        .setNew(value.getBoolean());
+      issue.addComment(comment);
+    }
+  }
+
+  /**
+   * The current change is generally one of the changes. Its index is stored to keep
+   * the same instance once loaded.
+   */
+  private static void putChanges(Value value, List<FieldDiffs> changes, @Nullable FieldDiffs currentChange) {
+    value.put(changes.size());
+    int currentChangeIndex = currentChange == null ? NO_CHANGE : DETACHED_CHANGE;
+    for (int i = 0; i < changes.size(); i++) {
+      FieldDiffs change = changes.get(i);
+      if (change == currentChange) {
+        currentChangeIndex = i;
+      }
+      putFieldDiffs(value, change);
+    }
+    value.put(currentChangeIndex);
+    if (currentChangeIndex == DETACHED_CHANGE) {
+      putFieldDiffs(value, currentChange);
+    }
+  }
+
+  private static void getChanges(Value value, DefaultIssue issue) {
+    int size = value.getInt();
+    List<FieldDiffs> changes = newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      changes.add(getFieldDiffs(value));
+    }
+    if (size > 0) {
+      issue.setChanges(changes);
+    }
+    int currentChangeIndex = value.getInt();
+    if (currentChangeIndex == DETACHED_CHANGE) {
+      issue.setCurrentChange(getFieldDiffs(value));
+    } else if (currentChangeIndex != NO_CHANGE) {
+      issue.setCurrentChange(changes.get(currentChangeIndex));
+    }
+  }
+
+  private static void putFieldDiffs(Value value, FieldDiffs diffs) {
+    putString(value, diffs.issueKey());
+    putString(value, diffs.userLogin());
+    putDate(value, diffs.creationDate());
+    value.put(diffs.diffs().size());
+    for (Map.Entry<String, FieldDiffs.Diff> entry : diffs.diffs().entrySet()) {
+      putString(value, entry.getKey());
+      // values are generally strings or numbers, which are natively supported. Others are serialized.
+      value.put(entry.getValue().oldValue());
+      value.put(entry.getValue().newValue());
+    }
+  }
+
+  private static FieldDiffs getFieldDiffs(Value value) {
+    FieldDiffs diffs = new FieldDiffs()
+      .setIssueKey(getString(value))
+      .setUserLogin(getString(value))
+      .setCreationDate(getDate(value));
+    int size = value.getInt();
+    for (int i = 0; i < size; i++) {
+      String field = getString(value);
+      Serializable oldValue = (Serializable) value.get();
+      Serializable newValue = (Serializable) value.get();
+      diffs.setDiff(field, oldValue, newValue);
+    }
+    return diffs;
+  }
+}
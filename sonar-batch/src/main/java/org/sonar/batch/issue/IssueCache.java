@@ -34,7 +34,7 @@ public class IssueCache implements BatchComponent {
   private final Cache<String, DefaultIssue> cache;
 
   public IssueCache(Caches caches) {
-    cache = caches.createCache("issues");
+    cache = caches.createCache("issues", DefaultIssue.class, new DefaultIssueValueCoder());
   }
 
   public Iterable<DefaultIssue> byComponent(String componentKey) {
@@ -21,12 +21,17 @@ package org.sonar.batch.phases;
 
 import org.sonar.core.measure.MeasurementFilters;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.sonar.api.BatchComponent;
+import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.BatchExtensionDictionnary;
 import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.batch.ThreadSafe;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.utils.MessageException;
@@ -35,8 +40,17 @@ import org.sonar.batch.DecoratorsSelector;
 import org.sonar.batch.DefaultDecoratorContext;
 import org.sonar.batch.events.EventBus;
 
+import javax.annotation.Nullable;
+
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class DecoratorsExecutor implements BatchComponent {
 
@@ -45,20 +59,27 @@ public class DecoratorsExecutor implements BatchComponent {
   private EventBus eventBus;
   private Project project;
   private MeasurementFilters measurementFilters;
+  private Settings settings;
 
   public DecoratorsExecutor(BatchExtensionDictionnary batchExtDictionnary,
-      Project project, SonarIndex index, EventBus eventBus, MeasurementFilters measurementFilters) {
+      Project project, SonarIndex index, EventBus eventBus, MeasurementFilters measurementFilters, Settings settings) {
     this.decoratorsSelector = new DecoratorsSelector(batchExtDictionnary);
     this.index = index;
     this.eventBus = eventBus;
     this.project = project;
     this.measurementFilters = measurementFilters;
+    this.settings = settings;
   }
 
   public void execute() {
     Collection<Decorator> decorators = decoratorsSelector.select(project);
     eventBus.fireEvent(new DecoratorsPhaseEvent(Lists.newArrayList(decorators), true));
-    decorateResource(project, decorators, true);
+    int threads = settings.getInt(CoreProperties.DECORATOR_THREADS);
+    if (threads > 1) {
+      decorateConcurrently(project, decorators, threads);
+    } else {
+      decorateResource(project, decorators, true);
+    }
     eventBus.fireEvent(new DecoratorsPhaseEvent(Lists.newArrayList(decorators), false));
   }
 
@@ -79,11 +100,19 @@ public class DecoratorsExecutor implements BatchComponent {
     return context;
   }
 
+  void decorateConcurrently(Resource resource, Collection<Decorator> decorators, int threads) {
+    new ConcurrentDecoration(decorators, threads).execute(buildTree(resource, null, true));
+  }
+
   void executeDecorator(Decorator decorator, DefaultDecoratorContext context, Resource resource) {
+    eventBus.fireEvent(new DecoratorExecutionEvent(decorator, true));
+    decorate(decorator, context, resource);
+    eventBus.fireEvent(new DecoratorExecutionEvent(decorator, false));
+  }
+
+  private void decorate(Decorator decorator, DefaultDecoratorContext context, Resource resource) {
     try {
-      eventBus.fireEvent(new DecoratorExecutionEvent(decorator, true));
       decorator.decorate(resource, context);
-      eventBus.fireEvent(new DecoratorExecutionEvent(decorator, false));
 
     } catch (MessageException e) {
       throw e;
@@ -94,4 +123,136 @@ public class DecoratorsExecutor implements BatchComponent {
     }
   }
 
+  private Node buildTree(Resource resource, @Nullable Node parent, boolean executeDecorators) {
+    Node node = new Node(resource, parent, executeDecorators);
+    for (Resource child : index.getChildren(resource)) {
+      boolean isModule = child instanceof Project;
+      node.children.add(buildTree(child, node, !isModule));
+    }
+    node.pendingChildren.set(node.children.size());
+    return node;
+  }
+
+  private static class Node {
+    private final Resource resource;
+    private final Node parent;
+    private final boolean executeDecorators;
+    private final List<Node> children = Lists.newArrayList();
+    private final AtomicInteger pendingChildren = new AtomicInteger();
+    // set when the resource is decorated
+    private DefaultDecoratorContext context;
+
+    Node(Resource resource, @Nullable Node parent, boolean executeDecorators) {
+      this.resource = resource;
+      this.parent = parent;
+      this.executeDecorators = executeDecorators;
+    }
+  }
+
+  /**
+   * Decorates the resource tree from leaves to root. A resource is decorated as soon as all its children
+   * are decorated, so sibling subtrees are processed concurrently. Decorators which are not annotated
+   * with {@link ThreadSafe} are executed under a lock on the index, so never concurrently.
+   */
+  private class ConcurrentDecoration {
+    private final Collection<Decorator> decorators;
+    private final Set<Decorator> threadSafeDecorators = Sets.newIdentityHashSet();
+    private final ExecutorService executor;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    ConcurrentDecoration(Collection<Decorator> decorators, int threads) {
+      this.decorators = decorators;
+      for (Decorator decorator : decorators) {
+        // superclasses are ignored, the thread safety of their subclasses has to be declared
+        if (decorator.getClass().isAnnotationPresent(ThreadSafe.class)) {
+          threadSafeDecorators.add(decorator);
+        }
+      }
+      this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    void execute(Node root) {
+      try {
+        submitLeaves(root);
+        done.await();
+
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while decorating " + root.resource, e);
+
+      } finally {
+        stopExecutor();
+      }
+      if (failure.get() != null) {
+        throw Throwables.propagate(failure.get());
+      }
+    }
+
+    private void submitLeaves(Node node) {
+      if (node.children.isEmpty()) {
+        submit(node);
+      } else {
+        for (Node child : node.children) {
+          submitLeaves(child);
+        }
+      }
+    }
+
+    private void submit(final Node node) {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          if (failure.get() != null) {
+            return;
+          }
+          try {
+            decorateNode(node);
+            if (node.parent == null) {
+              done.countDown();
+            } else if (node.parent.pendingChildren.decrementAndGet() == 0) {
+              submit(node.parent);
+            }
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+            done.countDown();
+          }
+        }
+      });
+    }
+
+    private void decorateNode(Node node) {
+      List<DecoratorContext> childrenContexts = Lists.newArrayList();
+      for (Node child : node.children) {
+        childrenContexts.add(child.context.setReadOnly(true));
+      }
+      DefaultDecoratorContext context = new DefaultDecoratorContext(node.resource, index, childrenContexts, measurementFilters);
+      if (node.executeDecorators) {
+        for (Decorator decorator : decorators) {
+          if (threadSafeDecorators.contains(decorator)) {
+            decorate(decorator, context, node.resource);
+            synchronized (index) {
+              // execution time of concurrent decorators is not profiled, but listeners are still notified
+              eventBus.fireEvent(new DecoratorExecutionEvent(decorator, true));
+              eventBus.fireEvent(new DecoratorExecutionEvent(decorator, false));
+            }
+          } else {
+            synchronized (index) {
+              executeDecorator(decorator, context, node.resource);
+            }
+          }
+        }
+      }
+      node.context = context;
+    }
+
+    private void stopExecutor() {
+      executor.shutdownNow();
+      try {
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
 }
@@ -49,6 +49,7 @@ import org.sonar.batch.index.DefaultResourcePersister;
 import org.sonar.batch.index.DependencyPersister;
 import org.sonar.batch.index.EventPersister;
 import org.sonar.batch.index.LinkPersister;
+import org.sonar.batch.index.MeasureCache;
 import org.sonar.batch.index.MeasurePersister;
 import org.sonar.batch.index.MemoryOptimizer;
 import org.sonar.batch.index.ResourceCache;
@@ -143,6 +144,7 @@ public class ProjectScanContainer extends ComponentContainer {
       SnapshotCache.class,
       ResourceCache.class,
       ComponentDataCache.class,
+      MeasureCache.class,
       ComponentDataPersister.class,
       DefaultUserFinder.class,
 
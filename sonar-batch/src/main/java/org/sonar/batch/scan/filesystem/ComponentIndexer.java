@@ -37,6 +37,7 @@ import org.sonar.api.scan.filesystem.FileQuery;
 import org.sonar.api.scan.filesystem.internal.InputFile;
 import org.sonar.api.utils.SonarException;
 import org.sonar.batch.index.ResourceKeyMigration;
+import org.sonar.batch.index.ResourcePersister;
 import org.sonar.batch.scan.language.DefaultModuleLanguages;
 import org.sonar.core.resource.ResourceDao;
 import org.sonar.core.resource.ResourceDto;
@@ -55,9 +56,10 @@ public class ComponentIndexer implements BatchComponent {
   private final Project module;
   private final DefaultModuleLanguages moduleLanguages;
   private final ResourceDao resourceDao;
+  private final ResourcePersister resourcePersister;
 
   public ComponentIndexer(Project module, Languages languages, SonarIndex sonarIndex, Settings settings, ResourceKeyMigration migration,
-    DefaultModuleLanguages moduleLanguages, ResourceDao resourceDao) {
+    DefaultModuleLanguages moduleLanguages, ResourceDao resourceDao, ResourcePersister resourcePersister) {
     this.module = module;
     this.languages = languages;
     this.sonarIndex = sonarIndex;
@@ -65,12 +67,24 @@ public class ComponentIndexer implements BatchComponent {
     this.migration = migration;
     this.moduleLanguages = moduleLanguages;
     this.resourceDao = resourceDao;
+    this.resourcePersister = resourcePersister;
   }
 
   public void execute(DefaultModuleFileSystem fs) {
     boolean importSource = settings.getBoolean(CoreProperties.CORE_IMPORT_SOURCES_PROPERTY);
     Iterable<InputFile> inputFiles = fs.inputFiles(FileQuery.all());
     migration.migrateIfNeeded(module, inputFiles);
+    resourcePersister.startBulkRegistration(module);
+    try {
+      indexFiles(inputFiles, importSource);
+    } finally {
+      resourcePersister.stopBulkRegistration();
+    }
+
+    updateModuleLanguage();
+  }
+
+  private void indexFiles(Iterable<InputFile> inputFiles, boolean importSource) {
     for (InputFile inputFile : inputFiles) {
       String languageKey = inputFile.attribute(InputFile.ATTRIBUTE_LANGUAGE);
       boolean unitTest = InputFile.TYPE_TEST.equals(inputFile.attribute(InputFile.ATTRIBUTE_TYPE));
@@ -88,8 +102,6 @@ public class ComponentIndexer implements BatchComponent {
         }
       }
     }
-
-    updateModuleLanguage();
   }
 
   private void importSources(InputFile inputFile, Resource sonarFile) {
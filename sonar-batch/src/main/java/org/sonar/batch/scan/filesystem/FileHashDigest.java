@@ -23,13 +23,25 @@ import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 
-import java.io.*;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.security.MessageDigest;
 
 /**
  * Computes hash of files. Ends of Lines are ignored, so files with
  * same content but different EOL encoding have the same hash.
+ * <p/>
+ * The digest is the MD5 of the UTF-16BE representation of the text, CR and CRLF being
+ * replaced by LF. It must not change, as hashes are compared to the ones computed by
+ * previous analyses (see {@link RemoteFileHashes}).
  */
 class FileHashDigest {
 
@@ -37,6 +49,16 @@ class FileHashDigest {
   // to test the private method !
   static final FileHashDigest INSTANCE = new FileHashDigest();
 
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  // Buffers are reused between files. They are not shared between threads as files can be indexed concurrently.
+  private final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>() {
+    @Override
+    protected Buffers initialValue() {
+      return new Buffers();
+    }
+  };
+
   private FileHashDigest() {
   }
 
@@ -45,46 +67,85 @@ class FileHashDigest {
    * Maximum performance is needed.
    */
   String hash(File file, Charset charset) {
-    Reader reader = null;
+    FileInputStream input = null;
     try {
-      MessageDigest md5Digest = DigestUtils.getMd5Digest();
-      md5Digest.reset();
-      reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset));
-      int i = reader.read();
-      boolean afterCR = true;
-      while (i != -1) {
-        char c = (char) i;
-        if (afterCR) {
-          afterCR = false;
-          if (c == '\n') {
-            // Ignore
-            i = reader.read();
-            continue;
-          }
-        }
-        if (c == '\r') {
-          afterCR = true;
-          c = '\n';
-        }
-        md5Digest.update(charToBytesUTF(c));
-        i = reader.read();
-      }
-      return Hex.encodeHexString(md5Digest.digest());
+      input = new FileInputStream(file);
+      return hash(input.getChannel(), charset);
     } catch (IOException e) {
       throw new IllegalStateException(String.format("Fail to compute hash of file %s with charset %s", file.getAbsolutePath(), charset), e);
     } finally {
-      IOUtils.closeQuietly(reader);
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  private String hash(ReadableByteChannel channel, Charset charset) throws IOException {
+    Buffers buf = buffers.get();
+    buf.bytes.clear();
+    buf.chars.clear();
+    buf.afterCR = true;
+    MessageDigest md5Digest = DigestUtils.getMd5Digest();
+    md5Digest.reset();
+    // same behavior than InputStreamReader
+    CharsetDecoder decoder = charset.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    boolean endOfInput = false;
+    while (true) {
+      if (!endOfInput) {
+        endOfInput = channel.read(buf.bytes) < 0;
+      }
+      buf.bytes.flip();
+      CoderResult result = decoder.decode(buf.bytes, buf.chars, endOfInput);
+      buf.bytes.compact();
+      update(md5Digest, buf);
+      if (endOfInput && result.isUnderflow()) {
+        break;
+      }
+    }
+    while (decoder.flush(buf.chars).isOverflow()) {
+      update(md5Digest, buf);
     }
+    update(md5Digest, buf);
+    return Hex.encodeHexString(md5Digest.digest());
   }
 
-  private byte[] charToBytesUTF(char c) {
-    char[] buffer = new char[]{c};
-    byte[] b = new byte[buffer.length << 1];
-    for (int i = 0; i < buffer.length; i++) {
-      int bpos = i << 1;
-      b[bpos] = (byte) ((buffer[i] & 0xFF00) >> 8);
-      b[bpos + 1] = (byte) (buffer[i] & 0x00FF);
+  /**
+   * Digests the decoded characters, then clears the char buffer.
+   */
+  private void update(MessageDigest md5Digest, Buffers buf) {
+    char[] chars = buf.chars.array();
+    int charCount = buf.chars.position();
+    byte[] bytes = buf.digestBytes;
+    int byteCount = 0;
+    boolean afterCR = buf.afterCR;
+    for (int i = 0; i < charCount; i++) {
+      char c = chars[i];
+      if (afterCR) {
+        afterCR = false;
+        if (c == '\n') {
+          // Ignore
+          continue;
+        }
+      }
+      if (c == '\r') {
+        afterCR = true;
+        c = '\n';
+      }
+      bytes[byteCount] = (byte) (c >> 8);
+      bytes[byteCount + 1] = (byte) c;
+      byteCount += 2;
     }
-    return b;
+    buf.afterCR = afterCR;
+    md5Digest.update(bytes, 0, byteCount);
+    buf.chars.clear();
+  }
+
+  private static class Buffers {
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    // UTF-16 representation of chars
+    private final byte[] digestBytes = new byte[BUFFER_SIZE * 2];
+    private boolean afterCR;
   }
 }
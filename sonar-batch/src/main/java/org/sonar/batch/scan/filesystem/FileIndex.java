@@ -19,6 +19,8 @@
  */
 package org.sonar.batch.scan.filesystem;
 
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.FileFilterUtils;
@@ -28,6 +30,8 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.BatchComponent;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Java;
 import org.sonar.api.resources.JavaFile;
 import org.sonar.api.resources.Project;
@@ -47,6 +51,11 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Index input files into {@link InputFileCache}.
@@ -67,6 +76,20 @@ public class FileIndex implements BatchComponent {
     }
   }
 
+  private static class FileToIndex {
+    private final File sourceDir;
+    private final File file;
+    private final String type;
+    private final String path;
+
+    FileToIndex(File sourceDir, File file, String type, String path) {
+      this.sourceDir = sourceDir;
+      this.file = file;
+      this.type = type;
+      this.path = path;
+    }
+  }
+
   private static final IOFileFilter DIR_FILTER = FileFilterUtils.and(HiddenFileFilter.VISIBLE, FileFilterUtils.notFileFilter(FileFilterUtils.prefixFileFilter(".")));
   private static final IOFileFilter FILE_FILTER = HiddenFileFilter.VISIBLE;
 
@@ -76,15 +99,17 @@ public class FileIndex implements BatchComponent {
   private final InputFileCache cache;
   private final FileHashes fileHashes;
   private final Project project;
+  private final Settings settings;
 
   public FileIndex(List<InputFileFilter> filters, LanguageRecognizer languageRecognizer,
-    InputFileCache cache, FileHashes fileHashes, PathResolver pathResolver, Project project) {
+    InputFileCache cache, FileHashes fileHashes, PathResolver pathResolver, Project project, Settings settings) {
     this.filters = filters;
     this.languageRecognizer = languageRecognizer;
     this.cache = cache;
     this.fileHashes = fileHashes;
     this.pathResolver = pathResolver;
     this.project = project;
+    this.settings = settings;
   }
 
   void index(DefaultModuleFileSystem fileSystem) {
@@ -94,24 +119,36 @@ public class FileIndex implements BatchComponent {
 
     Progress progress = new Progress(cache.fileRelativePaths(fileSystem.moduleKey()));
 
+    List<FileToIndex> filesToIndex = Lists.newArrayList();
     if (fileSystem.sourceFiles().isEmpty()) {
       // index directories
       for (File sourceDir : fileSystem.sourceDirs()) {
-        indexDirectory(fileSystem, progress, sourceDir, InputFile.TYPE_SOURCE);
+        collectDirectory(fileSystem, filesToIndex, sourceDir, InputFile.TYPE_SOURCE);
       }
     } else {
       // index only given files
-      indexFiles(fileSystem, progress, fileSystem.sourceDirs(), fileSystem.sourceFiles(), InputFile.TYPE_SOURCE);
+      collectFiles(fileSystem, filesToIndex, fileSystem.sourceDirs(), fileSystem.sourceFiles(), InputFile.TYPE_SOURCE);
     }
 
     if (fileSystem.testFiles().isEmpty()) {
       // index directories
       for (File testDir : fileSystem.testDirs()) {
-        indexDirectory(fileSystem, progress, testDir, InputFile.TYPE_TEST);
+        collectDirectory(fileSystem, filesToIndex, testDir, InputFile.TYPE_TEST);
       }
     } else {
       // index only given files
-      indexFiles(fileSystem, progress, fileSystem.testDirs(), fileSystem.testFiles(), InputFile.TYPE_TEST);
+      collectFiles(fileSystem, filesToIndex, fileSystem.testDirs(), fileSystem.testFiles(), InputFile.TYPE_TEST);
+    }
+
+    // Hashing and language detection can be executed concurrently, but filters and cache
+    // are not thread-safe. Files are registered in the same order than sequential indexation.
+    List<InputFile> inputFiles = newInputFiles(fileSystem, filesToIndex);
+    for (int i = 0; i < filesToIndex.size(); i++) {
+      InputFile input = inputFiles.get(i);
+      if (input != null && accept(input)) {
+        cache.put(fileSystem.moduleKey(), input);
+        progress.markAsIndexed(filesToIndex.get(i).path);
+      }
     }
 
     // Remove files that have been removed since previous indexation
@@ -123,7 +160,7 @@ public class FileIndex implements BatchComponent {
 
   }
 
-  private void indexFiles(DefaultModuleFileSystem fileSystem, Progress progress, List<File> sourceDirs, List<File> sourceFiles, String type) {
+  private void collectFiles(DefaultModuleFileSystem fileSystem, List<FileToIndex> filesToIndex, List<File> sourceDirs, List<File> sourceFiles, String type) {
     for (File sourceFile : sourceFiles) {
       PathResolver.RelativePath sourceDirPath = pathResolver.relativePath(sourceDirs, sourceFile);
       if (sourceDirPath == null) {
@@ -131,7 +168,7 @@ public class FileIndex implements BatchComponent {
           "File '%s' is not declared in source directories %s", sourceFile.getAbsoluteFile(), StringUtils.join(sourceDirs, ", ")
           ));
       } else {
-        indexFile(fileSystem, progress, sourceDirPath.dir(), sourceFile, type);
+        collectFile(fileSystem, filesToIndex, sourceDirPath.dir(), sourceFile, type);
       }
     }
   }
@@ -140,23 +177,60 @@ public class FileIndex implements BatchComponent {
     return cache.byModule(moduleKey);
   }
 
-  private void indexDirectory(DefaultModuleFileSystem fileSystem, Progress status, File sourceDir, String type) {
+  private void collectDirectory(DefaultModuleFileSystem fileSystem, List<FileToIndex> filesToIndex, File sourceDir, String type) {
     Collection<File> files = FileUtils.listFiles(sourceDir, FILE_FILTER, DIR_FILTER);
     for (File file : files) {
-      indexFile(fileSystem, status, sourceDir, file, type);
+      collectFile(fileSystem, filesToIndex, sourceDir, file, type);
     }
   }
 
-  private void indexFile(DefaultModuleFileSystem fileSystem, Progress status, File sourceDir, File file, String type) {
+  private void collectFile(DefaultModuleFileSystem fileSystem, List<FileToIndex> filesToIndex, File sourceDir, File file, String type) {
     String path = pathResolver.relativePath(fileSystem.baseDir(), file);
     if (path == null) {
       LoggerFactory.getLogger(getClass()).warn(String.format("File '%s' is not in basedir '%s'", file.getAbsolutePath(), fileSystem.baseDir()));
     } else {
-      InputFile input = newInputFile(fileSystem, sourceDir, type, file, path);
-      if (input != null && accept(input)) {
-        cache.put(fileSystem.moduleKey(), input);
-        status.markAsIndexed(path);
+      filesToIndex.add(new FileToIndex(sourceDir, file, type, path));
+    }
+  }
+
+  /**
+   * @return input files in the same order than the given files. Elements are null when language is not detected.
+   */
+  private List<InputFile> newInputFiles(final ModuleFileSystem fileSystem, List<FileToIndex> filesToIndex) {
+    int threads = Math.min(settings.getInt(CoreProperties.INDEX_THREADS), filesToIndex.size());
+    List<InputFile> inputFiles = Lists.newArrayListWithCapacity(filesToIndex.size());
+    if (threads < 2) {
+      for (FileToIndex fileToIndex : filesToIndex) {
+        inputFiles.add(newInputFile(fileSystem, fileToIndex.sourceDir, fileToIndex.type, fileToIndex.file, fileToIndex.path));
+      }
+      return inputFiles;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<InputFile>> futures = Lists.newArrayListWithCapacity(filesToIndex.size());
+      for (final FileToIndex fileToIndex : filesToIndex) {
+        futures.add(executor.submit(new Callable<InputFile>() {
+          @Override
+          public InputFile call() {
+            return newInputFile(fileSystem, fileToIndex.sourceDir, fileToIndex.type, fileToIndex.file, fileToIndex.path);
+          }
+        }));
+      }
+      for (Future<InputFile> future : futures) {
+        inputFiles.add(future.get());
       }
+      return inputFiles;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while indexing files", e);
+
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+
+    } finally {
+      executor.shutdownNow();
     }
   }
 
@@ -25,7 +25,6 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleFinder;
 import org.sonar.api.rules.RuleQuery;
-import org.sonar.api.technicaldebt.batch.TechnicalDebtModel;
 import org.sonar.api.technicaldebt.batch.internal.DefaultCharacteristic;
 import org.sonar.core.technicaldebt.DefaultTechnicalDebtModel;
 import org.sonar.core.technicaldebt.db.CharacteristicDao;
@@ -47,7 +46,7 @@ public class TechnicalDebtModelLoader implements BatchComponent {
     this.ruleFinder = ruleFinder;
   }
 
-  public TechnicalDebtModel load() {
+  public DefaultTechnicalDebtModel load() {
     DefaultTechnicalDebtModel model = new DefaultTechnicalDebtModel();
     List<CharacteristicDto> dtos = dao.selectEnabledCharacteristics();
     Map<Integer, DefaultCharacteristic> characteristicsById = newHashMap();
@@ -25,6 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.technicaldebt.batch.TechnicalDebtModel;
 import org.sonar.api.utils.TimeProfiler;
+import org.sonar.core.technicaldebt.IndexedTechnicalDebtModel;
 
 public class TechnicalDebtModelProvider extends ProviderAdapter {
 
@@ -35,7 +36,7 @@ public class TechnicalDebtModelProvider extends ProviderAdapter {
   public TechnicalDebtModel provide(TechnicalDebtModelLoader loader) {
     if (model == null) {
       TimeProfiler profiler = new TimeProfiler(LOG).start("Loading technical debt model");
-      model = loader.load();
+      model = new IndexedTechnicalDebtModel(loader.load());
       profiler.stop();
     }
     return model;
@@ -67,6 +67,25 @@ public class BatchPluginInstallerTest {
     assertThat(new File(fileFromCache.getParent(), "sonar-checkstyle-plugin-2.8.jar_unzip/org/sonar/plugins/checkstyle/CheckstyleVersion.class")).doesNotExist();
   }
 
+  @Test
+  public void should_not_read_manifest_when_metadata_is_cached() throws IOException {
+    File fileFromCache = getFileFromCache("sonar-checkstyle-plugin-2.8.jar");
+    DefaultPluginMetadata metadata = extractor.installToCache(fileFromCache, true);
+    assertThat(BatchPluginInstaller.metadataFile(fileFromCache)).exists();
+
+    // the jar can not be read anymore
+    FileUtils.write(fileFromCache, "not a jar");
+    DefaultPluginMetadata cachedMetadata = extractor.installToCache(fileFromCache, false);
+
+    assertThat(cachedMetadata.getKey()).isEqualTo("checkstyle");
+    assertThat(cachedMetadata.getName()).isEqualTo(metadata.getName());
+    assertThat(cachedMetadata.getVersion()).isEqualTo(metadata.getVersion());
+    assertThat(cachedMetadata.getMainClass()).isEqualTo(metadata.getMainClass());
+    assertThat(cachedMetadata.getPathsToInternalDeps()).isEqualTo(metadata.getPathsToInternalDeps());
+    assertThat(cachedMetadata.getDeployedFiles()).isEqualTo(metadata.getDeployedFiles());
+    assertThat(cachedMetadata.isCore()).isFalse();
+  }
+
   File getFileFromCache(String filename) throws IOException {
     File src = FileUtils.toFile(BatchPluginInstallerTest.class.getResource("/org/sonar/batch/bootstrap/BatchPluginInstallerTest/" + filename));
     File destFile = new File(new File(userHome, "" + filename.hashCode()), filename);
@@ -19,6 +19,7 @@
  */
 package org.sonar.batch.bootstrap;
 
+import com.google.common.collect.ImmutableMap;
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
@@ -69,7 +70,8 @@ public class BatchPluginRepositoryTest {
     RemotePlugin checkstyle = new RemotePlugin("checkstyle", true);
 
     PluginDownloader downloader = mock(PluginDownloader.class);
-    when(downloader.downloadPlugin(checkstyle)).thenReturn(fileFromCache("sonar-checkstyle-plugin-2.8.jar"));
+    when(downloader.downloadPlugins(Arrays.asList(checkstyle))).thenReturn(ImmutableMap.of(
+      checkstyle, fileFromCache("sonar-checkstyle-plugin-2.8.jar")));
 
     repository = new BatchPluginRepository(downloader, new Settings(), mode, new BatchPluginInstaller(cache));
 
@@ -87,8 +89,9 @@ public class BatchPluginRepositoryTest {
     RemotePlugin checkstyleExt = new RemotePlugin("checkstyleextensions", false);
 
     PluginDownloader downloader = mock(PluginDownloader.class);
-    when(downloader.downloadPlugin(checkstyle)).thenReturn(fileFromCache("sonar-checkstyle-plugin-2.8.jar"));
-    when(downloader.downloadPlugin(checkstyleExt)).thenReturn(fileFromCache("sonar-checkstyle-extensions-plugin-0.1-SNAPSHOT.jar"));
+    when(downloader.downloadPlugins(Arrays.asList(checkstyle, checkstyleExt))).thenReturn(ImmutableMap.of(
+      checkstyle, fileFromCache("sonar-checkstyle-plugin-2.8.jar"),
+      checkstyleExt, fileFromCache("sonar-checkstyle-extensions-plugin-0.1-SNAPSHOT.jar")));
 
     repository = new BatchPluginRepository(downloader, new Settings(), mode, new BatchPluginInstaller(cache));
 
@@ -107,8 +110,8 @@ public class BatchPluginRepositoryTest {
     RemotePlugin checkstyleExt = new RemotePlugin("checkstyleextensions", false);
 
     PluginDownloader downloader = mock(PluginDownloader.class);
-    when(downloader.downloadPlugin(checkstyle)).thenReturn(fileFromCache("sonar-checkstyle-plugin-2.8.jar"));
-    when(downloader.downloadPlugin(checkstyleExt)).thenReturn(fileFromCache("sonar-checkstyle-extensions-plugin-0.1-SNAPSHOT.jar"));
+    when(downloader.downloadPlugins(Arrays.asList(checkstyleExt))).thenReturn(ImmutableMap.of(
+      checkstyleExt, fileFromCache("sonar-checkstyle-extensions-plugin-0.1-SNAPSHOT.jar")));
 
     Settings settings = new Settings();
     settings.setProperty(CoreProperties.BATCH_EXCLUDE_PLUGINS, "checkstyle");
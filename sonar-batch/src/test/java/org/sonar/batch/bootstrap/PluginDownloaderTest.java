@@ -28,13 +28,17 @@ import org.sonar.core.plugins.RemotePlugin;
 import org.sonar.home.cache.FileCache;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class PluginDownloaderTest {
@@ -77,6 +81,27 @@ public class PluginDownloaderTest {
     assertThat(file).isEqualTo(pluginJar);
   }
 
+  @Test
+  public void should_download_only_missing_plugins() throws Exception {
+    FileCache cache = mock(FileCache.class);
+    File checkstyleJar = temp.newFile();
+    File pmdJar = temp.newFile();
+    File findbugsJar = temp.newFile();
+    when(cache.get("checkstyle-plugin.jar", "fakemd5_1")).thenReturn(checkstyleJar);
+    when(cache.get(eq("pmd-plugin.jar"), eq("fakemd5_2"), any(FileCache.Downloader.class))).thenReturn(pmdJar);
+    when(cache.get(eq("findbugs-plugin.jar"), eq("fakemd5_3"), any(FileCache.Downloader.class))).thenReturn(findbugsJar);
+
+    PluginDownloader downloader = new PluginDownloader(cache, mock(ServerClient.class));
+    RemotePlugin checkstyle = new RemotePlugin("checkstyle", true).setFile("checkstyle-plugin.jar", "fakemd5_1");
+    RemotePlugin pmd = new RemotePlugin("pmd", true).setFile("pmd-plugin.jar", "fakemd5_2");
+    RemotePlugin findbugs = new RemotePlugin("findbugs", true).setFile("findbugs-plugin.jar", "fakemd5_3");
+    Map<RemotePlugin, File> files = downloader.downloadPlugins(Arrays.asList(checkstyle, pmd, findbugs));
+
+    assertThat(files.keySet()).containsExactly(checkstyle, pmd, findbugs);
+    assertThat(files.values()).containsExactly(checkstyleJar, pmdJar, findbugsJar);
+    verify(cache, never()).get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.Downloader.class));
+  }
+
   @Test
   public void should_fail_to_get_plugin_index() throws Exception {
     thrown.expect(SonarException.class);
@@ -0,0 +1,76 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.components;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class PastMeasuresIndexTest {
+
+  @Test
+  public void should_index_by_all_ids() {
+    PastMeasuresIndex index = new PastMeasuresIndex();
+    index.put(1, 10, null, null, null, 1.0);
+    index.put(1, 10, 100, null, null, 2.0);
+    index.put(1, 10, null, 1000, null, 3.0);
+    index.put(1, 10, null, null, 10000, 4.0);
+    index.put(2, 10, null, null, null, 5.0);
+
+    assertThat(index.size()).isEqualTo(5);
+    assertThat(index.get(1, 10, null, null, null)).isEqualTo(1.0);
+    assertThat(index.get(1, 10, 100, null, null)).isEqualTo(2.0);
+    assertThat(index.get(1, 10, null, 1000, null)).isEqualTo(3.0);
+    assertThat(index.get(1, 10, null, null, 10000)).isEqualTo(4.0);
+    assertThat(index.get(2, 10, null, null, null)).isEqualTo(5.0);
+
+    assertThat(index.get(3, 10, null, null, null)).isNull();
+    assertThat(index.get(1, 11, null, null, null)).isNull();
+    assertThat(index.get(1, 10, 100, 1000, null)).isNull();
+  }
+
+  @Test
+  public void should_replace_value_of_existing_key() {
+    PastMeasuresIndex index = new PastMeasuresIndex();
+    index.put(1, 10, null, null, 5, 1.0);
+    index.put(1, 10, null, null, 5, 2.0);
+
+    assertThat(index.size()).isEqualTo(1);
+    assertThat(index.get(1, 10, null, null, 5)).isEqualTo(2.0);
+  }
+
+  @Test
+  public void should_grow() {
+    PastMeasuresIndex index = new PastMeasuresIndex(1);
+    for (int resourceId = 1; resourceId <= 1000; resourceId++) {
+      for (int metricId = 1; metricId <= 50; metricId++) {
+        index.put(resourceId, metricId, null, null, null, resourceId * 100.0 + metricId);
+      }
+    }
+
+    assertThat(index.size()).isEqualTo(50000);
+    for (int resourceId = 1; resourceId <= 1000; resourceId++) {
+      for (int metricId = 1; metricId <= 50; metricId++) {
+        assertThat(index.get(resourceId, metricId, null, null, null)).isEqualTo(resourceId * 100.0 + metricId);
+      }
+    }
+    assertThat(index.get(1001, 1, null, null, null)).isNull();
+  }
+}
@@ -25,6 +25,8 @@ import org.sonar.api.measures.Metric;
 import org.sonar.jpa.test.AbstractDbUnitTestCase;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -86,6 +88,33 @@ public class PastMeasuresLoaderTest extends AbstractDbUnitTestCase {
     assertThat(PastMeasuresLoader.getValue(pastMeasure), is(80.0));
   }
 
+  @Test
+  public void shouldGetPastMeasuresOfModuleAndDirectories() {
+    setupData("shared");
+
+    List<Metric> metrics = selectMetrics();
+    Snapshot projectSnapshot = getSession().getSingleResult(Snapshot.class, "id", PROJECT_SNAPSHOT_ID);
+    PastSnapshot pastSnapshot = new PastSnapshot("days", new Date(), projectSnapshot);
+
+    PastMeasuresLoader loader = new PastMeasuresLoader(getSession(), metrics);
+    PastMeasuresIndex index = loader.getPastMeasuresIndex(pastSnapshot);
+
+    // project and package, measures of files are ignored
+    assertThat(index.size(), is(4));
+    assertThat(index.get(1, 1, null, null, null), is(60.0));
+    assertThat(index.get(1, 2, null, null, null), is(80.0));
+    assertThat(index.get(2, 1, null, null, null), is(20.0));
+    assertThat(index.get(2, 2, null, null, null), is(70.0));
+    assertThat(index.get(3, 1, null, null, null), nullValue());
+  }
+
+  @Test
+  public void shouldGetEmptyPastMeasuresIndexWhenNoPastSnapshot() {
+    PastMeasuresLoader loader = new PastMeasuresLoader(getSession(), Collections.<Metric>emptyList());
+
+    assertThat(loader.getPastMeasuresIndex(null).size(), is(0));
+  }
+
   @Test
   public void shouldKeepOnlyNumericalMetrics() {
     Metric ncloc = new Metric("ncloc", Metric.ValueType.INT);
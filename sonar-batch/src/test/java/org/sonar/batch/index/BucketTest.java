@@ -29,6 +29,8 @@ import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.Violation;
 import org.sonar.api.utils.SonarException;
 
+import java.util.Arrays;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.core.IsNot.not;
 import static org.junit.Assert.*;
@@ -87,6 +89,21 @@ public class BucketTest {
     fileBucket.addMeasure(measure);
   }
 
+  @Test
+  public void shouldReplaceRestoredMeasure() {
+    Bucket fileBucket = new Bucket(javaFile);
+    Measure spilled = new Measure(ncloc).setValue(1200.0);
+    fileBucket.addMeasure(spilled);
+    assertThat(fileBucket.removeCompactableMeasures(), hasItem(spilled));
+    fileBucket.restoreMeasures(Arrays.asList(new Measure(ncloc).setValue(1200.0)));
+
+    spilled.setValue(500.0);
+    fileBucket.addMeasure(spilled);
+
+    assertThat(fileBucket.getMeasures(MeasuresFilters.all()).size(), is(1));
+    assertThat(fileBucket.getMeasures(MeasuresFilters.metric(ncloc)), is(spilled));
+  }
+
   @Test
   public void shouldBeEquals() {
     assertEquals(new Bucket(javaPackage), new Bucket(javaPackage));
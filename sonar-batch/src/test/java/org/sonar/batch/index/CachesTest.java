@@ -19,7 +19,7 @@
  */
 package org.sonar.batch.index;
 
-import java.util.Collections;
+import com.persistit.Value;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -33,6 +33,7 @@ import org.sonar.batch.bootstrap.TempFolderProvider;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Collections;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.fest.assertions.Fail.fail;
@@ -99,6 +100,22 @@ public class CachesTest {
     }
   }
 
+  @Test
+  public void should_encode_values_with_registered_coder() throws Exception {
+    caches.start();
+    StringData data = new StringData("the data");
+    Value serialized = new Value(caches.persistit());
+    serialized.put(data);
+
+    Cache<String, StringData> cache = caches.createCache("foo", StringData.class, new DataValueCoder());
+    Value coded = new Value(caches.persistit());
+    coded.put(data);
+    cache.put("key", data);
+
+    assertThat(coded.getEncodedSize()).isLessThan(serialized.getEncodedSize());
+    assertThat(cache.get("key").data()).isEqualTo("the data");
+  }
+
   static class Element implements Serializable {
 
   }
@@ -23,6 +23,7 @@ import org.apache.commons.lang.StringUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.ResourceFilter;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.config.Settings;
@@ -86,7 +87,8 @@ public class DefaultIndexTest {
     ruleFinder = mock(RuleFinder.class);
 
     ProjectTree projectTree = mock(ProjectTree.class);
-    index = new DefaultIndex(mock(PersistenceManager.class), lock, projectTree, metricFinder, mock(ScanGraph.class), deprecatedViolations, mock(ResourceKeyMigration.class));
+    index = new DefaultIndex(mock(PersistenceManager.class), lock, projectTree, metricFinder, mock(ScanGraph.class), deprecatedViolations, mock(ResourceKeyMigration.class),
+      mock(MeasureCache.class));
 
     java.io.File baseDir = temp.newFolder();
     project = new Project("project");
@@ -112,6 +114,62 @@ public class DefaultIndexTest {
     index.doStart(project);
   }
 
+  @Test
+  public void should_hand_over_spilled_measures_to_persister_in_delayed_mode() {
+    Caches caches = CachesTest.createCacheOnTemp(temp);
+    caches.start();
+    try {
+      MetricFinder metricFinder = mock(MetricFinder.class);
+      when(metricFinder.findByKey("ncloc")).thenReturn(CoreMetrics.NCLOC);
+      when(metricFinder.findByKey("coverage")).thenReturn(CoreMetrics.COVERAGE);
+      MeasurePersister measurePersister = MeasureCacheTest.newPersister();
+      MeasureCache measureCache = new MeasureCache(caches, new Settings().setProperty(CoreProperties.MEASURES_MAX_FILES_IN_MEMORY, 1), measurePersister);
+      PersistenceManager persistence = new DefaultPersistenceManager(mock(ResourcePersister.class), mock(SourcePersister.class), measurePersister,
+        mock(DependencyPersister.class), mock(LinkPersister.class), mock(EventPersister.class), measureCache);
+      DefaultIndex delayedIndex = new DefaultIndex(persistence, lock, mock(ProjectTree.class), metricFinder, mock(ScanGraph.class), deprecatedViolations,
+        mock(ResourceKeyMigration.class), measureCache);
+      delayedIndex.setCurrentProject(project, new ResourceFilters(new ResourceFilter[0]), mock(ModuleIssues.class));
+      delayedIndex.doStart(project);
+      persistence.setDelayedMode(true);
+
+      File foo = File.create("src/Foo.java", "Foo.java", null, false);
+      File bar = File.create("src/Bar.java", "Bar.java", null, false);
+      delayedIndex.index(foo);
+      delayedIndex.index(bar);
+      delayedIndex.addMeasure(foo, new Measure("ncloc", 10.0));
+      delayedIndex.addMeasure(foo, new Measure("coverage", 80.0));
+      delayedIndex.addMeasure(bar, new Measure("ncloc", 5.0));
+
+      // spilled measures are not referenced by persister anymore
+      assertThat(measurePersister.getUnsavedMeasures(foo)).isEmpty();
+
+      // changes of reloaded measures are saved
+      Measure restored = delayedIndex.getMeasures(foo, MeasuresFilters.metric(CoreMetrics.NCLOC));
+      restored.setValue(20.0);
+      assertThat(measurePersister.getUnsavedMeasures(foo)).hasSize(2).contains(restored);
+
+      // measures can be spilled while being read
+      int count = 0;
+      for (Measure measure : delayedIndex.getMeasures(foo, MeasuresFilters.all())) {
+        delayedIndex.getMeasures(bar, MeasuresFilters.all());
+        count++;
+      }
+      assertThat(count).isEqualTo(2);
+
+      delayedIndex.getMeasures(bar, MeasuresFilters.all());
+      assertThat(measurePersister.getUnsavedMeasures(foo)).isEmpty();
+      measureCache.handOverUnsavedMeasures();
+      for (Measure measure : measurePersister.getUnsavedMeasures(foo)) {
+        if (measure.getMetricKey().equals("ncloc")) {
+          assertThat(measure.getValue()).isEqualTo(20.0);
+        }
+      }
+      assertThat(measurePersister.getUnsavedMeasures(foo)).hasSize(2);
+    } finally {
+      caches.stop();
+    }
+  }
+
   @Test
   public void shouldIndexParentOfDeprecatedFiles() {
     File file = File.create("src/org/foo/Bar.java", "org/foo/Bar.java", null, false);
@@ -152,6 +152,70 @@ public class DefaultResourcePersisterTest extends AbstractDbUnitTestCase {
     checkTables("shouldSaveNewDirectory", new String[] {"build_date", "created_at"}, "projects", "snapshots");
   }
 
+  @Test
+  public void shouldSaveNewDirectoryInBulk() {
+    setupData("shared");
+
+    ResourcePersister persister = new DefaultResourcePersister(getSession(), mock(ResourcePermissions.class), snapshotCache, resourceCache);
+    persister.saveProject(singleProject, null);
+    persister.startBulkRegistration(singleProject);
+    persister.saveResource(singleProject,
+      Directory.create("src/main/java/org/foo", "org.foo").setEffectiveKey("foo:src/main/java/org/foo"));
+    persister.stopBulkRegistration();
+
+    checkTables("shouldSaveNewDirectory", new String[] {"build_date", "created_at"}, "projects", "snapshots");
+  }
+
+  @Test
+  public void shouldUpdateExistingDirectoryInBulk() {
+    setupData("shouldUpdateExistingDirectoryInBulk");
+
+    ResourcePersister persister = new DefaultResourcePersister(getSession(), mock(ResourcePermissions.class), snapshotCache, resourceCache);
+    persister.saveProject(singleProject, null);
+    persister.startBulkRegistration(singleProject);
+    Directory directory = Directory.create("src/main/java/org/foo", "org.foo");
+    directory.setEffectiveKey("foo:src/main/java/org/foo");
+    persister.saveResource(singleProject, directory);
+    persister.stopBulkRegistration();
+
+    assertThat(directory.getId()).isEqualTo(1002);
+    checkTables("shouldUpdateExistingDirectoryInBulk", new String[] {"build_date", "created_at"}, "projects", "snapshots");
+  }
+
+  @Test
+  public void shouldFailIfDuplicatedResourceInBulk() {
+    setupData("shouldFailIfDuplicatedResourceInBulk");
+
+    ResourcePersister persister = new DefaultResourcePersister(getSession(), mock(ResourcePermissions.class), snapshotCache, resourceCache);
+    persister.saveProject(singleProject, null);
+    persister.startBulkRegistration(singleProject);
+    Directory directory = Directory.create("src/main/java/org/foo", "org.foo");
+    directory.setEffectiveKey("foo:src/main/java/org/foo");
+
+    thrown.expect(SonarException.class);
+    thrown.expectMessage("The resource 'foo:src/main/java/org/foo' is duplicated in database.");
+    persister.saveResource(singleProject, directory);
+  }
+
+  @Test
+  public void shouldLoadOnlyResourcesOfModuleInBulk() {
+    setupData("shouldLoadOnlyResourcesOfModuleInBulk");
+
+    DefaultResourcePersister persister = new DefaultResourcePersister(getSession(), mock(ResourcePermissions.class), snapshotCache, resourceCache);
+    persister.saveProject(singleProject, null);
+    persister.startBulkRegistration(singleProject);
+
+    // neither the sub-module nor its directories
+    assertThat(persister.getBulkModelsByKey().keySet()).containsOnly("foo:src/main/java/org/foo");
+    persister.stopBulkRegistration();
+  }
+
+  @Test
+  public void shouldEscapeKeyPrefixOfBulkRegistration() {
+    assertThat(DefaultResourcePersister.likePrefix("org.foo:")).isEqualTo("org.foo:%");
+    assertThat(DefaultResourcePersister.likePrefix("org_foo%/:")).isEqualTo("org/_foo/%//:%");
+  }
+
   @Test
   public void shouldSaveNewLibrary() {
     setupData("shared");
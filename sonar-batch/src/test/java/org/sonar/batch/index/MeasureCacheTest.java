@@ -0,0 +1,166 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.index;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.config.Settings;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.MeasuresFilters;
+import org.sonar.api.measures.PersistenceMode;
+import org.sonar.api.resources.Directory;
+import org.sonar.api.resources.File;
+import org.sonar.api.rules.RuleFinder;
+import org.sonar.core.persistence.MyBatis;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class MeasureCacheTest {
+
+  @ClassRule
+  public static TemporaryFolder temp = new TemporaryFolder();
+
+  Caches caches;
+
+  @Before
+  public void start() throws Exception {
+    caches = CachesTest.createCacheOnTemp(temp);
+    caches.start();
+  }
+
+  @After
+  public void stop() {
+    caches.stop();
+  }
+
+  @Test
+  public void should_spill_least_recently_used_files() {
+    MeasureCache cache = newCache(1);
+    Bucket foo = new Bucket(new File("Foo.java"));
+    Measure ncloc = new Measure(CoreMetrics.NCLOC, 120.0).setId(12L);
+    Measure coverage = new Measure(CoreMetrics.COVERAGE, 78.5).setVariation(1, -2.5).setPersistenceMode(PersistenceMode.MEMORY);
+    Measure hits = new Measure(CoreMetrics.COVERAGE_LINE_HITS_DATA, "1=0;2=3");
+    cache.load(foo);
+    foo.addMeasure(ncloc);
+    foo.addMeasure(coverage);
+    foo.addMeasure(hits);
+
+    Bucket bar = new Bucket(new File("Bar.java"));
+    cache.load(bar);
+    assertThat(foo.getSpilledKey()).isNotNull();
+    assertThat(foo.getMeasures(MeasuresFilters.all())).isEmpty();
+
+    cache.load(foo);
+    assertThat(foo.getSpilledKey()).isNull();
+    assertThat(bar.getSpilledKey()).isNull();
+    assertThat(foo.getMeasures(MeasuresFilters.all())).hasSize(3);
+
+    Measure restoredNcloc = foo.getMeasures(MeasuresFilters.metric(CoreMetrics.NCLOC));
+    assertThat(restoredNcloc).isNotSameAs(ncloc);
+    assertThat(restoredNcloc.getValue()).isEqualTo(120.0);
+    assertThat(restoredNcloc.getId()).isEqualTo(12L);
+    assertThat(restoredNcloc.getMetric()).isSameAs(CoreMetrics.NCLOC);
+    assertThat(restoredNcloc.getVariation1()).isNull();
+    assertThat(restoredNcloc.getData()).isNull();
+
+    Measure restoredCoverage = foo.getMeasures(MeasuresFilters.metric(CoreMetrics.COVERAGE));
+    assertThat(restoredCoverage.getValue()).isEqualTo(78.5);
+    assertThat(restoredCoverage.getVariation1()).isEqualTo(-2.5);
+    assertThat(restoredCoverage.getVariation2()).isNull();
+    assertThat(restoredCoverage.getPersistenceMode()).isEqualTo(PersistenceMode.MEMORY);
+    assertThat(restoredCoverage.getId()).isNull();
+
+    Measure restoredHits = foo.getMeasures(MeasuresFilters.metric(CoreMetrics.COVERAGE_LINE_HITS_DATA));
+    assertThat(restoredHits.getValue()).isNull();
+    assertThat(restoredHits.getData()).isEqualTo("1=0;2=3");
+  }
+
+  @Test
+  public void should_keep_in_memory_measures_which_are_not_compactable() {
+    MeasureCache cache = newCache(1);
+    Bucket foo = new Bucket(new File("Foo.java"));
+    Measure alert = new Measure(CoreMetrics.NCLOC, 120.0).setAlertText("too big");
+    cache.load(foo);
+    foo.addMeasure(alert);
+
+    cache.load(new Bucket(new File("Bar.java")));
+
+    assertThat(foo.getSpilledKey()).isNull();
+    assertThat(foo.getMeasures(MeasuresFilters.metric(CoreMetrics.NCLOC))).isSameAs(alert);
+  }
+
+  @Test
+  public void should_not_spill_directories() {
+    MeasureCache cache = newCache(1);
+    Bucket dir = new Bucket(new Directory("org/foo"));
+    cache.load(dir);
+    dir.addMeasure(new Measure(CoreMetrics.NCLOC, 120.0));
+
+    cache.load(new Bucket(new File("Bar.java")));
+    cache.load(new Bucket(new File("Baz.java")));
+
+    assertThat(dir.getSpilledKey()).isNull();
+    assertThat(dir.getMeasures(MeasuresFilters.all())).hasSize(1);
+  }
+
+  @Test
+  public void should_be_disabled_by_default() {
+    MeasureCache cache = new MeasureCache(caches, new Settings(), newPersister());
+    assertThat(cache.isEnabled()).isFalse();
+
+    Bucket foo = new Bucket(new File("Foo.java"));
+    cache.load(foo);
+    foo.addMeasure(new Measure(CoreMetrics.NCLOC, 120.0));
+    cache.load(new Bucket(new File("Bar.java")));
+
+    assertThat(foo.getSpilledKey()).isNull();
+    assertThat(foo.getMeasures(MeasuresFilters.all())).hasSize(1);
+  }
+
+  @Test
+  public void should_forget_removed_files() {
+    MeasureCache cache = newCache(1);
+    Bucket foo = new Bucket(new File("Foo.java"));
+    cache.load(foo);
+    foo.addMeasure(new Measure(CoreMetrics.NCLOC, 120.0));
+    cache.load(new Bucket(new File("Bar.java")));
+    assertThat(foo.getSpilledKey()).isNotNull();
+
+    cache.remove(foo);
+
+    assertThat(foo.getSpilledKey()).isNull();
+  }
+
+  private MeasureCache newCache(int maxFilesInMemory) {
+    Settings settings = new Settings();
+    settings.setProperty(CoreProperties.MEASURES_MAX_FILES_IN_MEMORY, maxFilesInMemory);
+    return new MeasureCache(caches, settings, newPersister());
+  }
+
+  static MeasurePersister newPersister() {
+    return new MeasurePersister(mock(MyBatis.class), mock(ResourcePersister.class), mock(RuleFinder.class), mock(MemoryOptimizer.class), new Settings());
+  }
+}
@@ -24,6 +24,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.ArgumentCaptor;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.config.Settings;
 import org.sonar.api.database.model.MeasureModel;
 import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.measures.*;
@@ -37,6 +39,7 @@ import org.sonar.api.utils.SonarException;
 import org.sonar.core.persistence.AbstractDaoTestCase;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
@@ -72,7 +75,7 @@ public class MeasurePersisterTest extends AbstractDaoTestCase {
     when(resourcePersister.getSnapshot(project)).thenReturn(projectSnapshot);
     when(resourcePersister.getSnapshot(aPackage)).thenReturn(packageSnapshot);
 
-    measurePersister = new MeasurePersister(getMyBatis(), resourcePersister, ruleFinder, memoryOptimizer);
+    measurePersister = new MeasurePersister(getMyBatis(), resourcePersister, ruleFinder, memoryOptimizer, new Settings());
   }
 
   @Test
@@ -218,6 +221,56 @@ public class MeasurePersisterTest extends AbstractDaoTestCase {
     measurePersister.dump();
   }
 
+  @Test
+  public void should_delay_saving_in_several_batches() {
+    setupData("empty");
+
+    Settings settings = new Settings().setProperty(CoreProperties.MEASURES_BATCH_SIZE, 1);
+    measurePersister = new MeasurePersister(getMyBatis(), resourcePersister, ruleFinder, memoryOptimizer, settings);
+    measurePersister.setDelayedMode(true);
+    measurePersister.saveMeasure(project, new Measure(ncloc()).setValue(1234.0).setData(SHORT));
+    measurePersister.saveMeasure(aPackage, new Measure(ncloc()).setValue(50.0).setData(LONG));
+
+    measurePersister.dump();
+    checkTables("shouldDelaySaving", "project_measures", "measure_data");
+  }
+
+  @Test
+  public void should_display_contextual_info_when_error_in_batch() {
+    setupData("empty");
+
+    measurePersister.setDelayedMode(true);
+    measurePersister.saveMeasure(aPackage, new Measure(ncloc()).setValue(50.0));
+    measurePersister.saveMeasure(project, new Measure(ncloc()).setValue(1234.0).setAlertText(TOO_LONG));
+
+    thrown.expect(SonarException.class);
+    thrown.expectMessage("Unable to save measure for metric [ncloc] on resource [foo]");
+
+    measurePersister.dump();
+  }
+
+  @Test
+  public void should_not_commit_measures_of_previous_batches_when_failure() {
+    setupData("empty");
+
+    Settings settings = new Settings().setProperty(CoreProperties.MEASURES_BATCH_SIZE, 10);
+    measurePersister = new MeasurePersister(getMyBatis(), resourcePersister, ruleFinder, memoryOptimizer, settings);
+    measurePersister.setDelayedMode(true);
+    measurePersister.saveMeasure(aPackage, new Measure(ncloc()).setValue(50.0).setData(LONG));
+    for (int personId = 0; personId < 25; personId++) {
+      measurePersister.saveMeasure(project, new Measure(ncloc()).setValue(1.0).setPersonId(personId));
+    }
+    measurePersister.saveMeasure(project, new Measure(ncloc()).setValue(1234.0).setAlertText(TOO_LONG));
+
+    try {
+      measurePersister.dump();
+      fail();
+    } catch (SonarException e) {
+      assertThat(e).hasMessage("Unable to save measure for metric [ncloc] on resource [foo]");
+      assertEmptyTables("project_measures", "measure_data");
+    }
+  }
+
   @Test
   public void should_not_delay_saving_with_database_only_measure() {
     setupData("empty");
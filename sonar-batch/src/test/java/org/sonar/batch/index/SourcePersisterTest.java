@@ -21,32 +21,68 @@ package org.sonar.batch.index;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.config.Settings;
 import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.resources.DuplicatedSourceException;
 import org.sonar.api.resources.JavaFile;
 import org.sonar.api.resources.Resource;
-import org.sonar.jpa.test.AbstractDbUnitTestCase;
+import org.sonar.core.persistence.AbstractDaoTestCase;
+import org.sonar.core.source.db.SnapshotSourceDao;
 
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
-public class SourcePersisterTest extends AbstractDbUnitTestCase {
+public class SourcePersisterTest extends AbstractDaoTestCase {
 
   private SourcePersister sourcePersister;
+  private Settings settings = new Settings();
+  private ResourcePersister resourcePersister;
 
   @Before
   public void before() {
     setupData("shared");
-    Snapshot snapshot = getSession().getSingleResult(Snapshot.class, "id", 1000);
-    ResourcePersister resourcePersister = mock(ResourcePersister.class);
+    Snapshot snapshot = new Snapshot();
+    snapshot.setId(1000);
+    resourcePersister = mock(ResourcePersister.class);
     when(resourcePersister.getSnapshotOrFail(any(Resource.class))).thenReturn(snapshot);
-    sourcePersister = new SourcePersister(getSession(), resourcePersister);
+    when(resourcePersister.getSnapshot(any(Resource.class))).thenReturn(snapshot);
+    sourcePersister = new SourcePersister(resourcePersister, new SnapshotSourceDao(getMyBatis()), getMyBatis(), settings);
   }
 
   @Test
   public void shouldSaveSource() {
     sourcePersister.saveSource(new JavaFile("org.foo.Bar"), "this is the file content");
+    sourcePersister.flush();
+    checkTables("shouldSaveSource", "snapshot_sources");
+  }
+
+  @Test
+  public void shouldSaveSourcesByBatches() {
+    settings.setProperty(CoreProperties.SOURCES_BATCH_SIZE, 1);
+    sourcePersister = new SourcePersister(resourcePersister, new SnapshotSourceDao(getMyBatis()), getMyBatis(), settings);
+
+    sourcePersister.saveSource(new JavaFile("org.foo.Bar"), "this is the file content");
+
+    checkTables("shouldSaveSource", "snapshot_sources");
+  }
+
+  @Test
+  public void shouldGetSourceBeforeAndAfterFlush() {
+    JavaFile file = new JavaFile("org.foo.Bar");
+    sourcePersister.saveSource(file, "this is the file content");
+    assertThat(sourcePersister.getSource(file)).isEqualTo("this is the file content");
+
+    sourcePersister.flush();
+    assertThat(sourcePersister.getSource(file)).isEqualTo("this is the file content");
+  }
+
+  @Test
+  public void shouldFlushWhenClearing() {
+    sourcePersister.saveSource(new JavaFile("org.foo.Bar"), "this is the file content");
+    sourcePersister.clear();
     checkTables("shouldSaveSource", "snapshot_sources");
   }
 
@@ -29,13 +29,20 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.issue.internal.DefaultIssueComment;
+import org.sonar.api.issue.internal.FieldDiffs;
+import org.sonar.api.issue.internal.IssueChangeContext;
+import org.sonar.api.issue.internal.WorkDayDuration;
+import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.Severity;
+import org.sonar.api.utils.DateUtils;
 import org.sonar.batch.index.Caches;
 import org.sonar.batch.index.CachesTest;
 
 import javax.annotation.Nullable;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -97,6 +104,58 @@ public class IssueCacheTest {
     assertThat(issues).containsOnly(issue1, issue2);
   }
 
+  @Test
+  public void should_restore_all_fields() throws Exception {
+    IssueCache cache = new IssueCache(caches);
+    Date date = DateUtils.parseDateTime("2013-05-18T12:00:00+0200");
+    DefaultIssue issue = new DefaultIssue().setKey("111").setComponentKey("org.struts.Action").setProjectKey("org.struts")
+      .setRuleKey(RuleKey.of("squid", "AvoidCycle")).setSeverity(Severity.BLOCKER).setManualSeverity(true)
+      .setMessage("the message").setLine(42).setEffortToFix(3.14).setTechnicalDebt(WorkDayDuration.of(10, 2, 1))
+      .setStatus(Issue.STATUS_OPEN).setReporter("emmerik").setAssignee("henry").setChecksum("c7b5db46591806455cf082bb348631e8")
+      .setAuthorLogin("arthur").setActionPlanKey("PLAN-1").setAttribute("JIRA", "FOO-123")
+      .setCreationDate(date).setUpdateDate(date).setSelectedAt(date)
+      .setNew(false).setChanged(true).setSendNotifications(true)
+      .addComment(DefaultIssueComment.create("111", "henry", "the comment").setKey("COMMENT-1").setCreatedAt(date))
+      .setFieldChange(IssueChangeContext.createUser(date, "henry"), "severity", Severity.MINOR, Severity.BLOCKER)
+      .addChange(new FieldDiffs().setUserLogin("arthur").setCreationDate(date).setDiff("line", 10, 42));
+    cache.put(issue);
+
+    DefaultIssue reloaded = cache.byComponent("org.struts.Action").iterator().next();
+    assertThat(reloaded).isNotSameAs(issue);
+    assertThat(reloaded.key()).isEqualTo("111");
+    assertThat(reloaded.projectKey()).isEqualTo("org.struts");
+    assertThat(reloaded.ruleKey()).isEqualTo(RuleKey.of("squid", "AvoidCycle"));
+    assertThat(reloaded.severity()).isEqualTo(Severity.BLOCKER);
+    assertThat(reloaded.manualSeverity()).isTrue();
+    assertThat(reloaded.message()).isEqualTo("the message");
+    assertThat(reloaded.line()).isEqualTo(42);
+    assertThat(reloaded.effortToFix()).isEqualTo(3.14);
+    assertThat(reloaded.technicalDebt()).isEqualTo(WorkDayDuration.of(10, 2, 1));
+    assertThat(reloaded.status()).isEqualTo(Issue.STATUS_OPEN);
+    assertThat(reloaded.resolution()).isNull();
+    assertThat(reloaded.reporter()).isEqualTo("emmerik");
+    assertThat(reloaded.assignee()).isEqualTo("henry");
+    assertThat(reloaded.checksum()).isEqualTo("c7b5db46591806455cf082bb348631e8");
+    assertThat(reloaded.authorLogin()).isEqualTo("arthur");
+    assertThat(reloaded.actionPlanKey()).isEqualTo("PLAN-1");
+    assertThat(reloaded.attribute("JIRA")).isEqualTo("FOO-123");
+    assertThat(reloaded.creationDate()).isEqualTo(date);
+    assertThat(reloaded.updateDate()).isEqualTo(date);
+    assertThat(reloaded.closeDate()).isNull();
+    assertThat(reloaded.selectedAt()).isEqualTo(date);
+    assertThat(reloaded.isNew()).isFalse();
+    assertThat(reloaded.isChanged()).isTrue();
+    assertThat(reloaded.mustSendNotifications()).isTrue();
+    assertThat(reloaded.comments()).hasSize(1);
+    assertThat(reloaded.comments().get(0).key()).isEqualTo("COMMENT-1");
+    assertThat(reloaded.comments().get(0).markdownText()).isEqualTo("the comment");
+    assertThat(reloaded.changes()).hasSize(2);
+    assertThat(reloaded.currentChange()).isSameAs(reloaded.changes().get(0));
+    assertThat(reloaded.currentChange().get("severity").oldValue()).isEqualTo(Severity.MINOR);
+    assertThat(reloaded.currentChange().userLogin()).isEqualTo("henry");
+    assertThat(reloaded.changes().get(1).get("line").newValue()).isEqualTo(42);
+  }
+
   private Collection<String> issueKeys(Iterable<DefaultIssue> issues) {
     return Collections2.transform(ImmutableList.copyOf(issues), new Function<DefaultIssue, String>() {
       @Override
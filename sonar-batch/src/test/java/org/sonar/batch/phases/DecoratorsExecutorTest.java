@@ -19,11 +19,15 @@
  */
 package org.sonar.batch.phases;
 
+import com.google.common.collect.Lists;
 import org.junit.Test;
 import org.sonar.api.batch.BatchExtensionDictionnary;
 import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.batch.ThreadSafe;
+import org.sonar.api.config.Settings;
+import org.sonar.api.resources.Directory;
 import org.sonar.api.resources.File;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
@@ -32,14 +36,24 @@ import org.sonar.batch.DefaultDecoratorContext;
 import org.sonar.batch.events.EventBus;
 import org.sonar.core.measure.MeasurementFilters;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.number.OrderingComparisons.greaterThanOrEqualTo;
 import static org.hamcrest.number.OrderingComparisons.lessThan;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.junit.matchers.JUnitMatchers.containsString;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class DecoratorsExecutorTest {
 
@@ -67,7 +81,7 @@ public class DecoratorsExecutorTest {
     doThrow(new SonarException()).when(decorator).decorate(any(Resource.class), any(DecoratorContext.class));
 
     DecoratorsExecutor executor = new DecoratorsExecutor(mock(BatchExtensionDictionnary.class), new Project("key"), mock(SonarIndex.class),
-      mock(EventBus.class), mock(MeasurementFilters.class));
+      mock(EventBus.class), mock(MeasurementFilters.class), new Settings());
     try {
       executor.executeDecorator(decorator, mock(DefaultDecoratorContext.class), File.create("src/org/foo/Bar.java", "org/foo/Bar.java", null, false));
       fail("Exception has not been thrown");
@@ -77,6 +91,159 @@ public class DecoratorsExecutorTest {
     }
   }
 
+  @Test
+  public void should_decorate_children_before_parents_when_concurrent() {
+    Project project = new Project("key");
+    Directory dir1 = new Directory("org/foo");
+    Directory dir2 = new Directory("org/bar");
+    File file1 = new File("org/foo/A.java");
+    File file2 = new File("org/foo/B.java");
+    File file3 = new File("org/bar/C.java");
+    SonarIndex index = mock(SonarIndex.class);
+    when(index.getChildren(project)).thenReturn(Arrays.<Resource>asList(dir1, dir2));
+    when(index.getChildren(dir1)).thenReturn(Arrays.<Resource>asList(file1, file2));
+    when(index.getChildren(dir2)).thenReturn(Arrays.<Resource>asList(file3));
+
+    RecordingDecorator threadSafeDecorator = new ThreadSafeRecordingDecorator();
+    RecordingDecorator decorator = new RecordingDecorator();
+
+    DecoratorsExecutor executor = new DecoratorsExecutor(mock(BatchExtensionDictionnary.class), project, index,
+      mock(EventBus.class), mock(MeasurementFilters.class), new Settings());
+    executor.decorateConcurrently(project, Arrays.<Decorator>asList(threadSafeDecorator, decorator), 4);
+
+    for (RecordingDecorator recorder : Arrays.asList(threadSafeDecorator, decorator)) {
+      List<Resource> decorated = recorder.decorated;
+      assertThat(decorated.size(), is(6));
+      assertThat(decorated.indexOf(file1), lessThan(decorated.indexOf(dir1)));
+      assertThat(decorated.indexOf(file2), lessThan(decorated.indexOf(dir1)));
+      assertThat(decorated.indexOf(file3), lessThan(decorated.indexOf(dir2)));
+      assertThat(decorated.indexOf(dir1), lessThan(decorated.indexOf(project)));
+      assertThat(decorated.indexOf(dir2), lessThan(decorated.indexOf(project)));
+    }
+  }
+
+  @Test
+  public void should_fail_when_concurrent_decorator_fails() {
+    Project project = new Project("key");
+    File file = new File("org/foo/A.java");
+    SonarIndex index = mock(SonarIndex.class);
+    when(index.getChildren(project)).thenReturn(Arrays.<Resource>asList(file));
+    Decorator decorator = mock(Decorator.class);
+    doThrow(new IllegalStateException()).when(decorator).decorate(eq(file), any(DecoratorContext.class));
+    DecoratorsExecutor executor = new DecoratorsExecutor(mock(BatchExtensionDictionnary.class), project, index,
+      mock(EventBus.class), mock(MeasurementFilters.class), new Settings());
+
+    try {
+      executor.decorateConcurrently(project, Arrays.asList(decorator), 2);
+      fail("Exception has not been thrown");
+
+    } catch (SonarException e) {
+      assertThat(e.getMessage(), containsString("org/foo/A.java"));
+    }
+  }
+
+  @Test
+  public void should_execute_thread_safe_decorators_concurrently() {
+    Project project = new Project("key");
+    File file1 = new File("org/foo/A.java");
+    File file2 = new File("org/foo/B.java");
+    SonarIndex index = mock(SonarIndex.class);
+    when(index.getChildren(project)).thenReturn(Arrays.<Resource>asList(file1, file2));
+
+    // fails if the two files are not decorated at the same time
+    BarrierDecorator threadSafeDecorator = new BarrierDecorator();
+    ConcurrencyRecordingDecorator decorator = new ConcurrencyRecordingDecorator();
+
+    DecoratorsExecutor executor = new DecoratorsExecutor(mock(BatchExtensionDictionnary.class), project, index,
+      mock(EventBus.class), mock(MeasurementFilters.class), new Settings());
+    executor.decorateConcurrently(project, Arrays.<Decorator>asList(threadSafeDecorator, decorator), 2);
+
+    assertThat(threadSafeDecorator.decorated.size(), is(3));
+    assertThat(decorator.calls.get(), is(3));
+    assertThat(decorator.maxConcurrentCalls.get(), is(1));
+  }
+
+  @Test
+  public void should_not_execute_subclasses_of_thread_safe_decorators_concurrently() {
+    Project project = new Project("key");
+    File file1 = new File("org/foo/A.java");
+    File file2 = new File("org/foo/B.java");
+    SonarIndex index = mock(SonarIndex.class);
+    when(index.getChildren(project)).thenReturn(Arrays.<Resource>asList(file1, file2));
+    ConcurrencyRecordingDecorator decorator = new SubclassOfThreadSafeDecorator();
+
+    DecoratorsExecutor executor = new DecoratorsExecutor(mock(BatchExtensionDictionnary.class), project, index,
+      mock(EventBus.class), mock(MeasurementFilters.class), new Settings());
+    executor.decorateConcurrently(project, Arrays.<Decorator>asList(decorator), 2);
+
+    assertThat(decorator.calls.get(), is(3));
+    assertThat(decorator.maxConcurrentCalls.get(), is(1));
+  }
+
+  static class RecordingDecorator implements Decorator {
+    final List<Resource> decorated = Collections.synchronizedList(Lists.<Resource>newArrayList());
+
+    public void decorate(Resource resource, DecoratorContext context) {
+      decorated.add(resource);
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+  }
+
+  @ThreadSafe
+  static class ThreadSafeRecordingDecorator extends RecordingDecorator {
+  }
+
+  @ThreadSafe
+  static class BarrierDecorator extends RecordingDecorator {
+    private final CyclicBarrier barrier = new CyclicBarrier(2);
+
+    @Override
+    public void decorate(Resource resource, DecoratorContext context) {
+      if (resource instanceof File) {
+        try {
+          barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+          throw new IllegalStateException("Files are not decorated concurrently", e);
+        }
+      }
+      super.decorate(resource, context);
+    }
+  }
+
+  static class ConcurrencyRecordingDecorator implements Decorator {
+    final AtomicInteger calls = new AtomicInteger();
+    final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+
+    public void decorate(Resource resource, DecoratorContext context) {
+      int concurrentCalls = running.incrementAndGet();
+      if (concurrentCalls > maxConcurrentCalls.get()) {
+        maxConcurrentCalls.set(concurrentCalls);
+      }
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      calls.incrementAndGet();
+      running.decrementAndGet();
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+  }
+
+  @ThreadSafe
+  static class ThreadSafeConcurrencyRecordingDecorator extends ConcurrencyRecordingDecorator {
+  }
+
+  static class SubclassOfThreadSafeDecorator extends ThreadSafeConcurrencyRecordingDecorator {
+  }
+
   static class Decorator1 implements Decorator {
     public void decorate(Resource resource, DecoratorContext context) {
     }
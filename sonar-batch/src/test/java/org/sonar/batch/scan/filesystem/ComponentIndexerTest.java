@@ -27,6 +27,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
 import org.mockito.exceptions.verification.junit.ArgumentsAreDifferent;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.SonarIndex;
@@ -43,6 +44,7 @@ import org.sonar.api.scan.filesystem.internal.DefaultInputFile;
 import org.sonar.api.scan.filesystem.internal.InputFile;
 import org.sonar.api.scan.filesystem.internal.InputFileBuilder;
 import org.sonar.batch.index.ResourceKeyMigration;
+import org.sonar.batch.index.ResourcePersister;
 import org.sonar.batch.scan.language.DefaultModuleLanguages;
 import org.sonar.core.resource.ResourceDao;
 
@@ -51,8 +53,11 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -67,6 +72,7 @@ public class ComponentIndexerTest {
   private AbstractLanguage cobolLanguage;
   private Project project;
   private Settings settings;
+  private ResourcePersister resourcePersister;
 
   private String aClaess;
   private String explicacao;
@@ -78,6 +84,7 @@ public class ComponentIndexerTest {
     sonarIndex = mock(SonarIndex.class);
     project = mock(Project.class);
     settings = new Settings();
+    resourcePersister = mock(ResourcePersister.class);
     cobolLanguage = new AbstractLanguage("cobol") {
       @Override
       public String[] getFileSuffixes() {
@@ -98,7 +105,7 @@ public class ComponentIndexerTest {
     when(project.getLanguageKey()).thenReturn(Java.KEY);
     Languages languages = new Languages(Java.INSTANCE);
     ComponentIndexer indexer = new ComponentIndexer(project, languages, sonarIndex, settings, mock(ResourceKeyMigration.class), new DefaultModuleLanguages(settings, languages),
-      mock(ResourceDao.class));
+      mock(ResourceDao.class), resourcePersister);
     indexer.execute(fs);
 
     verify(sonarIndex).index(JavaFile.create("src/main/java/foo/bar/Foo.java", "foo/bar/Foo.java", false));
@@ -112,6 +119,11 @@ public class ComponentIndexerTest {
           && javaFile.getQualifier().equals(Qualifiers.UNIT_TEST_FILE);
       }
     }));
+
+    InOrder inOrder = inOrder(resourcePersister, sonarIndex);
+    inOrder.verify(resourcePersister).startBulkRegistration(project);
+    inOrder.verify(sonarIndex, atLeastOnce()).index(any(Resource.class));
+    inOrder.verify(resourcePersister).stopBulkRegistration();
   }
 
   @Test
@@ -124,7 +136,7 @@ public class ComponentIndexerTest {
 
     Languages languages = new Languages(cobolLanguage);
     ComponentIndexer indexer = new ComponentIndexer(project, languages, sonarIndex, settings, mock(ResourceKeyMigration.class), new DefaultModuleLanguages(settings, languages),
-      mock(ResourceDao.class));
+      mock(ResourceDao.class), resourcePersister);
     indexer.execute(fs);
 
     verify(sonarIndex).index(org.sonar.api.resources.File.create("/src/foo/bar/Foo.cbl", "foo/bar/Foo.cbl", cobolLanguage, false));
@@ -141,7 +153,7 @@ public class ComponentIndexerTest {
     when(project.getLanguageKey()).thenReturn(Java.KEY);
     Languages languages = new Languages(Java.INSTANCE);
     ComponentIndexer indexer = new ComponentIndexer(project, languages, sonarIndex, settings, mock(ResourceKeyMigration.class), new DefaultModuleLanguages(settings, languages),
-      mock(ResourceDao.class));
+      mock(ResourceDao.class), resourcePersister);
     indexer.execute(fs);
 
     Resource sonarFile = JavaFile.create("src/main/java/foo/bar/Foo.java", "foo/bar/Foo.java", false);
@@ -194,7 +206,7 @@ public class ComponentIndexerTest {
     when(project.getLanguageKey()).thenReturn(Java.KEY);
     Languages languages = new Languages(Java.INSTANCE);
     ComponentIndexer indexer = new ComponentIndexer(project, languages, sonarIndex, settings, mock(ResourceKeyMigration.class), new DefaultModuleLanguages(settings, languages),
-      mock(ResourceDao.class));
+      mock(ResourceDao.class), resourcePersister);
     indexer.execute(fs);
 
     Resource sonarFile = JavaFile.create("src/main/java/foo/bar/Foo.java", "foo/bar/Foo.java", false);
@@ -223,7 +235,7 @@ public class ComponentIndexerTest {
     when(project.getLanguageKey()).thenReturn(Java.KEY);
     Languages languages = new Languages(Java.INSTANCE);
     ComponentIndexer indexer = new ComponentIndexer(project, languages, sonarIndex, settings, mock(ResourceKeyMigration.class), new DefaultModuleLanguages(settings, languages),
-      mock(ResourceDao.class));
+      mock(ResourceDao.class), resourcePersister);
     indexer.execute(fs);
 
     Resource sonarFile = JavaFile.create("/src/main/java/foo/bar/Foo.java", "foo/bar/Foo.java", false);
@@ -20,13 +20,23 @@
 package org.sonar.batch.scan.filesystem;
 
 import com.google.common.base.Charsets;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.Random;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -69,6 +79,43 @@ public class FileHashDigestTest {
     assertThat(hash1).isNotEqualTo(hash4);
   }
 
+  @Test
+  public void should_normalize_line_ends_of_files_larger_than_buffers() throws Exception {
+    StringBuilder unix = new StringBuilder();
+    StringBuilder windows = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      unix.append("line ").append(i).append("\n");
+      windows.append("line ").append(i).append("\r\n");
+    }
+    File file1 = temp.newFile();
+    FileUtils.write(file1, unix.toString(), Charsets.UTF_8);
+    File file2 = temp.newFile();
+    FileUtils.write(file2, windows.toString(), Charsets.UTF_8);
+
+    assertThat(FileHashDigest.INSTANCE.hash(file1, Charsets.UTF_8)).isEqualTo(FileHashDigest.INSTANCE.hash(file2, Charsets.UTF_8));
+  }
+
+  /**
+   * Hashes are stored in database, so they must not change with the implementation of version 4.2
+   */
+  @Test
+  public void should_compute_same_hash_than_char_by_char_implementation() throws Exception {
+    String[] eols = {"\n", "\r\n", "\r"};
+    Random random = new Random(42);
+    for (int i = 0; i < 20; i++) {
+      StringBuilder sb = new StringBuilder();
+      int lines = 50 + random.nextInt(1000);
+      for (int line = 0; line < lines; line++) {
+        sb.append("  public void method").append(line).append("() { return \"caf\u00e9 \u00fcber\"; }");
+        sb.append(eols[random.nextInt(eols.length)]);
+      }
+      File file = temp.newFile();
+      FileUtils.write(file, sb.toString(), Charsets.UTF_8);
+
+      assertThat(FileHashDigest.INSTANCE.hash(file, Charsets.UTF_8)).isEqualTo(charByCharHash(file, Charsets.UTF_8));
+    }
+  }
+
   @Test
   public void should_throw_if_file_does_not_exist() throws Exception {
     File tempFolder = temp.newFolder();
@@ -79,4 +126,33 @@ public class FileHashDigestTest {
 
     FileHashDigest.INSTANCE.hash(file, Charsets.UTF_8);
   }
+
+  private static String charByCharHash(File file, Charset charset) throws Exception {
+    Reader reader = null;
+    try {
+      MessageDigest md5Digest = DigestUtils.getMd5Digest();
+      reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset));
+      int i = reader.read();
+      boolean afterCR = true;
+      while (i != -1) {
+        char c = (char) i;
+        if (afterCR) {
+          afterCR = false;
+          if (c == '\n') {
+            i = reader.read();
+            continue;
+          }
+        }
+        if (c == '\r') {
+          afterCR = true;
+          c = '\n';
+        }
+        md5Digest.update(new byte[] {(byte) ((c & 0xFF00) >> 8), (byte) (c & 0x00FF)});
+        i = reader.read();
+      }
+      return Hex.encodeHexString(md5Digest.digest());
+    } finally {
+      IOUtils.closeQuietly(reader);
+    }
+  }
 }
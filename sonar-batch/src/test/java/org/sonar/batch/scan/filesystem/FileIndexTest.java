@@ -0,0 +1,137 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.scan.filesystem;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.config.Settings;
+import org.sonar.api.resources.Languages;
+import org.sonar.api.resources.Project;
+import org.sonar.api.scan.filesystem.PathResolver;
+import org.sonar.api.scan.filesystem.internal.InputFile;
+import org.sonar.api.scan.filesystem.internal.InputFileFilter;
+import org.sonar.batch.index.Caches;
+import org.sonar.batch.index.CachesTest;
+import org.sonar.batch.scan.filesystem.LanguageRecognizerTest.MockLanguage;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FileIndexTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  Caches caches;
+  DefaultModuleFileSystem fileSystem;
+  LanguageRecognizer languageRecognizer;
+
+  @Before
+  public void before() throws Exception {
+    caches = CachesTest.createCacheOnTemp(temp);
+    caches.start();
+
+    File baseDir = temp.newFolder();
+    File sourceDir = new File(baseDir, "src/main/java");
+    File testDir = new File(baseDir, "src/test/java");
+    for (int i = 0; i < 30; i++) {
+      FileUtils.write(new File(sourceDir, "org/foo/Foo" + i + ".java"), "class Foo" + i + " {}");
+      FileUtils.write(new File(sourceDir, "org/foo/Foo" + i + ".cbl"), "cobol " + i);
+      FileUtils.write(new File(sourceDir, "org/foo/Foo" + i + ".txt"), "no language " + i);
+    }
+    for (int i = 0; i < 10; i++) {
+      FileUtils.write(new File(testDir, "org/foo/Foo" + i + "Test.java"), "class Foo" + i + "Test {}");
+    }
+
+    fileSystem = mock(DefaultModuleFileSystem.class);
+    when(fileSystem.moduleKey()).thenReturn("foo");
+    when(fileSystem.baseDir()).thenReturn(baseDir);
+    when(fileSystem.sourceCharset()).thenReturn(Charsets.UTF_8);
+    when(fileSystem.sourceDirs()).thenReturn(Arrays.asList(sourceDir));
+    when(fileSystem.testDirs()).thenReturn(Arrays.asList(testDir));
+    when(fileSystem.sourceFiles()).thenReturn(Collections.<File>emptyList());
+    when(fileSystem.testFiles()).thenReturn(Collections.<File>emptyList());
+
+    languageRecognizer = new LanguageRecognizer(new Settings(), new Languages(new MockLanguage("java", "java"), new MockLanguage("cobol", "cbl")));
+    languageRecognizer.start();
+  }
+
+  @After
+  public void after() {
+    languageRecognizer.stop();
+    caches.stop();
+  }
+
+  @Test
+  public void should_index_same_files_concurrently() {
+    List<InputFile> sequential = index(1);
+    List<InputFile> concurrent = index(4);
+
+    // 30 java + 30 cobol source files, 10 java test files. Files of unknown language and excluded files are ignored.
+    assertThat(sequential).hasSize(69);
+    // files are returned in the order of their relative paths, whatever the number of threads
+    List<String> paths = paths(concurrent);
+    assertThat(paths).isEqualTo(paths(sequential));
+    assertThat(Ordering.natural().isOrdered(paths)).isTrue();
+    for (int i = 0; i < sequential.size(); i++) {
+      assertThat(concurrent.get(i).attributes()).isEqualTo(sequential.get(i).attributes());
+    }
+  }
+
+  private static List<String> paths(List<InputFile> inputFiles) {
+    List<String> paths = Lists.newArrayList();
+    for (InputFile inputFile : inputFiles) {
+      paths.add(inputFile.path());
+    }
+    return paths;
+  }
+
+  private List<InputFile> index(int threads) {
+    InputFileCache cache = new InputFileCache(caches);
+    cache.removeModule("foo");
+    Settings settings = new Settings().setProperty(CoreProperties.INDEX_THREADS, threads);
+    InputFileFilter filter = new InputFileFilter() {
+      @Override
+      public boolean accept(InputFile inputFile) {
+        return !inputFile.path().endsWith("Foo0.cbl");
+      }
+    };
+    FileIndex fileIndex = new FileIndex(Arrays.asList(filter), languageRecognizer, cache,
+      new FileHashes(mock(RemoteFileHashes.class)), new PathResolver(), new Project("foo"), settings);
+
+    fileIndex.index(fileSystem);
+
+    return Lists.newArrayList(fileIndex.inputFiles("foo"));
+  }
+}
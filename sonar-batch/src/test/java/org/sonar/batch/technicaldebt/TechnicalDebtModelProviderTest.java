@@ -25,6 +25,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.sonar.api.technicaldebt.batch.TechnicalDebtModel;
+import org.sonar.core.technicaldebt.DefaultTechnicalDebtModel;
+import org.sonar.core.technicaldebt.IndexedTechnicalDebtModel;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -37,17 +39,17 @@ public class TechnicalDebtModelProviderTest {
 
   @Test
   public void load_model() {
-    TechnicalDebtModel model = mock(TechnicalDebtModel.class);
+    DefaultTechnicalDebtModel model = new DefaultTechnicalDebtModel();
     when(loader.load()).thenReturn(model);
 
     TechnicalDebtModelProvider provider = new TechnicalDebtModelProvider();
     TechnicalDebtModel result = provider.provide(loader);
-    assertThat(result).isNotNull();
+    assertThat(result).isInstanceOf(IndexedTechnicalDebtModel.class);
   }
 
   @Test
   public void load_model_only_once() {
-    TechnicalDebtModel model = mock(TechnicalDebtModel.class);
+    DefaultTechnicalDebtModel model = new DefaultTechnicalDebtModel();
     when(loader.load()).thenReturn(model);
 
     TechnicalDebtModelProvider provider = new TechnicalDebtModelProvider();
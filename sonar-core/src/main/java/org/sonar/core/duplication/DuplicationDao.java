@@ -19,13 +19,18 @@
  */
 package org.sonar.core.duplication;
 
+import com.google.common.collect.Maps;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.SqlSession;
 import org.sonar.api.BatchComponent;
 import org.sonar.api.ServerComponent;
 import org.sonar.core.persistence.MyBatis;
 
+import javax.annotation.Nullable;
+
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public class DuplicationDao implements BatchComponent, ServerComponent {
 
@@ -45,6 +50,23 @@ public class DuplicationDao implements BatchComponent, ServerComponent {
     }
   }
 
+  /**
+   * Same as {@link #selectCandidates(int, Integer, String)}, but rows are streamed to the handler
+   * instead of being loaded in memory.
+   */
+  public void selectCandidates(int resourceSnapshotId, @Nullable Integer lastSnapshotId, String language, ResultHandler handler) {
+    SqlSession session = mybatis.openSession();
+    try {
+      Map<String, Object> params = Maps.newHashMap();
+      params.put("resource_snapshot_id", resourceSnapshotId);
+      params.put("last_project_snapshot_id", lastSnapshotId);
+      params.put("language", language);
+      session.select("org.sonar.core.duplication.DuplicationMapper.selectCandidates", params, handler);
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
   /**
    * Insert rows in the table DUPLICATIONS_INDEX.
    * Note that generated ids are not returned.
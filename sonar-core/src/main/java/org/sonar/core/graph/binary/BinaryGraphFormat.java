@@ -0,0 +1,124 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.graph.binary;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Constants and variable-length encoding of integers shared by {@link BinaryGraphWriter} and {@link BinaryGraphReader}.
+ * <p/>
+ * Layout, after Base64 decoding:
+ * <pre>
+ * version
+ * number of strings, strings (UTF-8 length and bytes)
+ * number of vertices, vertices (id, properties)
+ * number of edges, edges (id, index of out vertex, index of in vertex, label, properties)
+ * </pre>
+ * Ids, labels, property keys and string values are written as indexes in the dictionary of strings.
+ *
+ * @since 4.2
+ */
+final class BinaryGraphFormat {
+
+  static final byte TYPE_NULL = 0;
+  static final byte TYPE_STRING = 1;
+  static final byte TYPE_INTEGER = 2;
+  static final byte TYPE_LONG = 3;
+  static final byte TYPE_BOOLEAN = 4;
+  static final byte TYPE_FLOAT = 5;
+  static final byte TYPE_DOUBLE = 6;
+  static final byte TYPE_LIST = 7;
+  static final byte TYPE_MAP = 8;
+
+  private BinaryGraphFormat() {
+    // only static stuff
+  }
+
+  static void writeUnsignedVarInt(DataOutputStream output, int value) throws IOException {
+    int v = value;
+    while ((v & ~0x7F) != 0) {
+      output.writeByte((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    output.writeByte(v);
+  }
+
+  static void writeUnsignedVarLong(DataOutputStream output, long value) throws IOException {
+    long v = value;
+    while ((v & ~0x7FL) != 0L) {
+      output.writeByte(((int) v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    output.writeByte((int) v);
+  }
+
+  /**
+   * Zig-zag encoding, so that small negative values are written on few bytes.
+   */
+  static void writeVarInt(DataOutputStream output, int value) throws IOException {
+    writeUnsignedVarInt(output, (value << 1) ^ (value >> 31));
+  }
+
+  static void writeVarLong(DataOutputStream output, long value) throws IOException {
+    writeUnsignedVarLong(output, (value << 1) ^ (value >> 63));
+  }
+
+  static int readUnsignedVarInt(DataInputStream input) throws IOException {
+    int value = 0;
+    int shift = 0;
+    int b;
+    do {
+      if (shift > 28) {
+        throw new IllegalStateException("Malformed variable-length integer");
+      }
+      b = input.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  static long readUnsignedVarLong(DataInputStream input) throws IOException {
+    long value = 0L;
+    int shift = 0;
+    int b;
+    do {
+      if (shift > 63) {
+        throw new IllegalStateException("Malformed variable-length long");
+      }
+      b = input.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  static int readVarInt(DataInputStream input) throws IOException {
+    int raw = readUnsignedVarInt(input);
+    return (raw >>> 1) ^ -(raw & 1);
+  }
+
+  static long readVarLong(DataInputStream input) throws IOException {
+    long raw = readUnsignedVarLong(input);
+    return (raw >>> 1) ^ -(raw & 1L);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.graph.binary;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import org.apache.commons.codec.binary.Base64;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.sonar.core.graph.binary.BinaryGraphFormat.*;
+
+/**
+ * Reads the graphs written by {@link BinaryGraphWriter}.
+ *
+ * @since 4.2
+ */
+public class BinaryGraphReader {
+
+  public Graph read(String data, Graph toGraph) {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(Base64.decodeBase64(data)));
+    try {
+      int version = readUnsignedVarInt(input);
+      if (version != BinaryGraphWriter.VERSION) {
+        throw new IllegalStateException("Unsupported version of binary graph: " + version);
+      }
+      String[] dictionary = readDictionary(input);
+
+      Vertex[] vertices = new Vertex[readUnsignedVarInt(input)];
+      for (int i = 0; i < vertices.length; i++) {
+        vertices[i] = toGraph.addVertex(dictionary[readUnsignedVarInt(input)]);
+        readProperties(input, dictionary, vertices[i]);
+      }
+
+      int edges = readUnsignedVarInt(input);
+      for (int i = 0; i < edges; i++) {
+        String id = dictionary[readUnsignedVarInt(input)];
+        Vertex out = vertices[readUnsignedVarInt(input)];
+        Vertex in = vertices[readUnsignedVarInt(input)];
+        Edge edge = toGraph.addEdge(id, out, in, dictionary[readUnsignedVarInt(input)]);
+        readProperties(input, dictionary, edge);
+      }
+      return toGraph;
+
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read binary graph", e);
+    }
+  }
+
+  private static String[] readDictionary(DataInputStream input) throws IOException {
+    String[] dictionary = new String[readUnsignedVarInt(input)];
+    for (int i = 0; i < dictionary.length; i++) {
+      byte[] utf8 = new byte[readUnsignedVarInt(input)];
+      input.readFully(utf8);
+      dictionary[i] = new String(utf8, Charsets.UTF_8);
+    }
+    return dictionary;
+  }
+
+  private static void readProperties(DataInputStream input, String[] dictionary, Element element) throws IOException {
+    int size = readUnsignedVarInt(input);
+    for (int i = 0; i < size; i++) {
+      String key = dictionary[readUnsignedVarInt(input)];
+      Object value = readValue(input, dictionary);
+      if (value != null) {
+        element.setProperty(key, value);
+      }
+    }
+  }
+
+  private static Object readValue(DataInputStream input, String[] dictionary) throws IOException {
+    byte type = input.readByte();
+    switch (type) {
+      case TYPE_NULL:
+        return null;
+      case TYPE_STRING:
+        return dictionary[readUnsignedVarInt(input)];
+      case TYPE_INTEGER:
+        return readVarInt(input);
+      case TYPE_LONG:
+        return readVarLong(input);
+      case TYPE_BOOLEAN:
+        return input.readBoolean();
+      case TYPE_FLOAT:
+        return input.readFloat();
+      case TYPE_DOUBLE:
+        return input.readDouble();
+      case TYPE_LIST:
+        int listSize = readUnsignedVarInt(input);
+        List<Object> list = Lists.newArrayListWithCapacity(listSize);
+        for (int i = 0; i < listSize; i++) {
+          list.add(readValue(input, dictionary));
+        }
+        return list;
+      case TYPE_MAP:
+        int mapSize = readUnsignedVarInt(input);
+        Map<String, Object> map = Maps.newHashMap();
+        for (int i = 0; i < mapSize; i++) {
+          String key = dictionary[readUnsignedVarInt(input)];
+          map.put(key, readValue(input, dictionary));
+        }
+        return map;
+      default:
+        throw new IllegalStateException("Unknown type of graph property: " + type);
+    }
+  }
+}
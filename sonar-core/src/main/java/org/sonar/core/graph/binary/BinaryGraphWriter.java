@@ -0,0 +1,162 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.graph.binary;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.Vertex;
+import org.apache.commons.codec.binary.Base64;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.sonar.core.graph.binary.BinaryGraphFormat.*;
+
+/**
+ * Writes a graph in a compact binary format, encoded in Base64 so that it can be stored in text columns.
+ * Much smaller and faster to read than GraphSON.
+ *
+ * @since 4.2
+ */
+public class BinaryGraphWriter {
+
+  /**
+   * Value of the column graphs.format
+   */
+  public static final String FORMAT = "binary";
+  public static final int VERSION = 1;
+
+  public String write(Graph graph) {
+    try {
+      return Base64.encodeBase64String(new Encoding().encode(graph));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write binary graph", e);
+    }
+  }
+
+  private static class Encoding {
+    private final Map<String, Integer> dictionary = Maps.newLinkedHashMap();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream body = new DataOutputStream(bytes);
+
+    byte[] encode(Graph graph) throws IOException {
+      Map<Object, Integer> vertexIndexes = Maps.newHashMap();
+      List<Vertex> vertices = Lists.newArrayList(graph.getVertices());
+      writeUnsignedVarInt(body, vertices.size());
+      for (Vertex vertex : vertices) {
+        vertexIndexes.put(vertex.getId(), vertexIndexes.size());
+        writeString(vertex.getId().toString());
+        writeProperties(vertex);
+      }
+
+      List<Edge> edges = Lists.newArrayList(graph.getEdges());
+      writeUnsignedVarInt(body, edges.size());
+      for (Edge edge : edges) {
+        writeString(edge.getId().toString());
+        writeUnsignedVarInt(body, vertexIndexes.get(edge.getVertex(Direction.OUT).getId()));
+        writeUnsignedVarInt(body, vertexIndexes.get(edge.getVertex(Direction.IN).getId()));
+        writeString(edge.getLabel());
+        writeProperties(edge);
+      }
+      body.flush();
+
+      ByteArrayOutputStream result = new ByteArrayOutputStream(bytes.size() + 16 * dictionary.size());
+      DataOutputStream header = new DataOutputStream(result);
+      writeUnsignedVarInt(header, VERSION);
+      writeUnsignedVarInt(header, dictionary.size());
+      for (String s : dictionary.keySet()) {
+        byte[] utf8 = s.getBytes(Charsets.UTF_8);
+        writeUnsignedVarInt(header, utf8.length);
+        header.write(utf8);
+      }
+      header.flush();
+      bytes.writeTo(result);
+      return result.toByteArray();
+    }
+
+    private void writeString(String s) throws IOException {
+      Integer index = dictionary.get(s);
+      if (index == null) {
+        index = dictionary.size();
+        dictionary.put(s, index);
+      }
+      writeUnsignedVarInt(body, index);
+    }
+
+    private void writeProperties(Element element) throws IOException {
+      Set<String> keys = element.getPropertyKeys();
+      writeUnsignedVarInt(body, keys.size());
+      for (String key : keys) {
+        writeString(key);
+        writeValue(element.getProperty(key));
+      }
+    }
+
+    private void writeValue(Object value) throws IOException {
+      if (value == null) {
+        body.writeByte(TYPE_NULL);
+      } else if (value instanceof String) {
+        body.writeByte(TYPE_STRING);
+        writeString((String) value);
+      } else if (value instanceof Integer) {
+        body.writeByte(TYPE_INTEGER);
+        writeVarInt(body, (Integer) value);
+      } else if (value instanceof Long) {
+        body.writeByte(TYPE_LONG);
+        writeVarLong(body, (Long) value);
+      } else if (value instanceof Boolean) {
+        body.writeByte(TYPE_BOOLEAN);
+        body.writeBoolean((Boolean) value);
+      } else if (value instanceof Float) {
+        body.writeByte(TYPE_FLOAT);
+        body.writeFloat((Float) value);
+      } else if (value instanceof Double) {
+        body.writeByte(TYPE_DOUBLE);
+        body.writeDouble((Double) value);
+      } else if (value instanceof List) {
+        body.writeByte(TYPE_LIST);
+        List<?> list = (List<?>) value;
+        writeUnsignedVarInt(body, list.size());
+        for (Object item : list) {
+          writeValue(item);
+        }
+      } else if (value instanceof Map) {
+        body.writeByte(TYPE_MAP);
+        Map<?, ?> map = (Map<?, ?>) value;
+        writeUnsignedVarInt(body, map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          writeString(entry.getKey().toString());
+          writeValue(entry.getValue());
+        }
+      } else {
+        throw new IllegalArgumentException("Unsupported type of graph property: " + value.getClass());
+      }
+    }
+  }
+}
@@ -102,6 +102,45 @@ public class IssueDao implements BatchComponent, ServerComponent {
     return mapper.selectIssueIds(query, query.componentRoots(), userId, query.requiredRole(), maxResults);
   }
 
+  /**
+   * The returned IssueDto list contains only the issue id and the sort column of the first issues, sorted by the database
+   * according to the query.
+   *
+   * @since 4.2
+   */
+  public List<IssueDto> selectSortedIssueIds(IssueQuery query, @Nullable Integer userId, int maxResults, SqlSession session) {
+    IssueMapper mapper = session.getMapper(IssueMapper.class);
+    return mapper.selectSortedIssueIds(query, query.componentRoots(), userId, query.requiredRole(), maxResults);
+  }
+
+  @VisibleForTesting
+  List<IssueDto> selectSortedIssueIds(IssueQuery query, int maxResults) {
+    SqlSession session = mybatis.openSession();
+    try {
+      return selectSortedIssueIds(query, null, maxResults, session);
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  /**
+   * @since 4.2
+   */
+  public int countIssues(IssueQuery query, @Nullable Integer userId, SqlSession session) {
+    IssueMapper mapper = session.getMapper(IssueMapper.class);
+    return mapper.countIssues(query, query.componentRoots(), userId, query.requiredRole());
+  }
+
+  @VisibleForTesting
+  int countIssues(IssueQuery query) {
+    SqlSession session = mybatis.openSession();
+    try {
+      return countIssues(query, null, session);
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
   public List<IssueDto> selectIssues(IssueQuery query) {
     SqlSession session = mybatis.openSession();
     try {
@@ -332,6 +332,32 @@ public final class IssueDto implements Serializable {
     return this;
   }
 
+  /**
+   * Should only be used to restore a DTO previously loaded from db, for example
+   * from a batch cache.
+   */
+  public IssueDto setRuleKey(String repo, String rule) {
+    this.ruleRepo = repo;
+    this.ruleKey = rule;
+    return this;
+  }
+
+  /**
+   * @see #setRuleKey(String, String)
+   */
+  public IssueDto setComponentKey(String componentKey) {
+    this.componentKey = componentKey;
+    return this;
+  }
+
+  /**
+   * @see #setRuleKey(String, String)
+   */
+  public IssueDto setRootComponentKey(String rootComponentKey) {
+    this.rootComponentKey = rootComponentKey;
+    return this;
+  }
+
   /**
    * Only for unit tests
    */
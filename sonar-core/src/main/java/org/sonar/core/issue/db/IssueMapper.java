@@ -41,6 +41,21 @@ public interface IssueMapper {
                                 @Nullable @Param("userId") Integer userId, @Nullable @Param("role") String role,
                                 @Param("maxResults") Integer maxResult);
 
+  /**
+   * Return the ids of the first authorized issues for a user, sorted as requested by the query.
+   * If the role is null, then the authorisation check is disabled.
+   */
+  List<IssueDto> selectSortedIssueIds(@Param("query") IssueQuery query, @Param("componentRootKeys") Collection<String> componentRootKeys,
+                                      @Nullable @Param("userId") Integer userId, @Nullable @Param("role") String role,
+                                      @Param("maxResults") Integer maxResult);
+
+  /**
+   * Return the number of authorized issues for a user.
+   * If the role is null, then the authorisation check is disabled.
+   */
+  int countIssues(@Param("query") IssueQuery query, @Param("componentRootKeys") Collection<String> componentRootKeys,
+                  @Nullable @Param("userId") Integer userId, @Nullable @Param("role") String role);
+
   /**
    * Return a none paginated list of authorized issues for a user.
    * If the role is null, then the authorisation check is disabled.
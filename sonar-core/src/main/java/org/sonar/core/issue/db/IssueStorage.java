@@ -19,8 +19,12 @@
  */
 package org.sonar.core.issue.db;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.session.SqlSession;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.issue.IssueComment;
 import org.sonar.api.issue.internal.DefaultIssue;
@@ -31,9 +35,12 @@ import org.sonar.api.rules.RuleFinder;
 import org.sonar.core.persistence.BatchSession;
 import org.sonar.core.persistence.MyBatis;
 
+import java.sql.Statement;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Save issues into database. It is executed :
@@ -46,9 +53,20 @@ import java.util.List;
  */
 public abstract class IssueStorage {
 
+  /**
+   * Number of issues updated between two reads of JDBC batch results. Must be lower than the size of
+   * batch sessions, which are flushed without returning the results when full.
+   */
+  private static final int UPDATE_CHUNK_SIZE = 100;
+  private static final String UPDATE_IF_BEFORE_SELECTED_DATE = IssueMapper.class.getName() + ".updateIfBeforeSelectedDate";
+  // Oracle drivers return SUCCESS_NO_INFO instead of the number of rows updated by batched prepared statements
+  private static final String ORACLE_DATABASE_ID = "oracle";
+
   private final MyBatis mybatis;
   private final RuleFinder ruleFinder;
   private final UpdateConflictResolver conflictResolver = new UpdateConflictResolver();
+  // set to false as soon as the driver does not return the number of rows updated by batched statements
+  private volatile boolean batchUpdateCountsSupported = true;
 
   protected IssueStorage(MyBatis mybatis, RuleFinder ruleFinder) {
     this.mybatis = mybatis;
@@ -60,8 +78,6 @@ public abstract class IssueStorage {
   }
 
   public void save(Iterable<DefaultIssue> issues) {
-    // Batch session can not be used for updates. It does not return the number of updated rows,
-    // required for detecting conflicts.
     Date now = new Date();
     List<DefaultIssue> toBeUpdated = batchInsert(issues, now);
     update(toBeUpdated, now);
@@ -102,24 +118,120 @@ public abstract class IssueStorage {
 
   private void update(List<DefaultIssue> toBeUpdated, Date now) {
     if (!toBeUpdated.isEmpty()) {
-      SqlSession session = mybatis.openSession();
-      try {
-        IssueMapper issueMapper = session.getMapper(IssueMapper.class);
-        IssueChangeMapper issueChangeMapper = session.getMapper(IssueChangeMapper.class);
-        for (DefaultIssue issue : toBeUpdated) {
-          update(issueMapper, now, issue);
+      if (batchUpdateCountsSupported) {
+        batchUpdate(toBeUpdated, now);
+      } else {
+        updateOneByOne(toBeUpdated, now);
+      }
+    }
+  }
+
+  /**
+   * Updates are sent by JDBC batches. The number of rows updated by each statement, as returned by the driver,
+   * is used to detect the conflicts with changes done by end-users.
+   */
+  private void batchUpdate(List<DefaultIssue> toBeUpdated, Date now) {
+    List<DefaultIssue> remaining = toBeUpdated;
+    BatchSession session = mybatis.openBatchSession();
+    try {
+      if (ORACLE_DATABASE_ID.equals(session.getConfiguration().getDatabaseId())) {
+        batchUpdateCountsSupported = false;
+      }
+      IssueMapper issueMapper = session.getMapper(IssueMapper.class);
+      IssueChangeMapper issueChangeMapper = session.getMapper(IssueChangeMapper.class);
+      for (List<DefaultIssue> chunk : Lists.partition(toBeUpdated, UPDATE_CHUNK_SIZE)) {
+        if (!batchUpdateCountsSupported) {
+          break;
+        }
+        List<DefaultIssue> conflicts = batchUpdate(session, issueMapper, chunk, now);
+        for (DefaultIssue issue : chunk) {
           insertChanges(issueChangeMapper, issue);
         }
-        session.commit();
-      } finally {
-        MyBatis.closeQuietly(session);
+        for (DefaultIssue conflict : conflicts) {
+          conflictResolver.resolve(conflict, issueMapper);
+        }
+        remaining = remaining.subList(chunk.size(), remaining.size());
+      }
+      session.commit();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+    if (!remaining.isEmpty()) {
+      updateOneByOne(remaining, now);
+    }
+  }
+
+  /**
+   * @return the issues which were not updated because of a conflict, or which may not have been updated when
+   * the driver does not return the number of updated rows
+   */
+  private List<DefaultIssue> batchUpdate(BatchSession session, IssueMapper issueMapper, List<DefaultIssue> issues, Date now) {
+    // pending statements are flushed first, so that the session is not flushed automatically before reading results
+    session.flushStatements();
+
+    // statements are grouped by SQL, so that they are executed in the same JDBC batch
+    Map<IssueDto, DefaultIssue> conditionalUpdates = new IdentityHashMap<IssueDto, DefaultIssue>();
+    for (DefaultIssue issue : issues) {
+      IssueDto dto = IssueDto.toDtoForUpdate(issue, now);
+      if (isUpdatedUnconditionally(issue)) {
+        issueMapper.update(dto);
+      } else {
+        conditionalUpdates.put(dto, issue);
+      }
+    }
+    for (IssueDto dto : conditionalUpdates.keySet()) {
+      issueMapper.updateIfBeforeSelectedDate(dto);
+    }
+
+    return conflicts(session.flushStatements(), conditionalUpdates);
+  }
+
+  @VisibleForTesting
+  List<DefaultIssue> conflicts(List<BatchResult> results, Map<IssueDto, DefaultIssue> conditionalUpdates) {
+    List<DefaultIssue> conflicts = Lists.newArrayList();
+    for (BatchResult result : results) {
+      if (UPDATE_IF_BEFORE_SELECTED_DATE.equals(result.getMappedStatement().getId())) {
+        int[] counts = result.getUpdateCounts();
+        List<Object> dtos = result.getParameterObjects();
+        for (int i = 0; i < counts.length; i++) {
+          if (counts[i] == Statement.SUCCESS_NO_INFO) {
+            // the row may not have been updated, so it's handled as a conflict. The resolver re-reads and merges the issue.
+            conflicts.add(conditionalUpdates.get(dtos.get(i)));
+            if (batchUpdateCountsSupported) {
+              LoggerFactory.getLogger(IssueStorage.class).warn("JDBC driver does not return the number of updated rows. Issues are updated one by one.");
+              batchUpdateCountsSupported = false;
+            }
+          } else if (counts[i] == 0) {
+            conflicts.add(conditionalUpdates.get(dtos.get(i)));
+          }
+        }
       }
     }
+    return conflicts;
+  }
+
+  private void updateOneByOne(List<DefaultIssue> toBeUpdated, Date now) {
+    SqlSession session = mybatis.openSession();
+    try {
+      IssueMapper issueMapper = session.getMapper(IssueMapper.class);
+      IssueChangeMapper issueChangeMapper = session.getMapper(IssueChangeMapper.class);
+      for (DefaultIssue issue : toBeUpdated) {
+        update(issueMapper, now, issue);
+        insertChanges(issueChangeMapper, issue);
+      }
+      session.commit();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  private static boolean isUpdatedUnconditionally(DefaultIssue issue) {
+    return Issue.STATUS_CLOSED.equals(issue.status()) || issue.selectedAt() == null;
   }
 
   private void update(IssueMapper issueMapper, Date now, DefaultIssue issue) {
     IssueDto dto = IssueDto.toDtoForUpdate(issue, now);
-    if (Issue.STATUS_CLOSED.equals(issue.status()) || issue.selectedAt() == null) {
+    if (isUpdatedUnconditionally(issue)) {
       // Issue is closed by scan or changed by end-user
       issueMapper.update(dto);
 
@@ -23,6 +23,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
 import org.slf4j.Logger;
@@ -36,12 +37,14 @@ import org.sonar.core.notification.db.NotificationQueueDao;
 import org.sonar.core.notification.db.NotificationQueueDto;
 import org.sonar.core.properties.PropertiesDao;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import java.io.IOException;
 import java.io.InvalidClassException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @since 2.10
@@ -58,6 +61,9 @@ public class DefaultNotificationManager implements NotificationManager {
 
   private boolean alreadyLoggedDeserializationIssue = false;
 
+  // notifications returned by getFromQueue(int) but not removed from queue yet. Keys are compared by identity.
+  private final Map<Notification, NotificationQueueDto> dequeuedNotifications = Maps.newIdentityHashMap();
+
   /**
    * Default constructor used by Pico
    */
@@ -95,20 +101,71 @@ public class DefaultNotificationManager implements NotificationManager {
    * Give the notification queue so that it can be processed
    */
   public Notification getFromQueue() {
-    int batchSize = 1;
-    List<NotificationQueueDto> notificationDtos = notificationQueueDao.findOldest(batchSize);
+    List<NotificationQueueDto> notificationDtos = notificationQueueDao.findOldest(1);
     if (notificationDtos.isEmpty()) {
       return null;
     }
     notificationQueueDao.delete(notificationDtos);
 
-    return convertToNotification(notificationDtos);
+    return convertToNotification(notificationDtos.get(0));
+  }
+
+  /**
+   * Give at most <code>batchSize</code> of the oldest notifications of the queue so that they can be processed. Notifications
+   * are not removed from the queue, so {@link #removeFromQueue(List)} must be called once they are delivered. Notifications
+   * that can't be deserialized are removed and dropped, so the returned list is empty only when the queue is empty.
+   * <p/>
+   * Only the notifications returned by the last call can be removed.
+   *
+   * @since 4.2
+   */
+  public synchronized List<Notification> getFromQueue(int batchSize) {
+    dequeuedNotifications.clear();
+    List<Notification> notifications = Lists.newArrayList();
+    while (notifications.isEmpty()) {
+      List<NotificationQueueDto> notificationDtos = notificationQueueDao.findOldest(batchSize);
+      if (notificationDtos.isEmpty()) {
+        break;
+      }
+      List<NotificationQueueDto> unreadableDtos = Lists.newArrayList();
+      for (NotificationQueueDto notificationDto : notificationDtos) {
+        Notification notification = convertToNotification(notificationDto);
+        if (notification == null) {
+          unreadableDtos.add(notificationDto);
+        } else {
+          notifications.add(notification);
+          dequeuedNotifications.put(notification, notificationDto);
+        }
+      }
+      if (!unreadableDtos.isEmpty()) {
+        notificationQueueDao.delete(unreadableDtos);
+      }
+    }
+    return notifications;
+  }
+
+  /**
+   * Remove from the queue notifications returned by {@link #getFromQueue(int)}, once they are delivered.
+   *
+   * @since 4.2
+   */
+  public synchronized void removeFromQueue(List<Notification> notifications) {
+    List<NotificationQueueDto> notificationDtos = Lists.newArrayList();
+    for (Notification notification : notifications) {
+      NotificationQueueDto notificationDto = dequeuedNotifications.remove(notification);
+      if (notificationDto != null) {
+        notificationDtos.add(notificationDto);
+      }
+    }
+    if (!notificationDtos.isEmpty()) {
+      notificationQueueDao.delete(notificationDtos);
+    }
   }
 
-  private Notification convertToNotification(List<NotificationQueueDto> notifications) {
+  @CheckForNull
+  private Notification convertToNotification(NotificationQueueDto notification) {
     try {
-      // If batchSize is increased then we should return a list instead of a single element
-      return notifications.get(0).toNotification();
+      return notification.toNotification();
     } catch (InvalidClassException e) {
       // SONAR-4739
       if (!alreadyLoggedDeserializationIssue) {
@@ -20,6 +20,8 @@
 package org.sonar.core.persistence;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.lang.StringUtils;
@@ -35,10 +37,20 @@ import javax.annotation.Nullable;
 import javax.sql.DataSource;
 
 import java.sql.*;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class DbTemplate implements ServerComponent {
   private static final Logger LOG = LoggerFactory.getLogger(DbTemplate.class);
 
+  // Number of rows read from source database in each round trip. Drivers default values are often very low (10 for Oracle).
+  private static final int FETCH_SIZE = 1000;
+  private static final int BATCH_SIZE = 1000;
+
   private Profiling profiling;
 
   public DbTemplate(Profiling profiling) {
@@ -76,6 +88,7 @@ public class DbTemplate implements ServerComponent {
     try {
       sourceConnection = source.getConnection();
       sourceStatement = sourceConnection.createStatement();
+      sourceStatement.setFetchSize(FETCH_SIZE);
       sourceResultSet = sourceStatement.executeQuery(selectQuery);
 
       if (sourceResultSet.next()) {
@@ -96,7 +109,7 @@ public class DbTemplate implements ServerComponent {
           copyColumns(sourceResultSet, destStatement, columnNames, columnTypes);
           count++;
           destStatement.addBatch();
-          if (count % BatchSession.MAX_BATCH_SIZE == 0) {
+          if (count % BATCH_SIZE == 0) {
             destStatement.executeBatch();
             destConnection.commit();
 
@@ -151,6 +164,77 @@ public class DbTemplate implements ServerComponent {
     return columnTypes;
   }
 
+  /**
+   * Start the copy of several tables in parallel. Each table is copied by a dedicated thread with its own
+   * source and destination connections, so data sources must allow at least <code>threads</code> active connections.
+   * Copies are registered by the methods of {@link ConcurrentCopy} and are started by {@link ConcurrentCopy#execute()}.
+   *
+   * @since 4.2
+   */
+  public ConcurrentCopy concurrentCopy(DataSource source, DataSource dest, int threads) {
+    return new ConcurrentCopy(source, dest, threads);
+  }
+
+  public final class ConcurrentCopy {
+    private final DataSource source;
+    private final DataSource dest;
+    private final int threads;
+    private final List<Runnable> copies = Lists.newArrayList();
+
+    private ConcurrentCopy(DataSource source, DataSource dest, int threads) {
+      this.source = source;
+      this.dest = dest;
+      this.threads = threads;
+    }
+
+    public ConcurrentCopy copyTable(String table) {
+      return copyTableColumns(table, null);
+    }
+
+    public ConcurrentCopy copyTableColumns(String table, @Nullable String[] columnNames) {
+      return copyTableColumns(table, "SELECT * FROM " + table, columnNames);
+    }
+
+    public ConcurrentCopy copyTable(String table, String selectQuery) {
+      return copyTableColumns(table, selectQuery, null);
+    }
+
+    public ConcurrentCopy copyTableColumns(final String table, final String selectQuery, @Nullable final String[] columnNames) {
+      copies.add(new Runnable() {
+        public void run() {
+          DbTemplate.this.copyTableColumns(source, dest, table, selectQuery, columnNames);
+        }
+      });
+      return this;
+    }
+
+    /**
+     * Execute the copies and wait for their end. The remaining copies are cancelled as soon as one of them fails.
+     * Threads are started by this method and are always stopped when it returns.
+     */
+    public DbTemplate execute() {
+      ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, copies.size())));
+      try {
+        List<Future<?>> futures = Lists.newArrayList();
+        for (Runnable copy : copies) {
+          futures.add(executor.submit(copy));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SonarException("Copy of tables has been interrupted", e);
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      } finally {
+        executor.shutdownNow();
+        copies.clear();
+      }
+      return DbTemplate.this;
+    }
+  }
+
   public int getRowCount(DataSource dataSource, String table) {
     Connection connection = null;
     Statement statement = null;
@@ -212,4 +296,63 @@ public class DbTemplate implements ServerComponent {
 
     return this;
   }
+
+  /**
+   * @see DdlUtils#createSchemaWithoutIndexes(Connection, String)
+   * @since 4.2
+   */
+  public DbTemplate createSchemaWithoutIndexes(DataSource dataSource, String dialect) {
+    Connection connection = null;
+    try {
+      connection = dataSource.getConnection();
+      DdlUtils.createSchemaWithoutIndexes(connection, dialect);
+    } catch (SQLException e) {
+      LOG.error("Fail to createSchema local database schema", e);
+      throw new SonarException("Fail to createSchema local database schema", e);
+    } finally {
+      DbUtils.closeQuietly(connection);
+    }
+
+    return this;
+  }
+
+  /**
+   * @see DdlUtils#createIndexes(Connection, String, Collection)
+   * @since 4.2
+   */
+  public DbTemplate createIndexes(DataSource dataSource, String dialect, @Nullable Collection<String> tables) {
+    StopWatch watch = profiling.start("previewdb", Level.BASIC);
+    Connection connection = null;
+    try {
+      connection = dataSource.getConnection();
+      DdlUtils.createIndexes(connection, dialect, tables);
+    } catch (SQLException e) {
+      LOG.error("Fail to create indexes", e);
+      throw new SonarException("Fail to create indexes", e);
+    } finally {
+      watch.stop("  indexes created");
+      DbUtils.closeQuietly(connection);
+    }
+
+    return this;
+  }
+
+  /**
+   * @see DdlUtils#dropIndexes(Connection, String, Collection)
+   * @since 4.2
+   */
+  public DbTemplate dropIndexes(DataSource dataSource, String dialect, Collection<String> tables) {
+    Connection connection = null;
+    try {
+      connection = dataSource.getConnection();
+      DdlUtils.dropIndexes(connection, dialect, tables);
+    } catch (SQLException e) {
+      LOG.error("Fail to drop indexes", e);
+      throw new SonarException("Fail to drop indexes", e);
+    } finally {
+      DbUtils.closeQuietly(connection);
+    }
+
+    return this;
+  }
 }
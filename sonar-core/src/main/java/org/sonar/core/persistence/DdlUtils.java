@@ -19,12 +19,27 @@
  */
 package org.sonar.core.persistence;
 
+import com.google.common.collect.Lists;
+import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.NullWriter;
+import org.apache.commons.lang.StringUtils;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.jdbc.ScriptRunner;
 
+import javax.annotation.Nullable;
+
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Util class to create Sonar database tables
@@ -33,6 +48,9 @@ import java.sql.Connection;
  */
 public final class DdlUtils {
 
+  // Indexes are declared on a single line, for example: CREATE UNIQUE INDEX "RULES_PLUGIN_KEY_AND_NAME" ON "RULES" ("PLUGIN_RULE_KEY", "PLUGIN_NAME");
+  private static final Pattern INDEX_PATTERN = Pattern.compile("^\\s*CREATE (UNIQUE )?INDEX \"(\\w+)\" ON \"(\\w+)\"");
+
   private DdlUtils() {
   }
 
@@ -44,14 +62,76 @@ public final class DdlUtils {
    * The connection is commited in this method but not closed.
    */
   public static void createSchema(Connection connection, String dialect) {
-    executeScript(connection, "org/sonar/core/persistence/schema-" + dialect + ".ddl");
+    executeScript(connection, schemaPath(dialect));
     executeScript(connection, "org/sonar/core/persistence/rows-" + dialect + ".sql");
   }
 
+  /**
+   * Same as {@link #createSchema(Connection, String)}, except that indexes are not created. It allows to create
+   * them with {@link #createIndexes(Connection, String, Collection)} once tables are loaded, which is faster than
+   * maintaining them during inserts.
+   * The connection is commited in this method but not closed.
+   *
+   * @since 4.2
+   */
+  public static void createSchemaWithoutIndexes(Connection connection, String dialect) {
+    String path = schemaPath(dialect);
+    StringBuilder tablesScript = new StringBuilder();
+    for (String line : readLines(path)) {
+      if (!INDEX_PATTERN.matcher(line).find()) {
+        tablesScript.append(line).append('\n');
+      }
+    }
+    executeScript(connection, new StringReader(tablesScript.toString()), path);
+    executeScript(connection, "org/sonar/core/persistence/rows-" + dialect + ".sql");
+  }
+
+  /**
+   * Create the indexes of the given tables, or of all tables if <code>tables</code> is null.
+   * The connection is commited in this method but not closed.
+   *
+   * @since 4.2
+   */
+  public static void createIndexes(Connection connection, String dialect, @Nullable Collection<String> tables) {
+    List<String> statements = Lists.newArrayList();
+    for (String line : readLines(schemaPath(dialect))) {
+      Matcher matcher = INDEX_PATTERN.matcher(line);
+      if (matcher.find() && isIncluded(matcher.group(3), tables)) {
+        statements.add(StringUtils.removeEnd(line.trim(), ";"));
+      }
+    }
+    executeStatements(connection, statements);
+  }
+
+  /**
+   * Drop the indexes of the given tables, for example before a bulk load.
+   * The connection is commited in this method but not closed.
+   *
+   * @since 4.2
+   */
+  public static void dropIndexes(Connection connection, String dialect, Collection<String> tables) {
+    List<String> statements = Lists.newArrayList();
+    for (String line : readLines(schemaPath(dialect))) {
+      Matcher matcher = INDEX_PATTERN.matcher(line);
+      if (matcher.find() && isIncluded(matcher.group(3), tables)) {
+        statements.add("DROP INDEX IF EXISTS \"" + matcher.group(2) + "\"");
+      }
+    }
+    executeStatements(connection, statements);
+  }
+
   public static void executeScript(Connection connection, String path) {
+    try {
+      executeScript(connection, Resources.getResourceAsReader(path), path);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to restore: " + path, e);
+    }
+  }
+
+  private static void executeScript(Connection connection, Reader script, String path) {
     ScriptRunner scriptRunner = newScriptRunner(connection);
     try {
-      scriptRunner.runScript(Resources.getResourceAsReader(path));
+      scriptRunner.runScript(script);
       connection.commit();
 
     } catch (Exception e) {
@@ -59,6 +139,49 @@ public final class DdlUtils {
     }
   }
 
+  private static void executeStatements(Connection connection, List<String> statements) {
+    Statement statement = null;
+    try {
+      statement = connection.createStatement();
+      for (String sql : statements) {
+        statement.execute(sql);
+      }
+      connection.commit();
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to execute statements: " + statements, e);
+    } finally {
+      DbUtils.closeQuietly(statement);
+    }
+  }
+
+  private static boolean isIncluded(String table, @Nullable Collection<String> tables) {
+    if (tables == null) {
+      return true;
+    }
+    for (String includedTable : tables) {
+      if (includedTable.equalsIgnoreCase(table)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String schemaPath(String dialect) {
+    return "org/sonar/core/persistence/schema-" + dialect + ".ddl";
+  }
+
+  private static List<String> readLines(String path) {
+    Reader reader = null;
+    try {
+      reader = Resources.getResourceAsReader(path);
+      return IOUtils.readLines(reader);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read: " + path, e);
+    } finally {
+      IOUtils.closeQuietly(reader);
+    }
+  }
+
   private static ScriptRunner newScriptRunner(Connection connection) {
     ScriptRunner scriptRunner = new ScriptRunner(connection);
     scriptRunner.setDelimiter(";");
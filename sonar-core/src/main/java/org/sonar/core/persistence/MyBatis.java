@@ -61,6 +61,7 @@ import org.sonar.core.resource.*;
 import org.sonar.core.rule.*;
 import org.sonar.core.source.db.SnapshotDataDto;
 import org.sonar.core.source.db.SnapshotDataMapper;
+import org.sonar.core.source.db.SnapshotSourceDto;
 import org.sonar.core.source.db.SnapshotSourceMapper;
 import org.sonar.core.technicaldebt.db.CharacteristicDto;
 import org.sonar.core.technicaldebt.db.CharacteristicMapper;
@@ -131,6 +132,7 @@ public class MyBatis implements BatchComponent, ServerComponent {
     loadAlias(conf, "IssueFilter", IssueFilterDto.class);
     loadAlias(conf, "IssueFilterFavourite", IssueFilterFavouriteDto.class);
     loadAlias(conf, "SnapshotData", SnapshotDataDto.class);
+    loadAlias(conf, "SnapshotSource", SnapshotSourceDto.class);
     loadAlias(conf, "ActionPlanIssue", ActionPlanDto.class);
     loadAlias(conf, "ActionPlanStats", ActionPlanStatsDto.class);
     loadAlias(conf, "PermissionTemplate", PermissionTemplateDto.class);
@@ -179,6 +181,15 @@ public class MyBatis implements BatchComponent, ServerComponent {
     return new BatchSession(session);
   }
 
+  /**
+   * @param batchSize number of statements sent to database in a single JDBC batch
+   * @since 4.2
+   */
+  public BatchSession openBatchSession(int batchSize) {
+    SqlSession session = sessionFactory.openSession(ExecutorType.BATCH);
+    return new BatchSession(session, batchSize);
+  }
+
   public static void closeQuietly(SqlSession session) {
     if (session != null) {
       try {
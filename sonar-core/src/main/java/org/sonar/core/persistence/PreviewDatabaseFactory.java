@@ -19,6 +19,8 @@
  */
 package org.sonar.core.persistence;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.sonar.api.ServerComponent;
 import org.sonar.api.issue.Issue;
@@ -32,7 +34,9 @@ import javax.annotation.Nullable;
 import javax.sql.DataSource;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.List;
 
 public class PreviewDatabaseFactory implements ServerComponent {
   private static final String DIALECT = "h2";
@@ -43,6 +47,10 @@ public class PreviewDatabaseFactory implements ServerComponent {
   private static final String USER = SONAR;
   private static final String PASSWORD = SONAR;
 
+  // Tables are copied in parallel, each one with its own connections to source and destination databases
+  private static final int COPY_THREADS = 4;
+  private static final List<String> PROJECT_TABLES = ImmutableList.of("projects", "events", "snapshots", "snapshot_data", "project_measures", "issues");
+
   private final Database database;
   private final Profiling profiling;
 
@@ -82,67 +90,119 @@ public class PreviewDatabaseFactory implements ServerComponent {
 
   }
 
+  /**
+   * Create the database of a project from a copy of the database generated without project, which contains
+   * the shared tables (rules, profiles, metrics, users...). Only the tables related to the project are read from the
+   * main database, so a change of a project does not require to copy again the shared tables.
+   *
+   * @param globalDatabase the file returned by {@link #createNewDatabaseForDryRun(Long, File, String)} without project. It must not be opened.
+   * @since 4.2
+   */
+  public File createNewDatabaseForDryRun(Long projectId, File globalDatabase, File destFolder, String dbFileName) {
+    StopWatch watch = profiling.start("previewdb", Level.BASIC);
+
+    String h2Name = destFolder.getAbsolutePath() + File.separator + dbFileName;
+    File dbFile = new File(h2Name + H2_FILE_SUFFIX);
+
+    try {
+      Files.createParentDirs(dbFile);
+      Files.copy(globalDatabase, dbFile);
+
+      DataSource source = database.getDataSource();
+      BasicDataSource destination = new DbTemplate(profiling).dataSource(DRIVER, USER, PASSWORD, URL + h2Name);
+
+      DbTemplate template = new DbTemplate(profiling);
+      template.dropIndexes(destination, DIALECT, PROJECT_TABLES);
+      DbTemplate.ConcurrentCopy copy = template.concurrentCopy(source, destination, COPY_THREADS);
+      copyProject(copy, projectId);
+      copy.execute();
+      template.createIndexes(destination, DIALECT, PROJECT_TABLES);
+      close(destination);
+
+      watch.stop("Preview Database for project " + projectId + " created from global database, size is " + dbFile.length() + " bytes");
+
+      return dbFile;
+
+    } catch (IOException e) {
+      throw new SonarException("Unable to copy global database for DryRun", e);
+    } catch (SQLException e) {
+      throw new SonarException("Unable to create database for DryRun", e);
+    }
+  }
+
   private void copy(DataSource source, DataSource dest, @Nullable Long projectId) {
     DbTemplate template = new DbTemplate(profiling);
-    template
-      .copyTable(source, dest, "active_rules")
-      .copyTable(source, dest, "active_rule_parameters")
-      .copyTable(source, dest, "characteristics")
-      .copyTable(source, dest, "metrics")
-      .copyTable(source, dest, "permission_templates")
-      .copyTable(source, dest, "perm_templates_users")
-      .copyTable(source, dest, "perm_templates_groups")
-      .copyTable(source, dest, "rules")
-      .copyTable(source, dest, "rules_parameters")
-      .copyTable(source, dest, "rules_profiles")
-      .copyTable(source, dest, "alerts")
-      .copyTableColumns(source, dest, "users", new String[] {"id", "login", "name", "active"});
+    DbTemplate.ConcurrentCopy copy = template.concurrentCopy(source, dest, COPY_THREADS);
+    copyGlobal(copy);
     if (projectId != null) {
-      template.copyTable(source, dest, "projects", projectQuery(projectId, false));
-
-      template.copyTable(source, dest, "events", "SELECT * FROM events WHERE resource_id=" + projectId);
-
-      StringBuilder snapshotQuery = new StringBuilder()
-        // All snapshots of root_project for alerts on differential periods
-        .append("SELECT * FROM snapshots WHERE project_id=")
-        .append(projectId)
-        // Plus all last snapshots of all modules having hash data for partial analysis
-        .append(" UNION SELECT snap.* FROM snapshots snap")
-        .append(" INNER JOIN (")
-        .append(projectQuery(projectId, true))
-        .append(") res")
-        .append(" ON snap.project_id=res.id")
-        .append(" INNER JOIN snapshot_data data")
-        .append(" ON snap.id=data.snapshot_id")
-        .append(" AND data.data_type='").append(SnapshotDataTypes.FILE_HASHES).append("'")
-        .append(" AND snap.islast=").append(database.getDialect().getTrueSqlValue());
-      template.copyTable(source, dest, "snapshots", snapshotQuery.toString());
-
-      StringBuilder snapshotDataQuery = new StringBuilder()
-        .append("SELECT data.* FROM snapshot_data data")
-        .append(" INNER JOIN snapshots s")
-        .append(" ON s.id=data.snapshot_id")
-        .append(" AND s.islast=").append(database.getDialect().getTrueSqlValue())
-        .append(" INNER JOIN (")
-        .append(projectQuery(projectId, true))
-        .append(") res")
-        .append(" ON data.resource_id=res.id")
-        .append(" AND data.data_type='").append(SnapshotDataTypes.FILE_HASHES).append("'");
-      template.copyTable(source, dest, "snapshot_data", snapshotDataQuery.toString());
-
-      // All measures of snapshots of root project for alerts on differential periods
-      template.copyTable(source, dest, "project_measures", "SELECT m.* FROM project_measures m INNER JOIN snapshots s on m.snapshot_id=s.id "
-        + "WHERE s.project_id=" + projectId);
-
-      StringBuilder issueQuery = new StringBuilder()
-        .append("SELECT issues.* FROM issues")
-        .append(" INNER JOIN (")
-        .append(projectQuery(projectId, true))
-        .append(") resources")
-        .append(" ON issues.component_id=resources.id")
-        .append(" AND status <> '").append(Issue.STATUS_CLOSED).append("'");
-      template.copyTable(source, dest, "issues", issueQuery.toString());
+      copyProject(copy, projectId);
     }
+    copy.execute();
+    // Indexes are faster to build once tables are loaded
+    template.createIndexes(dest, DIALECT, null);
+  }
+
+  private void copyGlobal(DbTemplate.ConcurrentCopy copy) {
+    copy
+      .copyTable("active_rules")
+      .copyTable("active_rule_parameters")
+      .copyTable("characteristics")
+      .copyTable("metrics")
+      .copyTable("permission_templates")
+      .copyTable("perm_templates_users")
+      .copyTable("perm_templates_groups")
+      .copyTable("rules")
+      .copyTable("rules_parameters")
+      .copyTable("rules_profiles")
+      .copyTable("alerts")
+      .copyTableColumns("users", new String[] {"id", "login", "name", "active"});
+  }
+
+  private void copyProject(DbTemplate.ConcurrentCopy copy, Long projectId) {
+    copy.copyTable("projects", projectQuery(projectId, false));
+
+    copy.copyTable("events", "SELECT * FROM events WHERE resource_id=" + projectId);
+
+    StringBuilder snapshotQuery = new StringBuilder()
+      // All snapshots of root_project for alerts on differential periods
+      .append("SELECT * FROM snapshots WHERE project_id=")
+      .append(projectId)
+      // Plus all last snapshots of all modules having hash data for partial analysis
+      .append(" UNION SELECT snap.* FROM snapshots snap")
+      .append(" INNER JOIN (")
+      .append(projectQuery(projectId, true))
+      .append(") res")
+      .append(" ON snap.project_id=res.id")
+      .append(" INNER JOIN snapshot_data data")
+      .append(" ON snap.id=data.snapshot_id")
+      .append(" AND data.data_type='").append(SnapshotDataTypes.FILE_HASHES).append("'")
+      .append(" AND snap.islast=").append(database.getDialect().getTrueSqlValue());
+    copy.copyTable("snapshots", snapshotQuery.toString());
+
+    StringBuilder snapshotDataQuery = new StringBuilder()
+      .append("SELECT data.* FROM snapshot_data data")
+      .append(" INNER JOIN snapshots s")
+      .append(" ON s.id=data.snapshot_id")
+      .append(" AND s.islast=").append(database.getDialect().getTrueSqlValue())
+      .append(" INNER JOIN (")
+      .append(projectQuery(projectId, true))
+      .append(") res")
+      .append(" ON data.resource_id=res.id")
+      .append(" AND data.data_type='").append(SnapshotDataTypes.FILE_HASHES).append("'");
+    copy.copyTable("snapshot_data", snapshotDataQuery.toString());
+
+    // All measures of snapshots of root project for alerts on differential periods
+    copy.copyTable("project_measures", "SELECT m.* FROM project_measures m INNER JOIN snapshots s on m.snapshot_id=s.id "
+      + "WHERE s.project_id=" + projectId);
+
+    StringBuilder issueQuery = new StringBuilder()
+      .append("SELECT issues.* FROM issues")
+      .append(" INNER JOIN (")
+      .append(projectQuery(projectId, true))
+      .append(") resources")
+      .append(" ON issues.component_id=resources.id")
+      .append(" AND status <> '").append(Issue.STATUS_CLOSED).append("'");
+    copy.copyTable("issues", issueQuery.toString());
   }
 
   private String projectQuery(Long projectId, boolean returnOnlyIds) {
@@ -160,7 +220,7 @@ public class PreviewDatabaseFactory implements ServerComponent {
 
   private BasicDataSource create(String dialect, String driver, String user, String password, String url) {
     BasicDataSource dataSource = new DbTemplate(profiling).dataSource(driver, user, password, url);
-    new DbTemplate(profiling).createSchema(dataSource, dialect);
+    new DbTemplate(profiling).createSchemaWithoutIndexes(dataSource, dialect);
     return dataSource;
   }
 
@@ -21,6 +21,7 @@ package org.sonar.core.preview;
 
 import com.google.common.io.Files;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.ibatis.session.SqlSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,12 +35,19 @@ import org.sonar.core.properties.PropertyDto;
 import org.sonar.core.resource.ResourceDao;
 import org.sonar.core.resource.ResourceDto;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -59,7 +67,9 @@ public class PreviewCache implements ServerExtension {
   private ResourceDao resourceDao;
 
   private Map<Long, ReadWriteLock> lockPerProject = new HashMap<Long, ReadWriteLock>();
-  private Map<Long, Long> lastTimestampPerProject = new HashMap<Long, Long>();
+  private Map<Long, Long> lastTimestampPerProject = new ConcurrentHashMap<Long, Long>();
+  // Timestamp of the global database (the one without project) used to generate the database of each project
+  private Map<Long, Long> globalTimestampPerProject = new ConcurrentHashMap<Long, Long>();
 
   private PreviewDatabaseFactory previewDatabaseFactory;
 
@@ -71,16 +81,47 @@ public class PreviewCache implements ServerExtension {
     this.previewDatabaseFactory = previewDatabaseFactory;
   }
 
+  /**
+   * @deprecated since 4.2 the whole database is loaded in memory. Use {@link #writeDatabaseForPreview(Long, OutputStream)}.
+   */
+  @Deprecated
   public byte[] getDatabaseForPreview(@Nullable Long projectId) {
+    ReadWriteLock rwl = lockValidDatabase(projectId);
+    try {
+      return fileToByte(getDatabaseFile(projectId));
+    } finally {
+      rwl.readLock().unlock();
+    }
+  }
+
+  /**
+   * Copy the cached database to the given stream, without loading it in memory. The stream is flushed but not closed.
+   *
+   * @since 4.2
+   */
+  public void writeDatabaseForPreview(@Nullable Long projectId, OutputStream output) {
+    ReadWriteLock rwl = lockValidDatabase(projectId);
+    try {
+      transfer(getDatabaseFile(projectId), output);
+    } finally {
+      rwl.readLock().unlock();
+    }
+  }
+
+  /**
+   * Generate the database if needed. Returns the lock of the project, with the read lock held so that the database
+   * can't be regenerated until it's released.
+   */
+  private ReadWriteLock lockValidDatabase(@Nullable Long projectId) {
     long notNullProjectId = projectId != null ? projectId.longValue() : 0L;
     ReadWriteLock rwl = getLock(notNullProjectId);
-    try {
-      rwl.readLock().lock();
-      if (!isCacheValid(projectId)) {
-        // upgrade lock manually
-        // must unlock first to obtain writelock
-        rwl.readLock().unlock();
-        rwl.writeLock().lock();
+    rwl.readLock().lock();
+    if (!isCacheValid(projectId)) {
+      // upgrade lock manually
+      // must unlock first to obtain writelock
+      rwl.readLock().unlock();
+      rwl.writeLock().lock();
+      try {
         // recheck
         if (!isCacheValid(projectId)) {
           generateNewDB(projectId);
@@ -88,21 +129,24 @@ public class PreviewCache implements ServerExtension {
         // downgrade lock
         // reacquire read without giving up write lock
         rwl.readLock().lock();
+      } finally {
         // unlock write, still hold read
         rwl.writeLock().unlock();
       }
-      File dbFile = new File(getCacheLocation(projectId), lastTimestampPerProject.get(notNullProjectId) + PreviewDatabaseFactory.H2_FILE_SUFFIX);
-      return fileToByte(dbFile);
-    } finally {
-      rwl.readLock().unlock();
     }
+    return rwl;
+  }
+
+  private File getDatabaseFile(@Nullable Long projectId) {
+    long notNullProjectId = projectId != null ? projectId.longValue() : 0L;
+    return new File(getCacheLocation(projectId), lastTimestampPerProject.get(notNullProjectId) + PreviewDatabaseFactory.H2_FILE_SUFFIX);
   }
 
   private boolean isCacheValid(@Nullable Long projectId) {
     long notNullProjectId = projectId != null ? projectId.longValue() : 0L;
     Long lastTimestampInCache = lastTimestampPerProject.get(notNullProjectId);
     LOG.debug("Timestamp of last cached DB is {}", lastTimestampInCache);
-    if (lastTimestampInCache != null && isValid(projectId, lastTimestampInCache.longValue())) {
+    if (lastTimestampInCache != null && isValid(projectId, lastTimestampInCache.longValue(), globalTimestampInCache(projectId))) {
       File dbFile = new File(getCacheLocation(projectId), lastTimestampInCache + PreviewDatabaseFactory.H2_FILE_SUFFIX);
       LOG.debug("Look for existence of cached DB at {}", dbFile);
       if (dbFile.exists()) {
@@ -113,21 +157,60 @@ public class PreviewCache implements ServerExtension {
     return false;
   }
 
+  @CheckForNull
+  private Long globalTimestampInCache(@Nullable Long projectId) {
+    if (projectId == null) {
+      return lastTimestampPerProject.get(0L);
+    }
+    return globalTimestampPerProject.get(projectId);
+  }
+
   private void generateNewDB(@Nullable Long projectId) {
+    long newTimestamp = System.currentTimeMillis();
+    File cacheLocation = getCacheLocation(projectId);
+    FileUtils.deleteQuietly(cacheLocation);
+    File dbFile;
     if (projectId != null) {
       LOG.debug("Generate new preview database for project [id={}]", projectId);
+      // The database of a project is a copy of the global database (shared tables) completed with the tables of the project,
+      // so a modification of a project does not regenerate the shared tables and a global modification regenerates
+      // them only once for all projects.
+      ReadWriteLock globalLock = lockValidDatabase(null);
+      try {
+        dbFile = previewDatabaseFactory.createNewDatabaseForDryRun(projectId, getDatabaseFile(null), cacheLocation, String.valueOf(newTimestamp));
+        globalTimestampPerProject.put(projectId, lastTimestampPerProject.get(0L));
+      } finally {
+        globalLock.readLock().unlock();
+      }
     } else {
       LOG.debug("Generate new preview database for new project");
+      dbFile = previewDatabaseFactory.createNewDatabaseForDryRun(null, cacheLocation, String.valueOf(newTimestamp));
     }
-    long notNullProjectId = projectId != null ? projectId.longValue() : 0L;
-    long newTimestamp = System.currentTimeMillis();
-    File cacheLocation = getCacheLocation(projectId);
-    FileUtils.deleteQuietly(cacheLocation);
-    File dbFile = previewDatabaseFactory.createNewDatabaseForDryRun(projectId, cacheLocation, String.valueOf(newTimestamp));
     LOG.debug("Cached DB at {}", dbFile);
+    long notNullProjectId = projectId != null ? projectId.longValue() : 0L;
     lastTimestampPerProject.put(notNullProjectId, newTimestamp);
   }
 
+  private void transfer(File dbFile, OutputStream output) {
+    FileInputStream input = null;
+    try {
+      input = new FileInputStream(dbFile);
+      FileChannel channel = input.getChannel();
+      // the target channel must not be closed, as it would close the output stream
+      WritableByteChannel target = Channels.newChannel(output);
+      long size = channel.size();
+      long position = 0;
+      while (position < size) {
+        position += channel.transferTo(position, size - position, target);
+      }
+      output.flush();
+    } catch (IOException e) {
+      throw new SonarException("Unable to send h2 database file", e);
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
   private byte[] fileToByte(File dbFile) {
     try {
       return Files.toByteArray(dbFile);
@@ -151,9 +234,9 @@ public class PreviewCache implements ServerExtension {
     return new File(getRootCacheLocation(), projectId != null ? projectId.toString() : "default");
   }
 
-  private boolean isValid(@Nullable Long projectId, long lastTimestampInCache) {
+  private boolean isValid(@Nullable Long projectId, long lastTimestampInCache, @Nullable Long globalTimestampInCache) {
     long globalTimestamp = getModificationTimestamp(null);
-    if (globalTimestamp > lastTimestampInCache) {
+    if (globalTimestampInCache == null || globalTimestamp > globalTimestampInCache) {
       return false;
     }
     if (projectId != null) {
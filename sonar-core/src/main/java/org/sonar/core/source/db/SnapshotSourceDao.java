@@ -21,6 +21,7 @@
 package org.sonar.core.source.db;
 
 import org.apache.ibatis.session.SqlSession;
+import org.sonar.api.BatchComponent;
 import org.sonar.api.ServerComponent;
 import org.sonar.core.persistence.MyBatis;
 
@@ -29,7 +30,7 @@ import javax.annotation.CheckForNull;
 /**
  * @since 3.6
  */
-public class SnapshotSourceDao implements ServerComponent {
+public class SnapshotSourceDao implements BatchComponent, ServerComponent {
 
   private final MyBatis mybatis;
 
@@ -66,4 +67,10 @@ public class SnapshotSourceDao implements ServerComponent {
     }
   }
 
+  /**
+   * @since 4.2
+   */
+  public void insert(SqlSession session, SnapshotSourceDto dto) {
+    session.getMapper(SnapshotSourceMapper.class).insert(dto);
+  }
 }
@@ -28,4 +28,6 @@ public interface SnapshotSourceMapper {
   String selectSnapshotSource(long snapshotId);
 
   String selectSnapshotSourceByComponentKey(String componentKey);
+
+  void insert(SnapshotSourceDto dto);
 }
@@ -0,0 +1,108 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.technicaldebt;
+
+import com.google.common.collect.ImmutableList;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.technicaldebt.batch.TechnicalDebtModel;
+import org.sonar.api.technicaldebt.batch.internal.DefaultCharacteristic;
+import org.sonar.api.technicaldebt.batch.internal.DefaultRequirement;
+
+import javax.annotation.CheckForNull;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.collect.Maps.newHashMap;
+
+/**
+ * Read-only view of a {@link DefaultTechnicalDebtModel}, with characteristics and requirements indexed by id, key and rule.
+ * The underlying model must not be changed once indexed.
+ *
+ * @since 4.2
+ */
+public class IndexedTechnicalDebtModel implements TechnicalDebtModel {
+
+  private final List<DefaultCharacteristic> rootCharacteristics;
+  private final List<DefaultCharacteristic> characteristics;
+  private final List<DefaultRequirement> requirements;
+  private final Map<Integer, DefaultCharacteristic> characteristicsById = newHashMap();
+  private final Map<String, DefaultCharacteristic> characteristicsByKey = newHashMap();
+  private final Map<Integer, DefaultRequirement> requirementsById = newHashMap();
+  private final Map<RuleKey, DefaultRequirement> requirementsByRule = newHashMap();
+
+  public IndexedTechnicalDebtModel(DefaultTechnicalDebtModel model) {
+    rootCharacteristics = ImmutableList.copyOf(model.rootCharacteristics());
+    characteristics = ImmutableList.copyOf(model.characteristics());
+    requirements = ImmutableList.copyOf(model.requirements());
+
+    // the first match wins, as when the model is searched sequentially
+    for (DefaultCharacteristic characteristic : characteristics) {
+      putIfAbsent(characteristicsById, characteristic.id(), characteristic);
+      putIfAbsent(characteristicsByKey, characteristic.key(), characteristic);
+    }
+    for (DefaultRequirement requirement : requirements) {
+      putIfAbsent(requirementsById, requirement.id(), requirement);
+      putIfAbsent(requirementsByRule, requirement.ruleKey(), requirement);
+    }
+  }
+
+  private static <K, V> void putIfAbsent(Map<K, V> map, K key, V value) {
+    if (key != null && !map.containsKey(key)) {
+      map.put(key, value);
+    }
+  }
+
+  public List<DefaultCharacteristic> rootCharacteristics() {
+    return rootCharacteristics;
+  }
+
+  @CheckForNull
+  public DefaultCharacteristic characteristicByKey(String key) {
+    return characteristicsByKey.get(key);
+  }
+
+  @CheckForNull
+  public DefaultCharacteristic characteristicById(Integer id) {
+    return characteristicsById.get(id);
+  }
+
+  @CheckForNull
+  public DefaultRequirement requirementsByRule(RuleKey ruleKey) {
+    return requirementsByRule.get(ruleKey);
+  }
+
+  @CheckForNull
+  public DefaultRequirement requirementsById(Integer id) {
+    return requirementsById.get(id);
+  }
+
+  public List<DefaultCharacteristic> characteristics() {
+    return characteristics;
+  }
+
+  public List<DefaultRequirement> requirements() {
+    return requirements;
+  }
+
+  public boolean isEmpty() {
+    return rootCharacteristics.isEmpty();
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.component;
+
+import org.junit.Test;
+import org.sonar.api.component.mock.MockSourceFile;
+import org.sonar.api.test.MutableTestable;
+import org.sonar.core.graph.SubGraph;
+import org.sonar.core.graph.binary.BinaryGraphWriter;
+import org.sonar.core.graph.jdbc.GraphDao;
+import org.sonar.core.graph.jdbc.GraphDto;
+import org.sonar.core.test.TestableBuilder;
+import org.sonar.core.test.TestablePerspectiveLoader;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SnapshotPerspectivesTest {
+
+  GraphDao dao = mock(GraphDao.class);
+  TestablePerspectiveLoader loader = new TestablePerspectiveLoader();
+  SnapshotPerspectives perspectives = new SnapshotPerspectives(dao, new GraphPerspectiveLoader[] {loader});
+
+  @Test
+  public void should_load_perspective_from_binary_graph() {
+    ScanGraph graph = ScanGraph.create();
+    TestableBuilder builder = new TestableBuilder(graph, loader);
+    ComponentVertex file = graph.addComponent(MockSourceFile.createMain("org.foo.Bar"));
+    builder.create(file);
+
+    // as persisted by the batch
+    GraphDto dto = new GraphDto()
+      .setData(new BinaryGraphWriter().write(SubGraph.extract(file.element(), builder.path())))
+      .setFormat(BinaryGraphWriter.FORMAT)
+      .setVersion(BinaryGraphWriter.VERSION)
+      .setPerspective(loader.getPerspectiveKey())
+      .setRootVertexId(file.element().getId().toString());
+    when(dao.selectBySnapshot(loader.getPerspectiveKey(), 123L)).thenReturn(dto);
+
+    MutableTestable testable = perspectives.as(MutableTestable.class, 123L);
+
+    assertThat(testable).isNotNull();
+    assertThat(testable.component().key()).isEqualTo("org.foo.Bar");
+  }
+
+  @Test
+  public void should_not_load_missing_graph() {
+    assertThat(perspectives.as(MutableTestable.class, 123L)).isNull();
+  }
+}
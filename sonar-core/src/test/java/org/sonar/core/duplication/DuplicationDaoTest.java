@@ -19,6 +19,9 @@
  */
 package org.sonar.core.duplication;
 
+import com.google.common.collect.Lists;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.core.persistence.AbstractDaoTestCase;
@@ -57,6 +60,24 @@ public class DuplicationDaoTest extends AbstractDaoTestCase {
     assertThat(blocks.size(), is(2));
   }
 
+  @Test
+  public void should_stream_candidates() throws Exception {
+    setupData("shouldGetByHash");
+
+    final List<DuplicationUnitDto> blocks = Lists.newArrayList();
+    dao.selectCandidates(10, 7, "java", new ResultHandler() {
+      public void handleResult(ResultContext context) {
+        blocks.add((DuplicationUnitDto) context.getResultObject());
+      }
+    });
+    assertThat(blocks.size(), is(1));
+
+    DuplicationUnitDto block = blocks.get(0);
+    assertThat("block resourceId", block.getResourceKey(), is("bar-last"));
+    assertThat("block snapshotId", block.getSnapshotId(), is(4));
+    assertThat("block hash", block.getHash(), is("aa"));
+  }
+
   @Test
   public void shouldInsert() throws Exception {
     setupData("shouldInsert");
@@ -0,0 +1,109 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.graph.binary;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraphFactory;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+import org.sonar.core.graph.graphson.GraphsonMode;
+import org.sonar.core.graph.graphson.GraphsonWriter;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
+
+public class BinaryGraphWriterTest {
+
+  @Test
+  public void should_write_and_read_graph() {
+    TinkerGraph graph = TinkerGraphFactory.createTinkerGraph();
+
+    TinkerGraph result = (TinkerGraph) new BinaryGraphReader().read(new BinaryGraphWriter().write(graph), new TinkerGraph());
+
+    assertThat(Iterables.size(result.getVertices())).isEqualTo(6);
+    assertThat(Iterables.size(result.getEdges())).isEqualTo(6);
+
+    Vertex marko = result.getVertex("1");
+    assertThat(marko.getProperty("name")).isEqualTo("marko");
+    assertThat(marko.getProperty("age")).isEqualTo(29);
+
+    Edge knows = result.getEdge("7");
+    assertThat(knows.getLabel()).isEqualTo("knows");
+    assertThat(knows.getProperty("weight")).isEqualTo(0.5f);
+    assertThat(knows.getVertex(Direction.OUT).getId()).isEqualTo("1");
+    assertThat(knows.getVertex(Direction.IN).getId()).isEqualTo("2");
+  }
+
+  @Test
+  public void should_write_and_read_typed_properties() {
+    TinkerGraph graph = new TinkerGraph();
+    Vertex vertex = graph.addVertex("v");
+    vertex.setProperty("string", "foo");
+    vertex.setProperty("int", -3);
+    vertex.setProperty("long", 10000000000L);
+    vertex.setProperty("boolean", true);
+    vertex.setProperty("double", 0.4954959595959);
+    vertex.setProperty("list", Arrays.asList(1, "two", null));
+    vertex.setProperty("map", ImmutableMap.of("big", 10000000000L, "small", 0.25));
+
+    TinkerGraph result = (TinkerGraph) new BinaryGraphReader().read(new BinaryGraphWriter().write(graph), new TinkerGraph());
+
+    Vertex read = result.getVertex("v");
+    assertThat(read.getProperty("string")).isEqualTo("foo");
+    assertThat(read.getProperty("int")).isEqualTo(-3);
+    assertThat(read.getProperty("long")).isEqualTo(10000000000L);
+    assertThat(read.getProperty("boolean")).isEqualTo(true);
+    assertThat(read.getProperty("double")).isEqualTo(0.4954959595959);
+    assertThat((List) read.getProperty("list")).containsExactly(1, "two", null);
+    Map map = (Map) read.getProperty("map");
+    assertThat(map.get("big")).isEqualTo(10000000000L);
+    assertThat(map.get("small")).isEqualTo(0.25);
+  }
+
+  @Test
+  public void should_be_smaller_than_graphson() {
+    TinkerGraph graph = TinkerGraphFactory.createTinkerGraph();
+    StringWriter graphson = new StringWriter();
+    new GraphsonWriter().write(graph, graphson, GraphsonMode.EXTENDED);
+
+    assertThat(new BinaryGraphWriter().write(graph).length()).isLessThan(graphson.toString().length());
+  }
+
+  @Test
+  public void should_fail_on_unsupported_version() {
+    String data = Base64.encodeBase64String(new byte[] {42});
+    try {
+      new BinaryGraphReader().read(data, new TinkerGraph());
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Unsupported version of binary graph: 42");
+    }
+  }
+}
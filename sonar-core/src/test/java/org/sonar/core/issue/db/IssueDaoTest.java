@@ -309,6 +309,55 @@ public class IssueDaoTest extends AbstractDaoTestCase {
     assertThat(results.get(0).getIssueCloseDate()).isNotNull();
   }
 
+  @Test
+  public void should_select_sorted_issue_ids() {
+    setupData("shared", "should_select_returned_sorted_result_by_severity");
+    IssueQuery query = IssueQuery.builder().sort(IssueQuery.SORT_BY_SEVERITY).asc(true).requiredRole("user").build();
+    assertThat(getIssueIds(dao.selectSortedIssueIds(query, 10))).containsExactly(100L, 102L, 101L);
+
+    query = IssueQuery.builder().sort(IssueQuery.SORT_BY_SEVERITY).asc(false).requiredRole("user").build();
+    assertThat(getIssueIds(dao.selectSortedIssueIds(query, 10))).containsExactly(101L, 102L, 100L);
+    assertThat(getIssueIds(dao.selectSortedIssueIds(query, 2))).containsExactly(101L, 102L);
+  }
+
+  @Test
+  public void should_select_issue_ids_sorted_by_assignee() {
+    setupData("shared", "should_select_returned_sorted_result_by_assignee");
+    IssueQuery query = IssueQuery.builder().sort(IssueQuery.SORT_BY_ASSIGNEE).asc(true).requiredRole("user").build();
+    assertThat(getIssueIds(dao.selectSortedIssueIds(query, 10))).containsExactly(100L, 102L, 101L);
+  }
+
+  @Test
+  public void should_select_issue_ids_sorted_by_creation_date() {
+    setupData("shared", "should_select_returned_sorted_result_by_creation_date");
+    IssueQuery query = IssueQuery.builder().sort(IssueQuery.SORT_BY_CREATION_DATE).asc(false).requiredRole("user").build();
+    assertThat(getIssueIds(dao.selectSortedIssueIds(query, 10))).containsExactly(102L, 100L, 101L);
+  }
+
+  @Test
+  public void should_select_issue_ids_sorted_by_update_date() {
+    setupData("shared", "should_select_returned_sorted_result_by_update_date");
+    IssueQuery query = IssueQuery.builder().sort(IssueQuery.SORT_BY_UPDATE_DATE).asc(true).requiredRole("user").build();
+    assertThat(getIssueIds(dao.selectSortedIssueIds(query, 10))).containsExactly(101L, 100L, 102L);
+  }
+
+  @Test
+  public void should_select_issue_ids_sorted_by_id_when_no_sort() {
+    setupData("shared", "should_select_returned_sorted_result_by_severity");
+    IssueQuery query = IssueQuery.builder().requiredRole("user").build();
+    assertThat(getIssueIds(dao.selectSortedIssueIds(query, 10))).containsExactly(100L, 101L, 102L);
+  }
+
+  @Test
+  public void should_count_issues() {
+    setupData("shared", "should_select_all");
+    IssueQuery query = IssueQuery.builder().requiredRole("user").build();
+    assertThat(dao.countIssues(query)).isEqualTo(dao.selectIssueIds(query).size());
+
+    query = IssueQuery.builder().requiredRole("user").assigned(false).build();
+    assertThat(dao.countIssues(query)).isEqualTo(dao.selectIssueIds(query).size());
+  }
+
   @Test
   public void should_select_non_closed_issues_by_module() {
     setupData("shared", "should_select_non_closed_issues_by_module");
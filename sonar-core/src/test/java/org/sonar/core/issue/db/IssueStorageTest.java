@@ -19,6 +19,7 @@
  */
 package org.sonar.core.issue.db;
 
+import org.apache.ibatis.executor.BatchResult;
 import org.junit.Test;
 import org.sonar.api.issue.internal.DefaultIssue;
 import org.sonar.api.issue.internal.DefaultIssueComment;
@@ -32,8 +33,16 @@ import org.sonar.api.utils.DateUtils;
 import org.sonar.core.persistence.AbstractDaoTestCase;
 import org.sonar.core.persistence.MyBatis;
 
+import java.sql.Statement;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class IssueStorageTest extends AbstractDaoTestCase {
 
@@ -147,6 +156,69 @@ public class IssueStorageTest extends AbstractDaoTestCase {
     checkTables("should_resolve_conflicts_on_updates", new String[]{"id", "created_at", "updated_at", "issue_change_creation_date"}, "issues");
   }
 
+  @Test
+  public void should_resolve_only_conflicting_issues_on_batch_updates() throws Exception {
+    setupData("should_resolve_conflicts_on_batch_updates");
+
+    FakeSaver saver = new FakeSaver(getMyBatis(), new FakeRuleFinder());
+
+    // updated in database in 2013, after the loading by scan
+    DefaultIssue conflicting = newIssueToUpdate("ABCDE", DateUtils.parseDate("2005-01-01"));
+    // not updated in database since the loading by scan
+    DefaultIssue notConflicting = newIssueToUpdate("FGHIJ", DateUtils.parseDate("2005-06-01"));
+
+    saver.save(Arrays.asList(conflicting, notConflicting));
+
+    checkTables("should_resolve_conflicts_on_batch_updates", new String[]{"id", "created_at", "updated_at", "issue_change_creation_date"}, "issues");
+  }
+
+  @Test
+  public void should_handle_unknown_update_counts_as_conflicts() throws Exception {
+    setupData("should_resolve_conflicts_on_batch_updates");
+
+    FakeSaver saver = new FakeSaver(getMyBatis(), new FakeRuleFinder());
+    Date now = new Date();
+    DefaultIssue conflicting = newIssueToUpdate("ABCDE", DateUtils.parseDate("2005-01-01"));
+    DefaultIssue notConflicting = newIssueToUpdate("FGHIJ", DateUtils.parseDate("2005-06-01"));
+    IssueDto conflictingDto = IssueDto.toDtoForUpdate(conflicting, now);
+    IssueDto notConflictingDto = IssueDto.toDtoForUpdate(notConflicting, now);
+    Map<IssueDto, DefaultIssue> conditionalUpdates = new IdentityHashMap<IssueDto, DefaultIssue>();
+    conditionalUpdates.put(conflictingDto, conflicting);
+    conditionalUpdates.put(notConflictingDto, notConflicting);
+
+    // as returned by Oracle drivers
+    BatchResult result = mock(BatchResult.class);
+    when(result.getMappedStatement()).thenReturn(
+      getMyBatis().getSessionFactory().getConfiguration().getMappedStatement(IssueMapper.class.getName() + ".updateIfBeforeSelectedDate"));
+    when(result.getParameterObjects()).thenReturn(Arrays.<Object>asList(conflictingDto, notConflictingDto));
+    when(result.getUpdateCounts()).thenReturn(new int[] {Statement.SUCCESS_NO_INFO, 1});
+
+    assertThat(saver.conflicts(Arrays.asList(result), conditionalUpdates)).containsOnly(conflicting);
+
+    // next issues are updated one by one
+    saver.save(Arrays.asList(conflicting, notConflicting));
+    checkTables("should_resolve_conflicts_on_batch_updates", new String[]{"id", "created_at", "updated_at", "issue_change_creation_date"}, "issues");
+  }
+
+  private static DefaultIssue newIssueToUpdate(String key, Date selectedAt) {
+    return new DefaultIssue()
+      .setKey(key)
+      .setNew(false)
+      .setChanged(true)
+      .setCreationDate(DateUtils.parseDate("2005-05-12"))
+      .setUpdateDate(DateUtils.parseDate("2013-05-18"))
+      .setRuleKey(RuleKey.of("squid", "AvoidCycles"))
+      .setComponentKey("struts:Action")
+      .setSelectedAt(selectedAt)
+      .setLine(444)
+      .setSeverity("BLOCKER")
+      .setChecksum("FFFFF")
+      .setAttribute("JIRA", "http://jira.com")
+      .setAssignee("looser")
+      .setResolution(null)
+      .setStatus("REOPEN");
+  }
+
   static class FakeSaver extends IssueStorage {
     protected FakeSaver(MyBatis mybatis, RuleFinder ruleFinder) {
       super(mybatis, ruleFinder);
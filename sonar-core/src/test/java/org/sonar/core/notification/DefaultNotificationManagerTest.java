@@ -37,6 +37,7 @@ import org.sonar.jpa.test.AbstractDbUnitTestCase;
 import java.io.InvalidClassException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -44,6 +45,7 @@ import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.only;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -124,6 +126,63 @@ public class DefaultNotificationManagerTest extends AbstractDbUnitTestCase {
     verify(manager, times(1)).logDeserializationIssue();
   }
 
+  @Test
+  public void shouldGetBatchFromQueueAndRemoveOnceDelivered() throws Exception {
+    NotificationQueueDto first = NotificationQueueDto.toNotificationQueueDto(new Notification("first"));
+    NotificationQueueDto second = NotificationQueueDto.toNotificationQueueDto(new Notification("second"));
+    when(notificationQueueDao.findOldest(10)).thenReturn(Arrays.asList(first, second));
+
+    List<Notification> notifications = manager.getFromQueue(10);
+    assertThat(notifications).hasSize(2);
+    assertThat(notifications.get(0).getType()).isEqualTo("first");
+    assertThat(notifications.get(1).getType()).isEqualTo("second");
+    verify(notificationQueueDao, never()).delete(any(List.class));
+
+    manager.removeFromQueue(notifications);
+    verify(notificationQueueDao).delete(Arrays.asList(first, second));
+  }
+
+  @Test
+  public void shouldRemoveOnlyNotificationsOfLastBatch() throws Exception {
+    NotificationQueueDto dto = NotificationQueueDto.toNotificationQueueDto(new Notification("test"));
+    when(notificationQueueDao.findOldest(10)).thenReturn(Arrays.asList(dto));
+
+    List<Notification> notifications = manager.getFromQueue(10);
+    manager.removeFromQueue(Arrays.asList(new Notification("test")));
+    verify(notificationQueueDao, never()).delete(any(List.class));
+
+    manager.removeFromQueue(notifications);
+    manager.removeFromQueue(notifications);
+    verify(notificationQueueDao, times(1)).delete(Arrays.asList(dto));
+  }
+
+  @Test
+  public void shouldGetEmptyBatchWhenQueueIsEmpty() {
+    when(notificationQueueDao.findOldest(10)).thenReturn(Collections.<NotificationQueueDto>emptyList());
+
+    assertThat(manager.getFromQueue(10)).isEmpty();
+    verify(notificationQueueDao, never()).delete(any(List.class));
+  }
+
+  // SONAR-4739
+  @Test
+  public void shouldSkipNotificationsUnableToDeserializeInBatch() throws Exception {
+    NotificationQueueDto invalid = mock(NotificationQueueDto.class);
+    when(invalid.toNotification()).thenThrow(new InvalidClassException("Pouet"));
+    List<NotificationQueueDto> firstBatch = Arrays.asList(invalid);
+    List<NotificationQueueDto> secondBatch = Arrays.asList(invalid, NotificationQueueDto.toNotificationQueueDto(new Notification("test")));
+    when(notificationQueueDao.findOldest(2)).thenReturn(firstBatch).thenReturn(secondBatch);
+
+    manager = spy(manager);
+    List<Notification> notifications = manager.getFromQueue(2);
+    assertThat(notifications).hasSize(1);
+    assertThat(notifications.get(0).getType()).isEqualTo("test");
+
+    // notifications which can't be deserialized are removed at once
+    verify(notificationQueueDao, times(2)).delete(Arrays.asList(invalid));
+    verify(manager, times(1)).logDeserializationIssue();
+  }
+
   @Test
   public void shouldFindNoRecipient() {
     assertThat(manager.findSubscribedRecipientsForDispatcher(dispatcher, 45).asMap().entrySet()).hasSize(0);
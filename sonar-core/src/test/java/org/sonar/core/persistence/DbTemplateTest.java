@@ -0,0 +1,84 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.persistence;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.SonarException;
+import org.sonar.core.profiling.Profiling;
+
+import javax.sql.DataSource;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+public class DbTemplateTest {
+
+  DataSource source = mock(DataSource.class);
+  DataSource dest = mock(DataSource.class);
+  DbTemplate template = spy(new DbTemplate(new Profiling(new Settings())));
+
+  @Test
+  public void should_stop_threads_when_concurrent_copy_fails() throws Exception {
+    final List<Thread> threads = Collections.synchronizedList(Lists.<Thread>newArrayList());
+    doAnswer(new Answer<DbTemplate>() {
+      public DbTemplate answer(InvocationOnMock invocation) {
+        threads.add(Thread.currentThread());
+        if ("bar".equals(invocation.getArguments()[2])) {
+          throw new SonarException("Fail to copy table bar");
+        }
+        return template;
+      }
+    }).when(template).copyTableColumns(any(DataSource.class), any(DataSource.class), anyString(), anyString(), any(String[].class));
+
+    DbTemplate.ConcurrentCopy copy = template.concurrentCopy(source, dest, 2).copyTable("foo").copyTable("bar");
+    try {
+      copy.execute();
+      fail();
+    } catch (SonarException e) {
+      assertThat(e).hasMessage("Fail to copy table bar");
+    }
+
+    verify(template).copyTableColumns(eq(source), eq(dest), eq("bar"), eq("SELECT * FROM bar"), any(String[].class));
+    assertThat(threads).isNotEmpty();
+    for (Thread thread : threads) {
+      thread.join(5000L);
+      assertThat(thread.isAlive()).isFalse();
+    }
+  }
+
+  @Test
+  public void should_execute_empty_concurrent_copy() {
+    assertThat(template.concurrentCopy(source, dest, 2).execute()).isSameAs(template);
+  }
+}
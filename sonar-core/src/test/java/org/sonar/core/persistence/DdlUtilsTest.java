@@ -24,8 +24,10 @@ import org.junit.Test;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -51,6 +53,40 @@ public class DdlUtilsTest {
     assertThat(tableCount).isGreaterThan(30);
   }
 
+  @Test
+  public void shouldCreateIndexesAfterTables() throws SQLException {
+    DriverManager.registerDriver(new Driver());
+    Connection connection = DriverManager.getConnection("jdbc:h2:mem:sonar_test_indexes");
+    DdlUtils.createSchemaWithoutIndexes(connection, "h2");
+    assertThat(countTables(connection)).isGreaterThan(30);
+    assertThat(indexExists(connection, "RULES_PLUGIN_KEY_AND_NAME")).isFalse();
+    assertThat(indexExists(connection, "ISSUES_KEE")).isFalse();
+
+    DdlUtils.createIndexes(connection, "h2", Arrays.asList("rules"));
+    assertThat(indexExists(connection, "RULES_PLUGIN_KEY_AND_NAME")).isTrue();
+    assertThat(indexExists(connection, "ISSUES_KEE")).isFalse();
+
+    DdlUtils.createIndexes(connection, "h2", Arrays.asList("issues"));
+    assertThat(indexExists(connection, "ISSUES_KEE")).isTrue();
+
+    DdlUtils.dropIndexes(connection, "h2", Arrays.asList("rules"));
+    assertThat(indexExists(connection, "RULES_PLUGIN_KEY_AND_NAME")).isFalse();
+    assertThat(indexExists(connection, "ISSUES_KEE")).isTrue();
+
+    connection.close();
+  }
+
+  private static boolean indexExists(Connection connection, String indexName) throws SQLException {
+    PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME=?");
+    statement.setString(1, indexName);
+    ResultSet resultSet = statement.executeQuery();
+    resultSet.next();
+    boolean exists = resultSet.getInt(1) > 0;
+    resultSet.close();
+    statement.close();
+    return exists;
+  }
+
   static int countTables(Connection connection) throws SQLException {
     int count = 0;
     ResultSet resultSet = connection.getMetaData().getTables("", null, null, new String[] {"TABLE"});
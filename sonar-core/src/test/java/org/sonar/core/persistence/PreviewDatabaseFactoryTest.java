@@ -95,6 +95,24 @@ public class PreviewDatabaseFactoryTest extends AbstractDaoTestCase {
     assertThat(rowCount("events")).isEqualTo(2);
   }
 
+  @Test
+  public void should_create_database_of_project_from_global_database() throws Exception {
+    setupData("should_create_database");
+
+    File globalDatabase = localDatabaseFactory.createNewDatabaseForDryRun(null, temporaryFolder.newFolder(), "global");
+    File projectDatabase = localDatabaseFactory.createNewDatabaseForDryRun(123L, globalDatabase, new File(temporaryFolder.newFolder(), "123"), "foo");
+    dataSource = createDatabase(FileUtils.readFileToByteArray(projectDatabase));
+
+    assertThat(rowCount("metrics")).isEqualTo(2);
+    assertThat(rowCount("users")).isEqualTo(3);
+    assertThat(rowCount("projects")).isEqualTo(1);
+    assertThat(rowCount("snapshots")).isEqualTo(1);
+    assertThat(rowCount("project_measures")).isEqualTo(1);
+    assertThat(rowCount("events")).isEqualTo(2);
+    // global database is not modified
+    assertThat(globalDatabase).exists();
+  }
+
   @Test
   public void should_create_database_with_issues() throws Exception {
     setupData("should_create_database_with_issues");
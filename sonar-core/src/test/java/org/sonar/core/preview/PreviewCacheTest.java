@@ -19,6 +19,7 @@
  */
 package org.sonar.core.preview;
 
+import com.google.common.collect.Lists;
 import org.apache.commons.io.FileUtils;
 import org.apache.ibatis.session.SqlSession;
 import org.junit.Before;
@@ -36,8 +37,16 @@ import org.sonar.core.properties.PropertyDto;
 import org.sonar.core.resource.ResourceDao;
 import org.sonar.core.resource.ResourceDto;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -103,22 +112,24 @@ public class PreviewCacheTest {
 
   @Test
   public void test_getDatabaseForDryRun_on_existing_project() throws Exception {
-    when(dryRunDatabaseFactory.createNewDatabaseForDryRun(eq(123L), any(File.class), anyString())).thenAnswer(new Answer<File>() {
+    when(dryRunDatabaseFactory.createNewDatabaseForDryRun(eq(123L), any(File.class), any(File.class), anyString())).thenAnswer(new Answer<File>() {
       public File answer(InvocationOnMock invocation) throws IOException {
         Object[] args = invocation.getArguments();
-        File dbFile = new File(new File(dryRunCacheLocation, "123"), (String) args[2] + ".h2.db");
+        File dbFile = new File(new File(dryRunCacheLocation, "123"), (String) args[3] + ".h2.db");
         FileUtils.write(dbFile, "fake db content");
         return dbFile;
       }
     });
     when(resourceDao.getRootProjectByComponentId(123L)).thenReturn(new ResourceDto().setId(123L));
+    mockGlobalDatabase();
     byte[] dbContent = dryRunCache.getDatabaseForPreview(123L);
     assertThat(new String(dbContent)).isEqualTo("fake db content");
 
     dbContent = dryRunCache.getDatabaseForPreview(123L);
     assertThat(new String(dbContent)).isEqualTo("fake db content");
 
-    verify(dryRunDatabaseFactory, times(1)).createNewDatabaseForDryRun(anyLong(), any(File.class), anyString());
+    verify(dryRunDatabaseFactory, times(1)).createNewDatabaseForDryRun(anyLong(), any(File.class), any(File.class), anyString());
+    verify(dryRunDatabaseFactory, times(1)).createNewDatabaseForDryRun(isNull(Long.class), any(File.class), anyString());
   }
 
   @Test
@@ -155,11 +166,11 @@ public class PreviewCacheTest {
 
   @Test
   public void test_getDatabaseForDryRun_project_invalidation() throws Exception {
-    when(dryRunDatabaseFactory.createNewDatabaseForDryRun(eq(123L), any(File.class), anyString()))
+    when(dryRunDatabaseFactory.createNewDatabaseForDryRun(eq(123L), any(File.class), any(File.class), anyString()))
       .thenAnswer(new Answer<File>() {
         public File answer(InvocationOnMock invocation) throws IOException {
           Object[] args = invocation.getArguments();
-          File dbFile = new File(new File(dryRunCacheLocation, "123"), (String) args[2] + ".h2.db");
+          File dbFile = new File(new File(dryRunCacheLocation, "123"), (String) args[3] + ".h2.db");
           FileUtils.write(dbFile, "fake db content 1");
           return dbFile;
         }
@@ -167,12 +178,13 @@ public class PreviewCacheTest {
       .thenAnswer(new Answer<File>() {
         public File answer(InvocationOnMock invocation) throws IOException {
           Object[] args = invocation.getArguments();
-          File dbFile = new File(new File(dryRunCacheLocation, "123"), (String) args[2] + ".h2.db");
+          File dbFile = new File(new File(dryRunCacheLocation, "123"), (String) args[3] + ".h2.db");
           FileUtils.write(dbFile, "fake db content 2");
           return dbFile;
         }
       });
     when(resourceDao.getRootProjectByComponentId(123L)).thenReturn(new ResourceDto().setId(123L));
+    mockGlobalDatabase();
 
     byte[] dbContent = dryRunCache.getDatabaseForPreview(123L);
     assertThat(new String(dbContent)).isEqualTo("fake db content 1");
@@ -184,7 +196,121 @@ public class PreviewCacheTest {
     dbContent = dryRunCache.getDatabaseForPreview(123L);
     assertThat(new String(dbContent)).isEqualTo("fake db content 2");
 
-    verify(dryRunDatabaseFactory, times(2)).createNewDatabaseForDryRun(anyLong(), any(File.class), anyString());
+    verify(dryRunDatabaseFactory, times(2)).createNewDatabaseForDryRun(anyLong(), any(File.class), any(File.class), anyString());
+    verify(dryRunDatabaseFactory, times(1)).createNewDatabaseForDryRun(isNull(Long.class), any(File.class), anyString());
+  }
+
+  @Test
+  public void test_writeDatabaseForPreview() throws Exception {
+    when(dryRunDatabaseFactory.createNewDatabaseForDryRun(isNull(Long.class), any(File.class), anyString())).thenAnswer(new Answer<File>() {
+      public File answer(InvocationOnMock invocation) throws IOException {
+        Object[] args = invocation.getArguments();
+        File dbFile = new File(new File(dryRunCacheLocation, "default"), (String) args[2] + ".h2.db");
+        FileUtils.write(dbFile, "fake db content");
+        return dbFile;
+      }
+    });
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    dryRunCache.writeDatabaseForPreview(null, output);
+    assertThat(new String(output.toByteArray())).isEqualTo("fake db content");
+
+    output = new ByteArrayOutputStream();
+    dryRunCache.writeDatabaseForPreview(null, output);
+    assertThat(new String(output.toByteArray())).isEqualTo("fake db content");
+
+    verify(dryRunDatabaseFactory, times(1)).createNewDatabaseForDryRun(anyLong(), any(File.class), anyString());
+  }
+
+  @Test
+  public void test_writeDatabaseForPreview_concurrently() throws Exception {
+    final byte[] content = new byte[1024 * 1024];
+    new Random(42).nextBytes(content);
+    when(dryRunDatabaseFactory.createNewDatabaseForDryRun(eq(123L), any(File.class), any(File.class), anyString())).thenAnswer(new Answer<File>() {
+      public File answer(InvocationOnMock invocation) throws IOException {
+        Object[] args = invocation.getArguments();
+        File dbFile = new File(new File(dryRunCacheLocation, "123"), (String) args[3] + ".h2.db");
+        FileUtils.writeByteArrayToFile(dbFile, content);
+        return dbFile;
+      }
+    });
+    when(resourceDao.getRootProjectByComponentId(123L)).thenReturn(new ResourceDto().setId(123L));
+    mockGlobalDatabase();
+
+    int downloads = 50;
+    ExecutorService executor = Executors.newFixedThreadPool(downloads);
+    try {
+      List<Future<byte[]>> results = Lists.newArrayList();
+      for (int i = 0; i < downloads; i++) {
+        results.add(executor.submit(new Callable<byte[]>() {
+          public byte[] call() {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            dryRunCache.writeDatabaseForPreview(123L, output);
+            return output.toByteArray();
+          }
+        }));
+      }
+      for (Future<byte[]> result : results) {
+        assertThat(result.get(30, TimeUnit.SECONDS)).isEqualTo(content);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    verify(dryRunDatabaseFactory, times(1)).createNewDatabaseForDryRun(anyLong(), any(File.class), any(File.class), anyString());
+    verify(dryRunDatabaseFactory, times(1)).createNewDatabaseForDryRun(isNull(Long.class), any(File.class), anyString());
+  }
+
+  @Test
+  public void test_getDatabaseForDryRun_global_invalidation_of_projects() throws Exception {
+    when(dryRunDatabaseFactory.createNewDatabaseForDryRun(anyLong(), any(File.class), any(File.class), anyString())).thenAnswer(new Answer<File>() {
+      public File answer(InvocationOnMock invocation) throws IOException {
+        Object[] args = invocation.getArguments();
+        File dbFile = new File((File) args[2], (String) args[3] + ".h2.db");
+        FileUtils.write(dbFile, "project " + args[0] + " with " + FileUtils.readFileToString((File) args[1]));
+        return dbFile;
+      }
+    });
+    when(resourceDao.getRootProjectByComponentId(123L)).thenReturn(new ResourceDto().setId(123L));
+    when(resourceDao.getRootProjectByComponentId(456L)).thenReturn(new ResourceDto().setId(456L));
+    mockGlobalDatabase();
+
+    assertThat(new String(dryRunCache.getDatabaseForPreview(123L))).isEqualTo("project 123 with global db content 1");
+    assertThat(new String(dryRunCache.getDatabaseForPreview(456L))).isEqualTo("project 456 with global db content 1");
+
+    // Emulate invalidation of cache
+    Thread.sleep(100);
+    when(propertiesDao.selectGlobalProperty(PreviewCache.SONAR_PREVIEW_CACHE_LAST_UPDATE_KEY)).thenReturn(new PropertyDto().setValue("" + System.currentTimeMillis()));
+
+    assertThat(new String(dryRunCache.getDatabaseForPreview(123L))).isEqualTo("project 123 with global db content 2");
+    assertThat(new String(dryRunCache.getDatabaseForPreview(456L))).isEqualTo("project 456 with global db content 2");
+    assertThat(new String(dryRunCache.getDatabaseForPreview(null))).isEqualTo("global db content 2");
+
+    // shared tables are copied only once for all projects
+    verify(dryRunDatabaseFactory, times(2)).createNewDatabaseForDryRun(isNull(Long.class), any(File.class), anyString());
+    verify(dryRunDatabaseFactory, times(4)).createNewDatabaseForDryRun(anyLong(), any(File.class), any(File.class), anyString());
+  }
+
+  @Test
+  public void test_getDatabaseForDryRun_project_invalidation_keeps_global_database() throws Exception {
+    when(dryRunDatabaseFactory.createNewDatabaseForDryRun(eq(123L), any(File.class), any(File.class), anyString())).thenAnswer(new Answer<File>() {
+      public File answer(InvocationOnMock invocation) throws IOException {
+        Object[] args = invocation.getArguments();
+        File dbFile = new File((File) args[2], (String) args[3] + ".h2.db");
+        FileUtils.write(dbFile, "fake db content");
+        return dbFile;
+      }
+    });
+    when(resourceDao.getRootProjectByComponentId(123L)).thenReturn(new ResourceDto().setId(123L));
+    mockGlobalDatabase();
+
+    dryRunCache.getDatabaseForPreview(123L);
+    // Emulate invalidation of project
+    Thread.sleep(100);
+    when(propertiesDao.selectProjectProperty(123L, PreviewCache.SONAR_PREVIEW_CACHE_LAST_UPDATE_KEY)).thenReturn(new PropertyDto().setValue("" + System.currentTimeMillis()));
+    dryRunCache.getDatabaseForPreview(123L);
+
+    verify(dryRunDatabaseFactory, times(2)).createNewDatabaseForDryRun(eq(123L), any(File.class), any(File.class), anyString());
+    verify(dryRunDatabaseFactory, times(1)).createNewDatabaseForDryRun(isNull(Long.class), any(File.class), anyString());
   }
 
   @Test
@@ -233,4 +359,18 @@ public class PreviewCacheTest {
         .setValue(anyString())
         .setResourceId(456L));
   }
+
+  private void mockGlobalDatabase() {
+    when(dryRunDatabaseFactory.createNewDatabaseForDryRun(isNull(Long.class), any(File.class), anyString())).thenAnswer(new Answer<File>() {
+      private int count = 0;
+
+      public File answer(InvocationOnMock invocation) throws IOException {
+        Object[] args = invocation.getArguments();
+        File dbFile = new File((File) args[1], (String) args[2] + ".h2.db");
+        count++;
+        FileUtils.write(dbFile, "global db content " + count);
+        return dbFile;
+      }
+    });
+  }
 }
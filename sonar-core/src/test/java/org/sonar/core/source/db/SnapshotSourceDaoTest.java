@@ -23,6 +23,7 @@ package org.sonar.core.source.db;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.core.persistence.AbstractDaoTestCase;
+import org.sonar.core.persistence.BatchSession;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -49,4 +50,17 @@ public class SnapshotSourceDaoTest extends AbstractDaoTestCase {
 
     assertThat(snapshotSource).isEqualTo("public class Foo {public Foo(){}}");
   }
+
+  @Test
+  public void insert() throws Exception {
+    BatchSession session = getMyBatis().openBatchSession(10);
+    try {
+      dao.insert(session, new SnapshotSourceDto().setSnapshotId(10L).setData("public class Foo {}"));
+      session.commit();
+    } finally {
+      session.close();
+    }
+
+    checkTable("insert", "snapshot_sources", "snapshot_id", "data");
+  }
 }
@@ -0,0 +1,107 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.technicaldebt;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.technicaldebt.batch.internal.DefaultCharacteristic;
+import org.sonar.api.technicaldebt.batch.internal.DefaultRequirement;
+import org.sonar.api.utils.WorkUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class IndexedTechnicalDebtModelTest {
+
+  DefaultCharacteristic rootCharacteristic;
+  DefaultCharacteristic characteristic;
+  DefaultRequirement requirement;
+  RuleKey ruleKey = RuleKey.of("checkstyle", "Regexp");
+  IndexedTechnicalDebtModel model;
+
+  @Before
+  public void setUp() throws Exception {
+    rootCharacteristic = new DefaultCharacteristic()
+      .setId(1)
+      .setKey("MEMORY_EFFICIENCY")
+      .setName("Memory use");
+
+    characteristic = new DefaultCharacteristic()
+      .setId(2)
+      .setKey("EFFICIENCY")
+      .setName("Efficiency")
+      .setParent(rootCharacteristic);
+
+    requirement = new DefaultRequirement()
+      .setId(3)
+      .setCharacteristic(characteristic)
+      .setRuleKey(ruleKey)
+      .setFunction("linear")
+      .setFactor(WorkUnit.create(2d, WorkUnit.HOURS))
+      .setOffset(WorkUnit.create(0d, WorkUnit.HOURS));
+
+    model = new IndexedTechnicalDebtModel(new DefaultTechnicalDebtModel().addRootCharacteristic(rootCharacteristic));
+  }
+
+  @Test
+  public void get_characteristics() throws Exception {
+    assertThat(model.rootCharacteristics()).containsExactly(rootCharacteristic);
+    assertThat(model.characteristics()).containsExactly(rootCharacteristic, characteristic);
+    assertThat(model.isEmpty()).isFalse();
+  }
+
+  @Test
+  public void get_characteristic_by_key() throws Exception {
+    assertThat(model.characteristicByKey("MEMORY_EFFICIENCY")).isEqualTo(rootCharacteristic);
+    assertThat(model.characteristicByKey("EFFICIENCY")).isEqualTo(characteristic);
+    assertThat(model.characteristicByKey("UNKNOWN")).isNull();
+  }
+
+  @Test
+  public void get_characteristic_by_id() throws Exception {
+    assertThat(model.characteristicById(1)).isEqualTo(rootCharacteristic);
+    assertThat(model.characteristicById(2)).isEqualTo(characteristic);
+    assertThat(model.characteristicById(3)).isNull();
+  }
+
+  @Test
+  public void get_requirement_by_rule_key() throws Exception {
+    assertThat(model.requirements()).containsExactly(requirement);
+    assertThat(model.requirementsByRule(ruleKey)).isEqualTo(requirement);
+    assertThat(model.requirementsByRule(RuleKey.of("not", "found"))).isNull();
+  }
+
+  @Test
+  public void get_requirement_by_id() throws Exception {
+    assertThat(model.requirementsById(3)).isEqualTo(requirement);
+    assertThat(model.requirementsById(1)).isNull();
+  }
+
+  @Test
+  public void not_change_when_model_changes() throws Exception {
+    DefaultTechnicalDebtModel defaultModel = new DefaultTechnicalDebtModel();
+    IndexedTechnicalDebtModel emptyModel = new IndexedTechnicalDebtModel(defaultModel);
+
+    defaultModel.addRootCharacteristic(rootCharacteristic);
+
+    assertThat(emptyModel.isEmpty()).isTrue();
+    assertThat(emptyModel.requirementsByRule(ruleKey)).isNull();
+  }
+}
@@ -91,6 +91,19 @@ public final class ByteArray {
     return result;
   }
 
+  /**
+   * Big-endian value of the first 8 bytes. Inverse of {@link #ByteArray(long)}.
+   *
+   * @since 4.2
+   */
+  public long toLong() {
+    long result = 0L;
+    for (int i = 0; i < Math.min(8, bytes.length); i++) {
+      result = (result << 8) | (bytes[i] & 0xFF);
+    }
+    return result;
+  }
+
   private static final String HEXES = "0123456789abcdef";
 
   public String toHexString() {
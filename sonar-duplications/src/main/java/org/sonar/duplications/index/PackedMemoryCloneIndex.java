@@ -133,34 +133,34 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
 
   /**
    * {@inheritDoc}
+   * <p>
+   * Unlike other methods, this one doesn't modify internal state once index is sorted,
+   * so it can be invoked concurrently after first query.
+   * </p>
    */
   public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
     ensureSorted();
 
-    // prepare hash for binary search
     int[] hash = sequenceHash.toIntArray();
     if (hash.length != hashInts) {
       throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
     }
-    int offset = size * blockInts;
-    for (int i = 0; i < hashInts; i++) {
-      blockData[offset++] = hash[i];
-    }
 
-    int index = DataUtils.binarySearch(byBlockHash);
+    int index = binarySearchByHash(hash);
 
+    Block.Builder builder = Block.builder();
     List<Block> result = Lists.newArrayList();
-    while (index < size && !isLessByHash(size, index)) {
+    while (index < size && compareHash(index, hash) == 0) {
       // extract block (note that there is no need to extract hash)
       String resourceId = resourceIds[index];
-      offset = index * blockInts + hashInts;
+      int offset = index * blockInts + hashInts;
       int indexInFile = blockData[offset++];
       int firstLineNumber = blockData[offset++];
       int lastLineNumber = blockData[offset++];
       int startUnit = blockData[offset++];
       int endUnit = blockData[offset];
 
-      Block block = blockBuilder
+      Block block = builder
           .setResourceId(resourceId)
           .setBlockHash(sequenceHash)
           .setIndexInFile(indexInFile)
@@ -173,6 +173,36 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     return result;
   }
 
+  /**
+   * Same as {@link DataUtils#binarySearch(DataUtils.Sortable)}, but without storing searched hash at the end of data.
+   */
+  private int binarySearchByHash(int[] hash) {
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >> 1;
+      if (compareHash(mid, hash) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+    return lower;
+  }
+
+  private int compareHash(int index, int[] hash) {
+    int offset = index * blockInts;
+    for (int k = 0; k < hashInts; k++, offset++) {
+      if (blockData[offset] < hash[k]) {
+        return -1;
+      }
+      if (blockData[offset] > hash[k]) {
+        return 1;
+      }
+    }
+    return 0;
+  }
+
   /**
    * {@inheritDoc}
    * <p>
@@ -32,6 +32,8 @@ public class CycleDetector<V> {
   private Set<V> analyzedVertices;
   private Set<Cycle> cycles = new HashSet<Cycle>();
   private Set<Edge> edgesToExclude;
+  private StronglyConnectedComponents<V> components;
+  private Set<V> pathVertices;
   private long searchCyclesCalls = 0;
   private int maxSearchDepth = -1;
   private boolean maxSearchDepthActivated = false;
@@ -84,9 +86,12 @@ public class CycleDetector<V> {
     if (!cycles.isEmpty()) {
       throw new IllegalStateException("Cycle detection can't be executed twice on the same CycleDetector object.");
     }
+    // a cycle can't leave the strongly connected component of its vertices, so search is restricted to each cyclic component
+    components = StronglyConnectedComponents.of(graph, vertices, edgesToExclude);
+    pathVertices = new HashSet<V>();
     try {
       for (V vertex : vertices) {
-        if (maxSearchDepthActivated || !analyzedVertices.contains(vertex)) {
+        if (components.isCyclic(vertex) && (maxSearchDepthActivated || !analyzedVertices.contains(vertex))) {
           Set<V> tmpAnalyzedVertices = new HashSet<V>();
           searchCycles(vertex, new ArrayList<V>(), tmpAnalyzedVertices);
           analyzedVertices.addAll(tmpAnalyzedVertices);
@@ -100,12 +105,14 @@ public class CycleDetector<V> {
   private void searchCycles(V fromVertex, List<V> path, Set<V> tmpAnalyzedVertices) {
     searchCyclesCalls++;
     path.add(fromVertex);
+    pathVertices.add(fromVertex);
     tmpAnalyzedVertices.add(fromVertex);
+    int component = components.getComponent(fromVertex);
     for (Edge<V> edge : graph.getOutgoingEdges(fromVertex)) {
       V toVertex = edge.getTo();
-      if (!edgesToExclude.contains(edge) && vertices.contains(toVertex)
+      if (!edgesToExclude.contains(edge) && components.getComponent(toVertex) == component
           && (maxSearchDepthActivated || !analyzedVertices.contains(toVertex))) {
-        if (path.contains(toVertex)) {
+        if (pathVertices.contains(toVertex)) {
           path.add(toVertex);
           List<V> cyclePath = path.subList(path.indexOf(toVertex), path.size());
           Cycle cycle = convertListOfVerticesToCycle(cyclePath);
@@ -121,6 +128,7 @@ public class CycleDetector<V> {
       }
     }
     path.remove(path.size() - 1);
+    pathVertices.remove(fromVertex);
   }
 
   private Cycle convertListOfVerticesToCycle(List<V> vertices) {
@@ -19,8 +19,13 @@
  */
 package org.sonar.graph;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class IncrementalCyclesAndFESSolver<V> {
@@ -29,7 +34,9 @@ public class IncrementalCyclesAndFESSolver<V> {
   private long searchCyclesCalls = 0;
   private static final int DEFAULT_MAX_SEARCH_DEPTH_AT_FIRST = 3;
   private static final int DEFAULT_MAX_CYCLES_TO_FOUND_BY_ITERATION = 100;
-  private MinimumFeedbackEdgeSetSolver solver;
+  private final StronglyConnectedComponents<V> components;
+  private final List<MinimumFeedbackEdgeSetSolver> solvers = new ArrayList<MinimumFeedbackEdgeSetSolver>();
+  private Set<Edge> feedbackEdges;
   private int iterations = 0;
 
   public IncrementalCyclesAndFESSolver(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices) {
@@ -39,13 +46,13 @@ public class IncrementalCyclesAndFESSolver<V> {
   public IncrementalCyclesAndFESSolver(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices, int maxSearchDepthAtFirst,
       int maxCyclesToFoundByIteration) {
 
+    components = StronglyConnectedComponents.of(graph, vertices, Collections.<Edge>emptySet());
     iterations++;
     CycleDetector<V> cycleDetector = new CycleDetector<V>(graph, vertices);
     cycleDetector.detectCyclesWithMaxSearchDepth(maxSearchDepthAtFirst);
     searchCyclesCalls += cycleDetector.getSearchCyclesCalls();
     cycles.addAll(cycleDetector.getCycles());
-    solver = new MinimumFeedbackEdgeSetSolver(cycles);
-    Set<Edge> edgesToExclude = solver.getEdges();
+    Set<Edge> edgesToExclude = solve();
 
     do {
       iterations++;
@@ -53,21 +60,53 @@ public class IncrementalCyclesAndFESSolver<V> {
       cycleDetector.detectCyclesWithUpperLimit(maxCyclesToFoundByIteration);
       searchCyclesCalls += cycleDetector.getSearchCyclesCalls();
       cycles.addAll(cycleDetector.getCycles());
-      solver = new MinimumFeedbackEdgeSetSolver(cycles);
-      edgesToExclude = solver.getEdges();
+      edgesToExclude = solve();
     } while (!cycleDetector.getCycles().isEmpty());
   }
 
+  /**
+   * Cycles of different strongly connected components don't share any edge, so minimum feedback edge set
+   * is searched independently in each component.
+   */
+  private Set<Edge> solve() {
+    Map<Integer, Set<Cycle>> cyclesByComponent = new HashMap<Integer, Set<Cycle>>();
+    for (Cycle cycle : cycles) {
+      int component = components.getComponent(cycle.getEdges()[0].getFrom());
+      Set<Cycle> componentCycles = cyclesByComponent.get(component);
+      if (componentCycles == null) {
+        componentCycles = new HashSet<Cycle>();
+        cyclesByComponent.put(component, componentCycles);
+      }
+      componentCycles.add(cycle);
+    }
+    solvers.clear();
+    feedbackEdges = new HashSet<Edge>();
+    for (Set<Cycle> componentCycles : cyclesByComponent.values()) {
+      MinimumFeedbackEdgeSetSolver solver = new MinimumFeedbackEdgeSetSolver(componentCycles);
+      solvers.add(solver);
+      feedbackEdges.addAll(solver.getEdges());
+    }
+    return feedbackEdges;
+  }
+
   public int getWeightOfFeedbackEdgeSet() {
-    return solver.getWeightOfFeedbackEdgeSet();
+    int weight = 0;
+    for (MinimumFeedbackEdgeSetSolver solver : solvers) {
+      weight += solver.getWeightOfFeedbackEdgeSet();
+    }
+    return weight;
   }
 
   public int getNumberOfLoops() {
-    return solver.getNumberOfLoops();
+    int loops = 0;
+    for (MinimumFeedbackEdgeSetSolver solver : solvers) {
+      loops += solver.getNumberOfLoops();
+    }
+    return loops;
   }
 
   public Set<Edge> getFeedbackEdgeSet() {
-    return solver.getEdges();
+    return feedbackEdges;
   }
 
   public Set<Cycle> getCycles() {
@@ -0,0 +1,215 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decomposition of a graph into strongly connected components, with Tarjan's algorithm in O(V+E).
+ * Every cycle of a graph is included in a single component, so only cyclic components, i.e. with
+ * more than one vertex or with a self-loop, are kept.
+ */
+public final class StronglyConnectedComponents<V> {
+
+  private static final int UNVISITED = -1;
+
+  private final Map<V, Integer> componentByVertex = new HashMap<V, Integer>();
+  private final List<Set<V>> components = new ArrayList<Set<V>>();
+
+  private StronglyConnectedComponents() {
+  }
+
+  public static <V> StronglyConnectedComponents<V> of(DirectedGraphAccessor<V, ? extends Edge> graph) {
+    return of(graph, graph.getVertices(), Collections.<Edge>emptySet());
+  }
+
+  /**
+   * @param vertices       vertices to consider, edges to other vertices are ignored
+   * @param edgesToExclude edges to ignore
+   */
+  public static <V> StronglyConnectedComponents<V> of(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices, Set<Edge> edgesToExclude) {
+    StronglyConnectedComponents<V> result = new StronglyConnectedComponents<V>();
+    new Tarjan<V>(graph, vertices, edgesToExclude, result).run();
+    return result;
+  }
+
+  /**
+   * Vertices are compared with equals(), as keys of a map. Any object can be looked up, for example the untyped
+   * vertices of the edges of a {@link Cycle}.
+   *
+   * @return index of the cyclic component containing the vertex, or -1 if the vertex isn't part of any cycle
+   */
+  public int getComponent(Object vertex) {
+    Integer component = componentByVertex.get(vertex);
+    return component == null ? -1 : component;
+  }
+
+  public boolean isCyclic(V vertex) {
+    return componentByVertex.containsKey(vertex);
+  }
+
+  public List<Set<V>> getCyclicComponents() {
+    return components;
+  }
+
+  private void addComponent(Set<V> component) {
+    int index = components.size();
+    components.add(component);
+    for (V vertex : component) {
+      componentByVertex.put(vertex, index);
+    }
+  }
+
+  /**
+   * Non-recursive implementation on int ids, so that large graphs don't overflow the stack.
+   */
+  private static final class Tarjan<V> {
+    private final List<V> vertices;
+    private final int[] firstEdge;
+    private final int[] targets;
+    private final StronglyConnectedComponents<V> result;
+
+    private final int[] index;
+    private final int[] lowLink;
+    private final boolean[] onStack;
+    private final int[] stack;
+    private int stackSize = 0;
+    private int nextIndex = 0;
+
+    // explicit DFS call stack: vertex and position in its outgoing edges
+    private final int[] callVertices;
+    private final int[] callEdges;
+
+    Tarjan(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices, Set<Edge> edgesToExclude, StronglyConnectedComponents<V> result) {
+      this.vertices = new ArrayList<V>(new LinkedHashSet<V>(vertices));
+      this.result = result;
+      int size = this.vertices.size();
+      Map<V, Integer> ids = new HashMap<V, Integer>(size * 2);
+      for (int i = 0; i < size; i++) {
+        ids.put(this.vertices.get(i), i);
+      }
+
+      // adjacency lists in compressed sparse row format
+      firstEdge = new int[size + 1];
+      int[] edgeTargets = new int[16];
+      int edgeCount = 0;
+      for (int i = 0; i < size; i++) {
+        firstEdge[i] = edgeCount;
+        for (Edge edge : graph.getOutgoingEdges(this.vertices.get(i))) {
+          Integer target = ids.get(edge.getTo());
+          if (target != null && !edgesToExclude.contains(edge)) {
+            if (edgeCount == edgeTargets.length) {
+              int[] tmp = new int[edgeTargets.length * 2];
+              System.arraycopy(edgeTargets, 0, tmp, 0, edgeCount);
+              edgeTargets = tmp;
+            }
+            edgeTargets[edgeCount++] = target;
+          }
+        }
+      }
+      firstEdge[size] = edgeCount;
+      targets = edgeTargets;
+
+      index = new int[size];
+      lowLink = new int[size];
+      onStack = new boolean[size];
+      stack = new int[size];
+      callVertices = new int[size];
+      callEdges = new int[size];
+    }
+
+    void run() {
+      Arrays.fill(index, UNVISITED);
+      for (int v = 0; v < vertices.size(); v++) {
+        if (index[v] == UNVISITED) {
+          visit(v);
+        }
+      }
+    }
+
+    private void visit(int root) {
+      int depth = 0;
+      push(root, depth);
+      while (depth >= 0) {
+        int v = callVertices[depth];
+        if (callEdges[depth] < firstEdge[v + 1]) {
+          int w = targets[callEdges[depth]];
+          callEdges[depth]++;
+          if (index[w] == UNVISITED) {
+            depth++;
+            push(w, depth);
+          } else if (onStack[w]) {
+            lowLink[v] = Math.min(lowLink[v], index[w]);
+          }
+        } else {
+          if (lowLink[v] == index[v]) {
+            popComponent(v);
+          }
+          depth--;
+          if (depth >= 0) {
+            int parent = callVertices[depth];
+            lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+          }
+        }
+      }
+    }
+
+    private void push(int v, int depth) {
+      index[v] = nextIndex;
+      lowLink[v] = nextIndex;
+      nextIndex++;
+      stack[stackSize++] = v;
+      onStack[v] = true;
+      callVertices[depth] = v;
+      callEdges[depth] = firstEdge[v];
+    }
+
+    private void popComponent(int root) {
+      Set<V> component = new HashSet<V>();
+      int w;
+      do {
+        w = stack[--stackSize];
+        onStack[w] = false;
+        component.add(vertices.get(w));
+      } while (w != root);
+      if (component.size() > 1 || hasSelfLoop(root)) {
+        result.addComponent(component);
+      }
+    }
+
+    private boolean hasSelfLoop(int v) {
+      for (int e = firstEdge[v]; e < firstEdge[v + 1]; e++) {
+        if (targets[e] == v) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -56,6 +56,21 @@ public class IncrementalCyclesAndFESSolverTest {
     assertThat(cyclesAndFESSolver.getWeightOfFeedbackEdgeSet(), is(1));
   }
 
+  @Test
+  public void testSeveralStronglyConnectedComponents() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "A");
+    dcg.addEdge("B", "C", 5);
+    dcg.addEdge("C", "D", 2).addEdge("D", "E", 3).addEdge("E", "C", 4);
+    dcg.addEdge("D", "C", 1);
+
+    IncrementalCyclesAndFESSolver<String> cyclesAndFESSolver = new IncrementalCyclesAndFESSolver<String>(dcg, dcg.getVertices());
+    assertThat(cyclesAndFESSolver.getCycles().size(), is(3));
+    assertThat(cyclesAndFESSolver.getFeedbackEdgeSet().size(), is(2));
+    assertThat(cyclesAndFESSolver.getWeightOfFeedbackEdgeSet(), is(3));
+    assertThat(cyclesAndFESSolver.getFeedbackEdgeSet().contains(dcg.getEdge("C", "D")), is(true));
+  }
+
   @Test
   public void testBothMaxSearchDepthAtFirstAndMaxCyclesToFoundByIteration() {
     DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
@@ -0,0 +1,93 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.graph;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class StronglyConnectedComponentsTest {
+
+  @Test
+  public void testAcyclicGraph() {
+    DirectedGraph<String, StringEdge> dag = DirectedGraph.createStringDirectedGraph();
+    dag.addEdge("A", "B").addEdge("B", "C").addEdge("C", "D");
+    dag.addEdge("A", "D");
+
+    StronglyConnectedComponents<String> components = StronglyConnectedComponents.of(dag);
+    assertThat(components.getCyclicComponents().size(), is(0));
+    assertFalse(components.isCyclic("A"));
+    assertThat(components.getComponent("A"), is(-1));
+  }
+
+  @Test
+  public void testSeveralComponents() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "C").addEdge("C", "A");
+    dcg.addEdge("C", "D").addEdge("D", "E").addEdge("E", "D");
+    dcg.addEdge("E", "F");
+    dcg.addEdge("G", "G");
+
+    StronglyConnectedComponents<String> components = StronglyConnectedComponents.of(dcg);
+    assertThat(components.getCyclicComponents().size(), is(3));
+    assertThat(components.getComponent("A"), is(components.getComponent("C")));
+    assertThat(components.getComponent("D"), is(components.getComponent("E")));
+    assertTrue(components.getComponent("A") != components.getComponent("D"));
+    assertTrue(components.isCyclic("G"));
+    assertFalse(components.isCyclic("F"));
+    assertTrue(components.getCyclicComponents().contains(new HashSet<String>(Arrays.asList("A", "B", "C"))));
+  }
+
+  @Test
+  public void testExcludedEdgesAndVertices() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "C").addEdge("C", "A");
+    dcg.addEdge("B", "A");
+
+    Set<Edge> excludedEdges = new HashSet<Edge>();
+    excludedEdges.add(dcg.getEdge("B", "A"));
+    excludedEdges.add(dcg.getEdge("C", "A"));
+    assertThat(StronglyConnectedComponents.of(dcg, dcg.getVertices(), excludedEdges).getCyclicComponents().size(), is(0));
+
+    StronglyConnectedComponents<String> components = StronglyConnectedComponents.of(dcg, Arrays.asList("A", "B"), new HashSet<Edge>());
+    assertThat(components.getCyclicComponents().size(), is(1));
+    assertFalse(components.isCyclic("C"));
+  }
+
+  @Test
+  public void testLongPathDoesNotOverflowStack() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    for (int i = 0; i < 100000; i++) {
+      dcg.addEdge("V" + i, "V" + (i + 1));
+    }
+    dcg.addEdge("V100000", "V0");
+
+    StronglyConnectedComponents<String> components = StronglyConnectedComponents.of(dcg);
+    assertThat(components.getCyclicComponents().size(), is(1));
+    assertThat(components.getCyclicComponents().get(0).size(), is(100001));
+  }
+}
@@ -543,4 +543,60 @@ public interface CoreProperties {
    * @since 4.2
    */
   String CORE_AUTHENTICATOR_LOCAL_USERS = "sonar.security.localUsers";
+
+  /**
+   * Number of threads used to hash and detect language of files when indexing the file system
+   * of a module. Files are indexed sequentially when value is lower than 2.
+   *
+   * @since 4.2
+   */
+  String INDEX_THREADS = "sonar.index.threads";
+  String INDEX_THREADS_DEFAULT_VALUE = "1";
+
+  /**
+   * Number of threads used to execute decorators. Sibling resources are decorated concurrently, but only
+   * decorators annotated with {@link org.sonar.api.batch.ThreadSafe} are executed in parallel. Decorators
+   * are executed sequentially when value is lower than 2.
+   *
+   * @since 4.2
+   */
+  String DECORATOR_THREADS = "sonar.decorator.threads";
+  String DECORATOR_THREADS_DEFAULT_VALUE = "1";
+
+  /**
+   * Maximum number of measures sent to database in a single JDBC batch when persisting the measures
+   * computed by sensors and decorators.
+   *
+   * @since 4.2
+   */
+  String MEASURES_BATCH_SIZE = "sonar.measures.batchSize";
+  String MEASURES_BATCH_SIZE_DEFAULT_VALUE = "250";
+
+  /**
+   * Maximum number of files which measures are kept in memory during the analysis of a module. Measures of the
+   * least recently used files are moved to a disk cache and reloaded on demand. All measures are kept in memory
+   * when value is lower than 1.
+   *
+   * @since 4.2
+   */
+  String MEASURES_MAX_FILES_IN_MEMORY = "sonar.measures.maxFilesInMemory";
+  String MEASURES_MAX_FILES_IN_MEMORY_DEFAULT_VALUE = "0";
+
+  /**
+   * Maximum number of file sources, or of component data like syntax highlighting, sent to database
+   * in a single JDBC batch. Sources are kept in memory until being flushed.
+   *
+   * @since 4.2
+   */
+  String SOURCES_BATCH_SIZE = "sonar.sources.batchSize";
+  String SOURCES_BATCH_SIZE_DEFAULT_VALUE = "100";
+
+  /**
+   * Number of threads used to chunk files and to detect duplications of a module. Files are processed
+   * sequentially when value is lower than 2. Detection is also sequential when cross project detection is enabled.
+   *
+   * @since 4.2
+   */
+  String CPD_THREADS = "sonar.cpd.threads";
+  String CPD_THREADS_DEFAULT_VALUE = "1";
 }
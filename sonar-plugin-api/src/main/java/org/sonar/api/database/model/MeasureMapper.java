@@ -22,6 +22,13 @@ package org.sonar.api.database.model;
 public interface MeasureMapper {
   void insert(MeasureModel measure);
 
+  /**
+   * Same as {@link #insert(MeasureModel)} but without returning the generated id, so that
+   * it can be executed in JDBC batches.
+   * @since 4.2
+   */
+  void batchInsert(MeasureModel measure);
+
   void insertData(MeasureData data);
 
   void deleteData(MeasureModel data);
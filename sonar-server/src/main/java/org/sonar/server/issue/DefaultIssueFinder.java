@@ -46,6 +46,7 @@ import org.sonar.core.rule.DefaultRuleFinder;
 import org.sonar.server.user.UserSession;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -99,19 +100,28 @@ public class DefaultIssueFinder implements IssueFinder {
     long start = System.currentTimeMillis();
     SqlSession sqlSession = myBatis.openSession();
     try {
-      // 1. Select the authorized ids of all the issues that match the query
-      List<IssueDto> authorizedIssues = issueDao.selectIssueIds(query, UserSession.get().userId(), sqlSession);
+      Integer userId = UserSession.get().userId();
+      int offset = (query.pageIndex() - 1) * query.pageSize();
+      int pageEnd = Math.min(offset + query.pageSize(), query.maxResults());
+
+      // 1. Select the authorized ids of the issues until the end of the requested page, sorted by the database
+      List<IssueDto> sortedIssueIds = Collections.emptyList();
+      if (pageEnd > offset) {
+        sortedIssueIds = issueDao.selectSortedIssueIds(query, userId, pageEnd, sqlSession);
+      }
 
-      // 2. Sort all authorized issues
-      List<IssueDto> authorizedSortedIssues = sort(authorizedIssues, query, authorizedIssues.size());
+      // 2. Count the authorized issues, unless they have all been selected
+      int total = sortedIssueIds.size();
+      if (pageEnd <= offset || total == pageEnd) {
+        total = issueDao.countIssues(query, userId, sqlSession);
+      }
 
       // 3. Apply pagination
-      Paging paging = Paging.create(query.pageSize(), query.pageIndex(), authorizedSortedIssues.size());
-      Set<Long> pagedIssueIds = pagedIssueIds(authorizedSortedIssues, paging);
+      Paging paging = Paging.create(query.pageSize(), query.pageIndex(), Math.min(total, query.maxResults()));
+      List<Long> pagedIssueIds = pagedIssueIds(sortedIssueIds, paging);
 
-      // 4. Load issues and their related data (rules, components, projects, comments, action plans, ...) and sort then again
-      List<IssueDto> pagedIssues = issueDao.selectByIds(pagedIssueIds, sqlSession);
-      List<IssueDto> pagedSortedIssues = sort(pagedIssues, query, authorizedIssues.size());
+      // 4. Load issues and their related data (rules, components, projects, comments, action plans, ...) in the order of ids
+      List<IssueDto> pagedSortedIssues = sort(issueDao.selectByIds(pagedIssueIds, sqlSession), pagedIssueIds);
 
       Map<String, DefaultIssue> issuesByKey = newHashMap();
       List<Issue> issues = newArrayList();
@@ -145,7 +155,7 @@ public class DefaultIssueFinder implements IssueFinder {
       }
 
       return new DefaultIssueQueryResult(issues)
-        .setMaxResultsReached(authorizedIssues.size() == query.maxResults())
+        .setMaxResultsReached(total >= query.maxResults())
         .addRules(findRules(ruleIds))
         .addComponents(findComponents(componentIds))
         .addProjects(findComponents(projectIds))
@@ -158,25 +168,28 @@ public class DefaultIssueFinder implements IssueFinder {
     }
   }
 
-  private List<IssueDto> sort(List<IssueDto> issues, IssueQuery query, int allIssuesSize) {
-    if (allIssuesSize < query.maxResults()) {
-      return new IssuesFinderSort(issues, query).sort();
+  private List<Long> pagedIssueIds(List<IssueDto> sortedIssueIds, Paging paging) {
+    List<Long> issueIds = newArrayList();
+    int end = Math.min(paging.offset() + paging.pageSize(), sortedIssueIds.size());
+    for (int index = paging.offset(); index < end; index++) {
+      issueIds.add(sortedIssueIds.get(index).getId());
     }
-    return issues;
+    return issueIds;
   }
 
-  private Set<Long> pagedIssueIds(Collection<IssueDto> issues, Paging paging) {
-    Set<Long> issueIds = Sets.newLinkedHashSet();
-    int index = 0;
+  private List<IssueDto> sort(List<IssueDto> issues, List<Long> sortedIssueIds) {
+    Map<Long, IssueDto> issuesById = newHashMap();
     for (IssueDto issue : issues) {
-      if (index >= paging.offset() && issueIds.size() < paging.pageSize()) {
-        issueIds.add(issue.getId());
-      } else if (issueIds.size() >= paging.pageSize()) {
-        break;
+      issuesById.put(issue.getId(), issue);
+    }
+    List<IssueDto> sortedIssues = newArrayList();
+    for (Long issueId : sortedIssueIds) {
+      IssueDto issue = issuesById.get(issueId);
+      if (issue != null) {
+        sortedIssues.add(issue);
       }
-      index++;
     }
-    return issueIds;
+    return sortedIssues;
   }
 
   private Collection<Rule> findRules(Set<Integer> ruleIds) {
@@ -21,6 +21,8 @@ package org.sonar.server.notifications;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,9 +41,16 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @since 2.10
@@ -58,6 +67,18 @@ import java.util.concurrent.TimeUnit;
     defaultValue = "600",
     name = "Delay before reporting notification status, in seconds",
     project = false,
+    global = false),
+  @Property(
+    key = NotificationService.PROPERTY_BATCH_SIZE,
+    defaultValue = "100",
+    name = "Number of notifications dequeued at once",
+    project = false,
+    global = false),
+  @Property(
+    key = NotificationService.PROPERTY_DELIVERY_THREADS,
+    defaultValue = "1",
+    name = "Number of threads delivering notifications, per channel",
+    project = false,
     global = false)
 })
 public class NotificationService implements ServerComponent {
@@ -66,17 +87,33 @@ public class NotificationService implements ServerComponent {
 
   public static final String PROPERTY_DELAY = "sonar.notifications.delay";
   public static final String PROPERTY_DELAY_BEFORE_REPORTING_STATUS = "sonar.notifications.runningDelayBeforeReportingStatus";
+  public static final String PROPERTY_BATCH_SIZE = "sonar.notifications.batchSize";
+  public static final String PROPERTY_DELIVERY_THREADS = "sonar.notifications.deliveryThreads";
 
   private static final TimeProfiler TIME_PROFILER = new TimeProfiler(LOG).setLevelToDebug();
 
+  /**
+   * Unlike {@link ThreadPoolExecutor.CallerRunsPolicy}, also runs the task when the pool is shut down, so that its future always completes.
+   */
+  private static final RejectedExecutionHandler RUN_IN_CALLER = new RejectedExecutionHandler() {
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+      task.run();
+    }
+  };
+
   private final long delayInSeconds;
   private final long delayBeforeReportingStatusInSeconds;
+  private final int batchSize;
+  private final int deliveryThreads;
   private final DefaultNotificationManager manager;
   private final NotificationDispatcher[] dispatchers;
   private final DatabaseSessionFactory databaseSessionFactory;
 
   private ScheduledExecutorService executorService;
-  private boolean stopping = false;
+  private final Map<NotificationChannel, ExecutorService> deliveryExecutors = Maps.newHashMap();
+  private final AtomicLong deliveryCount = new AtomicLong();
+  private final AtomicLong deliveryTimeInNanos = new AtomicLong();
+  private volatile boolean stopping = false;
 
   /**
    * Constructor for {@link NotificationService}
@@ -85,6 +122,8 @@ public class NotificationService implements ServerComponent {
     this.databaseSessionFactory = databaseSessionFactory;
     delayInSeconds = settings.getLong(PROPERTY_DELAY);
     delayBeforeReportingStatusInSeconds = settings.getLong(PROPERTY_DELAY_BEFORE_REPORTING_STATUS);
+    batchSize = Math.max(1, settings.getInt(PROPERTY_BATCH_SIZE));
+    deliveryThreads = Math.max(1, settings.getInt(PROPERTY_DELIVERY_THREADS));
     this.manager = manager;
     this.dispatchers = dispatchers;
   }
@@ -111,7 +150,7 @@ public class NotificationService implements ServerComponent {
         }
       }
     }, 0, delayInSeconds, TimeUnit.SECONDS);
-    LOG.info("Notification service started (delay {} sec.)", delayInSeconds);
+    LOG.info("Notification service started (delay {} sec., batch size {}, {} delivery thread(s) per channel)", new Object[] {delayInSeconds, batchSize, deliveryThreads});
   }
 
   public void stop() {
@@ -122,6 +161,13 @@ public class NotificationService implements ServerComponent {
     } catch (InterruptedException e) {
       LOG.error("Error during stop of notification service", e);
     }
+    synchronized (deliveryExecutors) {
+      for (ExecutorService deliveryExecutor : deliveryExecutors.values()) {
+        // pending deliveries are still executed
+        deliveryExecutor.shutdown();
+      }
+      deliveryExecutors.clear();
+    }
     LOG.info("Notification service stopped");
   }
 
@@ -131,22 +177,33 @@ public class NotificationService implements ServerComponent {
     long start = now();
     long lastLog = start;
     long notifSentCount = 0;
+    deliveryCount.set(0L);
+    deliveryTimeInNanos.set(0L);
 
-    Notification notifToSend = manager.getFromQueue();
-    while (notifToSend != null) {
-      deliver(notifToSend);
-      notifSentCount++;
-      if (stopping) {
+    List<Notification> notifsToSend = manager.getFromQueue(batchSize);
+    while (!notifsToSend.isEmpty()) {
+      // The whole batch is delivered even when stopping, then removed from queue. Notifications are not lost
+      // if the server is killed during delivery, but they can be delivered twice.
+      List<Future<?>> deliveries = Lists.newArrayList();
+      for (Notification notifToSend : notifsToSend) {
+        deliver(notifToSend, deliveries);
+        notifSentCount++;
+        long now = now();
+        if (now - lastLog > delayBeforeReportingStatusInSeconds * 1000) {
+          long remainingNotifCount = manager.count();
+          lastLog = now;
+          long spentTimeInMinutes = (now - start) / (60 * 1000);
+          log(notifSentCount, remainingNotifCount, spentTimeInMinutes);
+        }
+      }
+      if (!awaitDeliveries(deliveries)) {
         break;
       }
-      long now = now();
-      if (now - lastLog > delayBeforeReportingStatusInSeconds * 1000) {
-        long remainingNotifCount = manager.count();
-        lastLog = now;
-        long spentTimeInMinutes = (now - start) / (60 * 1000);
-        log(notifSentCount, remainingNotifCount, spentTimeInMinutes);
+      manager.removeFromQueue(notifsToSend);
+      if (stopping) {
+        break;
       }
-      notifToSend = manager.getFromQueue();
+      notifsToSend = manager.getFromQueue(batchSize);
     }
 
     TIME_PROFILER.stop();
@@ -154,7 +211,10 @@ public class NotificationService implements ServerComponent {
 
   @VisibleForTesting
   void log(long notifSentCount, long remainingNotifCount, long spentTimeInMinutes) {
-    LOG.info("{} notifications sent during the past {} minutes and {} still waiting to be sent", new Object[] {notifSentCount, spentTimeInMinutes, remainingNotifCount});
+    long deliveries = deliveryCount.get();
+    long averageDeliveryTimeInMillis = deliveries == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(deliveryTimeInNanos.get() / deliveries);
+    LOG.info("{} notifications sent during the past {} minutes and {} still waiting to be sent ({} notifications/min, average delivery time {} ms)",
+      new Object[] {notifSentCount, spentTimeInMinutes, remainingNotifCount, notifSentCount / Math.max(1L, spentTimeInMinutes), averageDeliveryTimeInMillis});
   }
 
   @VisibleForTesting
@@ -162,7 +222,7 @@ public class NotificationService implements ServerComponent {
     return System.currentTimeMillis();
   }
 
-  private void deliver(Notification notification) {
+  private void deliver(Notification notification, List<Future<?>> deliveries) {
     LOG.debug("Delivering notification " + notification);
     final SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
     for (NotificationDispatcher dispatcher : dispatchers) {
@@ -184,25 +244,71 @@ public class NotificationService implements ServerComponent {
         LOG.warn("Unable to dispatch notification " + notification + " using " + dispatcher, e);
       }
     }
-    dispatch(notification, recipients);
+    dispatch(notification, recipients, deliveries);
   }
 
-  private void dispatch(Notification notification, SetMultimap<String, NotificationChannel> recipients) {
+  private void dispatch(final Notification notification, SetMultimap<String, NotificationChannel> recipients, List<Future<?>> deliveries) {
     for (Map.Entry<String, Collection<NotificationChannel>> entry : recipients.asMap().entrySet()) {
-      String username = entry.getKey();
+      final String username = entry.getKey();
       Collection<NotificationChannel> userChannels = entry.getValue();
       LOG.debug("For user {} via {}", username, userChannels);
-      for (NotificationChannel channel : userChannels) {
-        try {
-          channel.deliver(notification, username);
-        } catch (Exception e) {
-          // catch all exceptions in order to deliver via other channels
-          LOG.warn("Unable to deliver notification " + notification + " for user " + username + " via " + channel, e);
+      for (final NotificationChannel channel : userChannels) {
+        if (deliveryThreads == 1) {
+          deliver(channel, notification, username);
+        } else {
+          deliveries.add(deliveryExecutor(channel).submit(new Runnable() {
+            public void run() {
+              deliver(channel, notification, username);
+            }
+          }));
         }
       }
     }
   }
 
+  private void deliver(NotificationChannel channel, Notification notification, String username) {
+    long start = System.nanoTime();
+    try {
+      channel.deliver(notification, username);
+    } catch (Exception e) {
+      // catch all exceptions in order to deliver via other channels
+      LOG.warn("Unable to deliver notification " + notification + " for user " + username + " via " + channel, e);
+    } finally {
+      deliveryTimeInNanos.addAndGet(System.nanoTime() - start);
+      deliveryCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * Each channel gets its own pool, so that a slow channel (for example a SMTP server) does not delay the other ones.
+   * The queue of the pool is bounded: when it's full, or when the pool is shut down, the processing thread delivers by itself.
+   */
+  private ExecutorService deliveryExecutor(NotificationChannel channel) {
+    synchronized (deliveryExecutors) {
+      ExecutorService deliveryExecutor = deliveryExecutors.get(channel);
+      if (deliveryExecutor == null) {
+        deliveryExecutor = new ThreadPoolExecutor(deliveryThreads, deliveryThreads, 0L, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<Runnable>(batchSize), RUN_IN_CALLER);
+        deliveryExecutors.put(channel, deliveryExecutor);
+      }
+      return deliveryExecutor;
+    }
+  }
+
+  private boolean awaitDeliveries(List<Future<?>> deliveries) {
+    for (Future<?> delivery : deliveries) {
+      try {
+        delivery.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      } catch (ExecutionException e) {
+        LOG.warn("Unable to deliver notification", e.getCause());
+      }
+    }
+    return true;
+  }
+
   @VisibleForTesting
   protected List<NotificationDispatcher> getDispatchers() {
     return Arrays.asList(dispatchers);
@@ -19,17 +19,22 @@
  */
 package org.sonar.server.plugins;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.server.platform.DefaultServerFileSystem;
+import org.sonar.server.platform.Platform;
 import org.sonar.server.startup.GenerateBootstrapIndex;
 
+import javax.annotation.CheckForNull;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -44,6 +49,8 @@ public class BatchResourcesServlet extends HttpServlet {
   private static final Logger LOG = LoggerFactory.getLogger(BatchResourcesServlet.class);
   private static final long serialVersionUID = -2100128371794649028L;
 
+  private transient IndexedHashes libHashes;
+
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
     String filename = filename(request);
@@ -63,13 +70,23 @@ public class BatchResourcesServlet extends HttpServlet {
       InputStream in = null;
       OutputStream out = null;
       try {
-        in = getServletContext().getResourceAsStream("/WEB-INF/lib/" + filename);
-        if (in == null) {
-          // TODO
-        } else {
+        String hash = libHashes().get(filename);
+        if (hash != null && HttpCaching.sendNotModified(request, response, HttpCaching.etag(hash))) {
+          return;
+        }
+        File file = libFile(filename);
+        if (file != null) {
           response.setContentType("application/java-archive");
-          out = response.getOutputStream();
-          IOUtils.copy(in, out);
+          HttpCaching.sendFile(file, response);
+        } else {
+          in = getServletContext().getResourceAsStream("/WEB-INF/lib/" + filename);
+          if (in == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+          } else {
+            response.setContentType("application/java-archive");
+            out = response.getOutputStream();
+            IOUtils.copy(in, out);
+          }
         }
       } catch (Exception e) {
         LOG.error("Unable to load batch resource '" + filename + "'", e);
@@ -81,6 +98,33 @@ public class BatchResourcesServlet extends HttpServlet {
     }
   }
 
+  /**
+   * @return null if the webapp is not exploded, for example when it's deployed as a war
+   */
+  @CheckForNull
+  private File libFile(String filename) {
+    String path = getServletContext().getRealPath("/WEB-INF/lib/" + filename);
+    if (path != null) {
+      File file = new File(path);
+      if (file.isFile()) {
+        return file;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Hashes are computed at startup by {@link GenerateBootstrapIndex}
+   */
+  @VisibleForTesting
+  synchronized IndexedHashes libHashes() {
+    if (libHashes == null) {
+      DefaultServerFileSystem fileSystem = Platform.getInstance().getContainer().getComponentByType(DefaultServerFileSystem.class);
+      libHashes = new IndexedHashes(fileSystem.getBootstrapIndex());
+    }
+    return libHashes;
+  }
+
   /**
    * @return part of request URL after servlet path
    */
@@ -0,0 +1,154 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.plugins;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Helpers to serve the static files that are downloaded by every batch, with strong ETags
+ * and conditional GET.
+ *
+ * @since 4.2
+ */
+final class HttpCaching {
+
+  static final String ETAG = "ETag";
+  static final String IF_NONE_MATCH = "If-None-Match";
+  static final String ACCEPT_ENCODING = "Accept-Encoding";
+  static final String CONTENT_ENCODING = "Content-Encoding";
+  static final String VARY = "Vary";
+  static final String GZIP = "gzip";
+
+  private HttpCaching() {
+    // only static methods
+  }
+
+  static String etag(String value) {
+    return "\"" + StringUtils.replace(value, "\"", "%22") + "\"";
+  }
+
+  /**
+   * Sets the header ETag and sends the status 304 if the client already has this version of the resource.
+   *
+   * @return true if the status 304 has been sent, in this case the response must not have a body
+   */
+  static boolean sendNotModified(HttpServletRequest request, HttpServletResponse response, String etag) {
+    response.setHeader(ETAG, etag);
+    String ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+      for (String candidate : StringUtils.split(ifNoneMatch, ',')) {
+        // weak comparison, as required for If-None-Match
+        String tag = StringUtils.removeStart(candidate.trim(), "W/");
+        if ("*".equals(tag) || etag.equals(tag)) {
+          response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Copies the file to the response with {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which
+   * avoids to copy the content into the heap.
+   */
+  static void sendFile(File file, HttpServletResponse response) throws IOException {
+    FileInputStream input = new FileInputStream(file);
+    try {
+      FileChannel channel = input.getChannel();
+      long size = channel.size();
+      response.setContentLength((int) size);
+      WritableByteChannel output = Channels.newChannel(response.getOutputStream());
+      long position = 0L;
+      while (position < size) {
+        position += channel.transferTo(position, size - position, output);
+      }
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  /**
+   * Codings with a q-value of 0, for example "gzip;q=0", are not acceptable.
+   */
+  static boolean acceptsGzip(HttpServletRequest request) {
+    String header = request.getHeader(ACCEPT_ENCODING);
+    if (header == null) {
+      return false;
+    }
+    boolean acceptsAny = false;
+    for (String coding : StringUtils.split(header, ',')) {
+      String name = StringUtils.substringBefore(coding, ";").trim();
+      boolean accepted = qValue(coding) > 0f;
+      if (GZIP.equalsIgnoreCase(name)) {
+        return accepted;
+      }
+      if ("*".equals(name)) {
+        acceptsAny = accepted;
+      }
+    }
+    return acceptsAny;
+  }
+
+  private static float qValue(String coding) {
+    for (String parameter : StringUtils.split(StringUtils.substringAfter(coding, ";"), ';')) {
+      if ("q".equalsIgnoreCase(StringUtils.substringBefore(parameter, "=").trim())) {
+        try {
+          return Float.parseFloat(StringUtils.substringAfter(parameter, "=").trim());
+        } catch (NumberFormatException e) {
+          return 0f;
+        }
+      }
+    }
+    return 1f;
+  }
+
+  /**
+   * Binary formats like images or archives are already compressed.
+   */
+  static boolean isCompressible(String contentType) {
+    return contentType.startsWith("text/") || contentType.equals("application/json") || contentType.equals("application/xml")
+      || contentType.equals("image/svg+xml");
+  }
+
+  static byte[] gzip(byte[] content) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 2);
+    GZIPOutputStream output = new GZIPOutputStream(bytes);
+    try {
+      output.write(content);
+    } finally {
+      output.close();
+    }
+    return bytes.toByteArray();
+  }
+}
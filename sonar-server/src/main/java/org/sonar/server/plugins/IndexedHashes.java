@@ -0,0 +1,78 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.plugins;
+
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+
+import javax.annotation.CheckForNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Hashes of the files listed in an index generated at server startup, see
+ * {@link org.sonar.server.startup.GeneratePluginIndex} and {@link org.sonar.server.startup.GenerateBootstrapIndex}.
+ * Each line ends with "|&lt;hash&gt;" and starts with the key of the file, which is ended by "," or "|".
+ * The index is reloaded when it is regenerated.
+ *
+ * @since 4.2
+ */
+class IndexedHashes {
+
+  private final File index;
+  private long lastModified = -1L;
+  private Map<String, String> hashesByKey = Collections.emptyMap();
+
+  IndexedHashes(File index) {
+    this.index = index;
+  }
+
+  @CheckForNull
+  synchronized String get(String key) {
+    long modified = index.lastModified();
+    if (modified != lastModified) {
+      hashesByKey = load();
+      lastModified = modified;
+    }
+    return hashesByKey.get(key);
+  }
+
+  private Map<String, String> load() {
+    Map<String, String> result = Maps.newHashMap();
+    if (index.exists()) {
+      try {
+        for (String line : FileUtils.readLines(index)) {
+          String key = StringUtils.substring(line, 0, StringUtils.indexOfAny(line, ",|"));
+          String hash = StringUtils.substringAfterLast(line, "|");
+          if (StringUtils.isNotBlank(key) && StringUtils.isNotBlank(hash)) {
+            result.put(key, hash);
+          }
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read index: " + index, e);
+      }
+    }
+    return result;
+  }
+}
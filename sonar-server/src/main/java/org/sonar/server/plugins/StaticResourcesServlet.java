@@ -24,8 +24,10 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.server.platform.DefaultServerFileSystem;
 import org.sonar.server.platform.Platform;
 
+import javax.annotation.CheckForNull;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -33,19 +35,24 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class StaticResourcesServlet extends HttpServlet {
 
   private static final Logger LOG = LoggerFactory.getLogger(StaticResourcesServlet.class);
   private static final long serialVersionUID = -2577454614650178426L;
 
+  private transient IndexedHashes pluginHashes;
+  // keyed by ETag
+  private final ConcurrentMap<String, byte[]> gzippedResources = new ConcurrentHashMap<String, byte[]>();
+
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
     String pluginKey = getPluginKey(request);
     String resource = getResourcePath(request);
 
-    DefaultServerPluginRepository pluginRepository = Platform.getInstance().getContainer().getComponentByType(DefaultServerPluginRepository.class);
-    ClassLoader classLoader = pluginRepository.getClassLoader(pluginKey);
+    ClassLoader classLoader = pluginClassLoader(pluginKey);
     if (classLoader == null) {
       LOG.error("Plugin not found: " + pluginKey);
       response.sendError(HttpServletResponse.SC_NOT_FOUND);
@@ -54,12 +61,21 @@ public class StaticResourcesServlet extends HttpServlet {
     InputStream in = null;
     OutputStream out = null;
     try {
+      String hash = pluginHashes().get(pluginKey);
+      // the resource is not opened if the client already has it
+      if (hash != null && sendNotModified(request, response, resource, hash)) {
+        return;
+      }
       in = classLoader.getResourceAsStream(resource);
       if (in != null) {
-        // mime type must be set before writing response body
-        completeContentType(response, resource);
-        out = response.getOutputStream();
-        IOUtils.copy(in, out);
+        if (hash == null) {
+          // mime type must be set before writing response body
+          completeContentType(response, resource);
+          out = response.getOutputStream();
+          IOUtils.copy(in, out);
+        } else {
+          out = sendCachedResource(request, response, resource, hash, in);
+        }
 
       } else {
         LOG.error("Unable to find resource '" + resource + "' in plugin '" + pluginKey + "'");
@@ -74,6 +90,76 @@ public class StaticResourcesServlet extends HttpServlet {
     }
   }
 
+  /**
+   * The content of a resource can change only if the plugin is upgraded, so the ETag is built from the hash of the plugin.
+   *
+   * @return true if the status 304 has been sent
+   */
+  private boolean sendNotModified(HttpServletRequest request, HttpServletResponse response, String resource, String pluginHash) {
+    String contentType = MimeTypes.getByFilename(resource);
+    if (HttpCaching.isCompressible(contentType)) {
+      response.setHeader(HttpCaching.VARY, HttpCaching.ACCEPT_ENCODING);
+    }
+    return HttpCaching.sendNotModified(request, response, etag(resource, pluginHash, gzip(request, contentType)));
+  }
+
+  /**
+   * Compressible resources are gzipped only once.
+   *
+   * @return the output stream of the response
+   */
+  private OutputStream sendCachedResource(HttpServletRequest request, HttpServletResponse response, String resource, String pluginHash,
+    InputStream in) throws IOException {
+    String contentType = MimeTypes.getByFilename(resource);
+    boolean gzip = gzip(request, contentType);
+    // mime type must be set before writing response body
+    response.setContentType(contentType);
+    OutputStream out;
+    if (gzip) {
+      String etag = etag(resource, pluginHash, gzip);
+      byte[] gzipped = gzippedResources.get(etag);
+      if (gzipped == null) {
+        gzipped = HttpCaching.gzip(IOUtils.toByteArray(in));
+        gzippedResources.put(etag, gzipped);
+      }
+      response.setHeader(HttpCaching.CONTENT_ENCODING, HttpCaching.GZIP);
+      response.setContentLength(gzipped.length);
+      out = response.getOutputStream();
+      out.write(gzipped);
+    } else {
+      out = response.getOutputStream();
+      IOUtils.copy(in, out);
+    }
+    return out;
+  }
+
+  private static boolean gzip(HttpServletRequest request, String contentType) {
+    return HttpCaching.isCompressible(contentType) && HttpCaching.acceptsGzip(request);
+  }
+
+  private static String etag(String resource, String pluginHash, boolean gzip) {
+    return HttpCaching.etag(pluginHash + "/" + resource + (gzip ? "-" + HttpCaching.GZIP : ""));
+  }
+
+  @VisibleForTesting
+  @CheckForNull
+  ClassLoader pluginClassLoader(String pluginKey) {
+    DefaultServerPluginRepository pluginRepository = Platform.getInstance().getContainer().getComponentByType(DefaultServerPluginRepository.class);
+    return pluginRepository.getClassLoader(pluginKey);
+  }
+
+  /**
+   * Hashes are computed at startup by {@link org.sonar.server.startup.GeneratePluginIndex}
+   */
+  @VisibleForTesting
+  synchronized IndexedHashes pluginHashes() {
+    if (pluginHashes == null) {
+      DefaultServerFileSystem fileSystem = Platform.getInstance().getContainer().getComponentByType(DefaultServerFileSystem.class);
+      pluginHashes = new IndexedHashes(fileSystem.getPluginIndex());
+    }
+    return pluginHashes;
+  }
+
   /**
    * @return part of request URL after servlet path
    */
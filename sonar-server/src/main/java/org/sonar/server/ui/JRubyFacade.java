@@ -61,18 +61,22 @@ import org.sonar.updatecenter.common.Version;
 
 import javax.annotation.Nullable;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetAddress;
 import java.sql.Connection;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 import static com.google.common.collect.Lists.newArrayList;
 
 public final class JRubyFacade {
 
   private static final JRubyFacade SINGLETON = new JRubyFacade();
+  private static final int PREVIEW_GZIP_BUFFER_SIZE = 64 * 1024;
   private JRubyI18n i18n;
 
   public static JRubyFacade getInstance() {
@@ -421,10 +425,29 @@ public final class JRubyFacade {
     }
   }
 
+  /**
+   * @deprecated since 4.2 the whole database is loaded in memory. Use {@link #writeDatabaseForPreview(Long, OutputStream, boolean)}.
+   */
+  @Deprecated
   public byte[] createDatabaseForPreview(@Nullable Long projectId) {
     return get(PreviewCache.class).getDatabaseForPreview(projectId);
   }
 
+  /**
+   * Stream the preview database to the HTTP response, optionally compressed with gzip.
+   * @since 4.2
+   */
+  public void writeDatabaseForPreview(@Nullable Long projectId, OutputStream output, boolean gzip) throws IOException {
+    if (gzip) {
+      GZIPOutputStream gzipOutput = new GZIPOutputStream(output, PREVIEW_GZIP_BUFFER_SIZE);
+      get(PreviewCache.class).writeDatabaseForPreview(projectId, gzipOutput);
+      gzipOutput.finish();
+      output.flush();
+    } else {
+      get(PreviewCache.class).writeDatabaseForPreview(projectId, output);
+    }
+  }
+
   public String getPeriodLabel(int periodIndex) {
     return get(Periods.class).label(periodIndex);
   }
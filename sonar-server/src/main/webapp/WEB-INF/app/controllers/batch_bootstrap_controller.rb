@@ -30,9 +30,20 @@ class BatchBootstrapController < Api::ApiController
     return render_unauthorized("You're not authorized to execute a dry run analysis. Please contact your SonarQube administrator.") if !has_dryrun_role
     project = load_project()
     return render_unauthorized("You're not authorized to access to project '" + project.name + "', please contact your SonarQube administrator") if project && !has_role?(:user, project)
-    db_content = java_facade.createDatabaseForPreview(project && project.id)
 
-    send_data String.from_java_bytes(db_content)
+    # The database is streamed directly to the servlet response, so it's never loaded in memory.
+    # servlet_response is not declared in jruby-rack, request.env must be used.
+    servlet_response = request.env['java.servlet_response']
+    gzip = request.env['HTTP_ACCEPT_ENCODING'].to_s.include?('gzip')
+    servlet_response.setContentType('application/octet-stream')
+    servlet_response.setHeader('Content-Disposition', 'attachment')
+    servlet_response.setHeader('Content-Encoding', 'gzip') if gzip
+    java_facade.writeDatabaseForPreview(project && project.id, servlet_response.getOutputStream(), gzip)
+    # commit the response, so that the headers set by Rails are ignored
+    servlet_response.flushBuffer()
+
+    # response is already written to HttpServletResponse. The body must be empty : render :nothing would append a space.
+    render :text => ''
   end
 
   # PUT /batch_bootstrap/evict?project=<key or id>
@@ -19,7 +19,9 @@
  */
 package org.sonar.server.notifications;
 
+import com.google.common.collect.Lists;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.sonar.api.config.Settings;
@@ -29,15 +31,22 @@ import org.sonar.api.notifications.NotificationDispatcher;
 import org.sonar.core.notification.DefaultNotificationManager;
 import org.sonar.jpa.session.DatabaseSessionFactory;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -60,7 +69,7 @@ public class NotificationServiceTest {
     when(gtalkChannel.getKey()).thenReturn("gtalk");
     when(commentOnReviewAssignedToMe.getKey()).thenReturn("comment on review assigned to me");
     when(commentOnReviewCreatedByMe.getKey()).thenReturn("comment on review created by me");
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(Arrays.asList(notification)).thenReturn(Collections.<Notification>emptyList());
 
     Settings settings = new Settings().setProperty("sonar.notifications.delay", 1L);
 
@@ -167,7 +176,8 @@ public class NotificationServiceTest {
   @Test
   public void shouldNotStopWhenException() {
     setUpMocks(CREATOR_SIMON, ASSIGNEE_SIMON);
-    when(manager.getFromQueue()).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(Arrays.asList(notification))
+      .thenReturn(Collections.<Notification>emptyList());
     doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnReviewAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
     doAnswer(addUser(CREATOR_SIMON, emailChannel)).when(commentOnReviewCreatedByMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
 
@@ -209,7 +219,7 @@ public class NotificationServiceTest {
   public void shouldLogEvery10Minutes() throws InterruptedException {
     setUpMocks(CREATOR_EVGENY, ASSIGNEE_SIMON);
     // Emulate 2 notifications in DB
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(Arrays.asList(notification, notification)).thenReturn(Collections.<Notification>emptyList());
     when(manager.count()).thenReturn(1L).thenReturn(0L);
     service = spy(service);
     // Emulate processing of each notification take 10 min to have a log each time
@@ -220,6 +230,49 @@ public class NotificationServiceTest {
     service.stop();
   }
 
+  @Test
+  public void shouldDequeueByBatches() {
+    setUpMocks(CREATOR_SIMON, ASSIGNEE_SIMON);
+    Notification other = mock(Notification.class);
+    when(manager.getFromQueue(anyInt())).thenReturn(Arrays.asList(notification)).thenReturn(Arrays.asList(other))
+      .thenReturn(Collections.<Notification>emptyList());
+    doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnReviewAssignedToMe).dispatch(any(Notification.class), any(NotificationDispatcher.Context.class));
+
+    Settings settings = new Settings().setProperty("sonar.notifications.delay", 1L).setProperty("sonar.notifications.batchSize", 10);
+    service = new NotificationService(settings, manager, mock(DatabaseSessionFactory.class),
+      new NotificationDispatcher[] {commentOnReviewAssignedToMe, commentOnReviewCreatedByMe});
+    service.processQueue();
+
+    verify(manager, times(3)).getFromQueue(10);
+    InOrder inOrder = inOrder(emailChannel, manager);
+    inOrder.verify(emailChannel).deliver(notification, ASSIGNEE_SIMON);
+    inOrder.verify(manager).removeFromQueue(Arrays.asList(notification));
+    inOrder.verify(emailChannel).deliver(other, ASSIGNEE_SIMON);
+    inOrder.verify(manager).removeFromQueue(Arrays.asList(other));
+  }
+
+  @Test
+  public void shouldDeliverConcurrently() {
+    setUpMocks(CREATOR_SIMON, ASSIGNEE_SIMON);
+    List<Notification> notifications = Lists.newArrayList();
+    for (int i = 0; i < 20; i++) {
+      notifications.add(mock(Notification.class));
+    }
+    when(manager.getFromQueue(anyInt())).thenReturn(notifications).thenReturn(Collections.<Notification>emptyList());
+    doAnswer(addUser(ASSIGNEE_SIMON, new NotificationChannel[] {emailChannel, gtalkChannel}))
+      .when(commentOnReviewAssignedToMe).dispatch(any(Notification.class), any(NotificationDispatcher.Context.class));
+
+    Settings settings = new Settings().setProperty("sonar.notifications.delay", 1L).setProperty("sonar.notifications.deliveryThreads", 4);
+    service = new NotificationService(settings, manager, mock(DatabaseSessionFactory.class),
+      new NotificationDispatcher[] {commentOnReviewAssignedToMe, commentOnReviewCreatedByMe});
+    service.start();
+    for (Notification notification : notifications) {
+      verify(emailChannel, timeout(2000)).deliver(notification, ASSIGNEE_SIMON);
+      verify(gtalkChannel, timeout(2000)).deliver(notification, ASSIGNEE_SIMON);
+    }
+    service.stop();
+  }
+
   private static Answer<Object> addUser(final String user, final NotificationChannel channel) {
     return addUser(user, new NotificationChannel[] {channel});
   }
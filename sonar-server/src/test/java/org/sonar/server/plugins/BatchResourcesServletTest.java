@@ -19,23 +19,54 @@
  */
 package org.sonar.server.plugins;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class BatchResourcesServletTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private BatchResourcesServlet servlet;
   private HttpServletRequest request;
+  private HttpServletResponse response;
+  private ServletContext context;
+  private ByteArrayOutputStream body;
 
   @Before
   public void setUp() throws Exception {
     servlet = new BatchResourcesServlet();
     request = mock(HttpServletRequest.class);
+    response = mock(HttpServletResponse.class);
+    context = mock(ServletContext.class);
+    body = new ByteArrayOutputStream();
+    when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+      @Override
+      public void write(int b) {
+        body.write(b);
+      }
+    });
   }
 
   @Test
@@ -59,4 +90,56 @@ public class BatchResourcesServletTest {
     assertThat(servlet.filename(request)).isNull();
   }
 
+  @Test
+  public void should_send_not_modified_if_etag_matches() throws Exception {
+    initServlet("sonar-core-4.2.jar|abc\n");
+    when(request.getRequestURI()).thenReturn("/sonar/batch/sonar-core-4.2.jar");
+    when(request.getHeader("If-None-Match")).thenReturn("\"abc\"");
+
+    servlet.doGet(request, response);
+
+    verify(response).setHeader("ETag", "\"abc\"");
+    verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    verify(context, never()).getRealPath(anyString());
+    verify(context, never()).getResourceAsStream(anyString());
+    assertThat(body.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void should_send_library_file() throws Exception {
+    initServlet("sonar-core-4.2.jar|abc\n");
+    File jar = temp.newFile("sonar-core-4.2.jar");
+    FileUtils.write(jar, "content of jar");
+    when(context.getRealPath("/WEB-INF/lib/sonar-core-4.2.jar")).thenReturn(jar.getAbsolutePath());
+    when(request.getRequestURI()).thenReturn("/sonar/batch/sonar-core-4.2.jar");
+    when(request.getHeader("If-None-Match")).thenReturn("\"other\"");
+
+    servlet.doGet(request, response);
+
+    verify(response).setHeader("ETag", "\"abc\"");
+    verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    verify(response).setContentType("application/java-archive");
+    verify(response).setContentLength(14);
+    assertThat(body.toString()).isEqualTo("content of jar");
+  }
+
+  @Test
+  public void should_send_not_found_if_missing_library() throws Exception {
+    initServlet("");
+    when(request.getRequestURI()).thenReturn("/sonar/batch/unknown.jar");
+
+    servlet.doGet(request, response);
+
+    verify(response).sendError(HttpServletResponse.SC_NOT_FOUND);
+  }
+
+  private void initServlet(String index) throws Exception {
+    File indexFile = temp.newFile();
+    FileUtils.write(indexFile, index);
+    servlet = spy(new BatchResourcesServlet());
+    doReturn(new IndexedHashes(indexFile)).when(servlet).libHashes();
+    ServletConfig config = mock(ServletConfig.class);
+    when(config.getServletContext()).thenReturn(context);
+    servlet.init(config);
+  }
 }
@@ -0,0 +1,137 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.plugins;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HttpCachingTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  HttpServletRequest request = mock(HttpServletRequest.class);
+  HttpServletResponse response = mock(HttpServletResponse.class);
+
+  @Test
+  public void should_quote_etag() {
+    assertThat(HttpCaching.etag("abc")).isEqualTo("\"abc\"");
+    assertThat(HttpCaching.etag("a\"bc")).isEqualTo("\"a%22bc\"");
+  }
+
+  @Test
+  public void should_send_not_modified_if_etag_matches() {
+    when(request.getHeader("If-None-Match")).thenReturn("\"other\", W/\"abc\"");
+
+    assertThat(HttpCaching.sendNotModified(request, response, "\"abc\"")).isTrue();
+    verify(response).setHeader("ETag", "\"abc\"");
+    verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+  }
+
+  @Test
+  public void should_not_send_not_modified_if_etag_does_not_match() {
+    when(request.getHeader("If-None-Match")).thenReturn("\"other\"");
+    assertThat(HttpCaching.sendNotModified(request, response, "\"abc\"")).isFalse();
+
+    when(request.getHeader("If-None-Match")).thenReturn(null);
+    assertThat(HttpCaching.sendNotModified(request, response, "\"abc\"")).isFalse();
+
+    verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+  }
+
+  @Test
+  public void should_send_file() throws IOException {
+    File file = temp.newFile();
+    FileUtils.write(file, "content of jar");
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+      @Override
+      public void write(int b) {
+        bytes.write(b);
+      }
+    });
+
+    HttpCaching.sendFile(file, response);
+
+    verify(response).setContentLength(14);
+    assertThat(bytes.toString()).isEqualTo("content of jar");
+  }
+
+  @Test
+  public void should_gzip() throws IOException {
+    byte[] gzipped = HttpCaching.gzip("body { color: red; }".getBytes());
+
+    assertThat(IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(gzipped)))).isEqualTo("body { color: red; }");
+  }
+
+  @Test
+  public void should_accept_gzip() {
+    when(request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+    assertThat(HttpCaching.acceptsGzip(request)).isTrue();
+
+    when(request.getHeader("Accept-Encoding")).thenReturn("deflate, GZIP;q=0.5");
+    assertThat(HttpCaching.acceptsGzip(request)).isTrue();
+
+    when(request.getHeader("Accept-Encoding")).thenReturn("*");
+    assertThat(HttpCaching.acceptsGzip(request)).isTrue();
+  }
+
+  @Test
+  public void should_not_accept_gzip() {
+    when(request.getHeader("Accept-Encoding")).thenReturn(null);
+    assertThat(HttpCaching.acceptsGzip(request)).isFalse();
+
+    when(request.getHeader("Accept-Encoding")).thenReturn("deflate");
+    assertThat(HttpCaching.acceptsGzip(request)).isFalse();
+
+    when(request.getHeader("Accept-Encoding")).thenReturn("gzip;q=0, deflate");
+    assertThat(HttpCaching.acceptsGzip(request)).isFalse();
+
+    when(request.getHeader("Accept-Encoding")).thenReturn("*, gzip; q=0.0");
+    assertThat(HttpCaching.acceptsGzip(request)).isFalse();
+  }
+
+  @Test
+  public void should_compress_only_text() {
+    assertThat(HttpCaching.isCompressible("text/css")).isTrue();
+    assertThat(HttpCaching.isCompressible("application/json")).isTrue();
+    assertThat(HttpCaching.isCompressible("image/png")).isFalse();
+    assertThat(HttpCaching.isCompressible("application/java-archive")).isFalse();
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.plugins;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class IndexedHashesTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_load_hashes_of_plugin_index() throws IOException {
+    File index = temp.newFile();
+    FileUtils.write(index, "checkstyle,true,sonar-checkstyle-plugin-2.8.jar|fakemd5_1\nsqale,false,sonar-sqale-plugin.jar|fakemd5_2\n");
+
+    IndexedHashes hashes = new IndexedHashes(index);
+    assertThat(hashes.get("checkstyle")).isEqualTo("fakemd5_1");
+    assertThat(hashes.get("sqale")).isEqualTo("fakemd5_2");
+    assertThat(hashes.get("other")).isNull();
+  }
+
+  @Test
+  public void should_load_hashes_of_bootstrap_index() throws IOException {
+    File index = temp.newFile();
+    FileUtils.write(index, "sonar-core-4.2.jar|fakemd5_1\n");
+
+    assertThat(new IndexedHashes(index).get("sonar-core-4.2.jar")).isEqualTo("fakemd5_1");
+  }
+
+  @Test
+  public void should_reload_index_when_regenerated() throws IOException {
+    File index = temp.newFile();
+    FileUtils.write(index, "sonar-core-4.2.jar|fakemd5_1\n");
+    IndexedHashes hashes = new IndexedHashes(index);
+    assertThat(hashes.get("sonar-core-4.2.jar")).isEqualTo("fakemd5_1");
+
+    FileUtils.write(index, "sonar-core-4.2.jar|fakemd5_2\n");
+    index.setLastModified(index.lastModified() + 2000L);
+    assertThat(hashes.get("sonar-core-4.2.jar")).isEqualTo("fakemd5_2");
+  }
+
+  @Test
+  public void should_support_missing_index() {
+    assertThat(new IndexedHashes(new File(temp.getRoot(), "unknown.txt")).get("checkstyle")).isNull();
+  }
+}
@@ -19,26 +19,57 @@
  */
 package org.sonar.server.plugins;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.zip.GZIPInputStream;
+
 import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class StaticResourcesServletTest {
 
+  private static final String CSS = "body { color: red; }";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private StaticResourcesServlet servlet;
   private HttpServletRequest request;
+  private HttpServletResponse response;
+  private ClassLoader classLoader;
+  private ByteArrayOutputStream body;
 
   @Before
   public void setUp() throws Exception {
     servlet = new StaticResourcesServlet();
     request = mock(HttpServletRequest.class);
+    response = mock(HttpServletResponse.class);
+    classLoader = mock(ClassLoader.class);
+    body = new ByteArrayOutputStream();
+    when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+      @Override
+      public void write(int b) {
+        body.write(b);
+      }
+    });
   }
 
   @Test
@@ -75,4 +106,73 @@ public class StaticResourcesServletTest {
     servlet.completeContentType(response, "static/sqale/sqale.css");
     verify(response).setContentType("text/css");
   }
+
+  @Test
+  public void should_send_not_modified_without_opening_resource() throws Exception {
+    initServlet("myplugin,true,myplugin.jar|abc\n");
+    requestResource("/static/myplugin/style.css");
+    when(request.getHeader("If-None-Match")).thenReturn("\"abc/static/style.css\"");
+
+    servlet.doGet(request, response);
+
+    verify(response).setHeader("ETag", "\"abc/static/style.css\"");
+    verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    verify(classLoader, never()).getResourceAsStream(anyString());
+    assertThat(body.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void should_gzip_compressible_resource() throws Exception {
+    initServlet("myplugin,true,myplugin.jar|abc\n");
+    requestResource("/static/myplugin/style.css");
+    when(request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+    when(classLoader.getResourceAsStream("static/style.css")).thenReturn(new ByteArrayInputStream(CSS.getBytes()));
+
+    servlet.doGet(request, response);
+
+    verify(response).setHeader("Vary", "Accept-Encoding");
+    verify(response).setHeader("ETag", "\"abc/static/style.css-gzip\"");
+    verify(response).setHeader("Content-Encoding", "gzip");
+    verify(response).setContentType("text/css");
+    assertThat(IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray())))).isEqualTo(CSS);
+  }
+
+  @Test
+  public void should_not_gzip_if_not_acceptable() throws Exception {
+    initServlet("myplugin,true,myplugin.jar|abc\n");
+    requestResource("/static/myplugin/style.css");
+    when(request.getHeader("Accept-Encoding")).thenReturn("gzip;q=0");
+    when(classLoader.getResourceAsStream("static/style.css")).thenReturn(new ByteArrayInputStream(CSS.getBytes()));
+
+    servlet.doGet(request, response);
+
+    verify(response).setHeader("Vary", "Accept-Encoding");
+    verify(response).setHeader("ETag", "\"abc/static/style.css\"");
+    verify(response, never()).setHeader("Content-Encoding", "gzip");
+    assertThat(body.toString()).isEqualTo(CSS);
+  }
+
+  @Test
+  public void should_send_not_found_if_missing_resource() throws Exception {
+    initServlet("myplugin,true,myplugin.jar|abc\n");
+    requestResource("/static/myplugin/unknown.css");
+
+    servlet.doGet(request, response);
+
+    verify(response).sendError(HttpServletResponse.SC_NOT_FOUND);
+  }
+
+  private void requestResource(String uri) {
+    when(request.getContextPath()).thenReturn("/");
+    when(request.getServletPath()).thenReturn("static");
+    when(request.getRequestURI()).thenReturn(uri);
+  }
+
+  private void initServlet(String index) throws Exception {
+    File indexFile = temp.newFile();
+    FileUtils.write(indexFile, index);
+    servlet = spy(new StaticResourcesServlet());
+    doReturn(new IndexedHashes(indexFile)).when(servlet).pluginHashes();
+    doReturn(classLoader).when(servlet).pluginClassLoader("myplugin");
+  }
 }
@@ -23,6 +23,10 @@ import com.github.kevinsawicki.http.HttpRequest;
 import org.sonar.wsclient.base.HttpException;
 
 import javax.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.Map;
 
 /**
@@ -126,6 +130,24 @@ public class HttpRequestFactory {
     return execute(request);
   }
 
+  /**
+   * Parses the response while it is being read, so that the body is never fully loaded in memory.
+   * The response is read until the end, which allows the connection to be kept alive for next requests.
+   *
+   * @since 4.2
+   */
+  public <T> T get(String wsUrl, Map<String, Object> queryParams, BodyParser<T> parser) {
+    HttpRequest request = prepare(HttpRequest.get(baseUrl + wsUrl, queryParams, true));
+    return execute(request, parser);
+  }
+
+  /**
+   * @since 4.2
+   */
+  public interface BodyParser<T> {
+    T parse(Reader body) throws IOException;
+  }
+
   private String execute(HttpRequest request) {
     try {
       if (request.ok()) {
@@ -139,6 +161,29 @@ public class HttpRequestFactory {
     }
   }
 
+  private <T> T execute(HttpRequest request, BodyParser<T> parser) {
+    try {
+      if (request.ok()) {
+        BufferedReader reader = request.bufferedReader(HttpRequest.CHARSET_UTF8);
+        try {
+          T result = parser.parse(reader);
+          while (reader.skip(Long.MAX_VALUE) > 0) {
+            // remaining content must be consumed to release the connection
+          }
+          return result;
+        } finally {
+          reader.close();
+        }
+      }
+      throw new HttpException(request.url().toString(), request.code());
+
+    } catch (HttpRequest.HttpRequestException e) {
+      throw new IllegalStateException("Fail to request " + request.url(), e.getCause());
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to request " + request.url(), e);
+    }
+  }
+
   private HttpRequest prepare(HttpRequest request) {
     if (proxyHost != null) {
       request.useProxy(proxyHost, proxyPort);
@@ -35,6 +35,17 @@ public interface IssueClient {
    */
   Issues find(IssueQuery query);
 
+  /**
+   * Iterate over the issues returned by the web service /api/issues/search, starting from the page
+   * requested by the query. Pages are requested and parsed on demand, so that only one page of issues is
+   * loaded in memory. Rules, users, components, projects and action plans are not loaded.
+   * <p/>
+   * Note that the number of issues is limited by the server, see {@link Issues#maxResultsReached()}.
+   *
+   * @since 4.2
+   */
+  Iterable<Issue> findAll(IssueQuery query);
+
   /**
    * Assign an existing issue to a user. A null assignee removes the assignee.
    *
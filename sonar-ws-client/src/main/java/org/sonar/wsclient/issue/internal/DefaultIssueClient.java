@@ -34,7 +34,7 @@ import java.util.Map;
  */
 public class DefaultIssueClient implements IssueClient {
 
-  private static final String SEARCH_URL = "/api/issues/search";
+  static final String SEARCH_URL = "/api/issues/search";
 
   private final HttpRequestFactory requestFactory;
   private final IssueJsonParser parser;
@@ -49,6 +49,11 @@ public class DefaultIssueClient implements IssueClient {
     return parser.parseIssues(json);
   }
 
+  @Override
+  public Iterable<Issue> findAll(IssueQuery query) {
+    return new PagedIssues(requestFactory, parser, query);
+  }
+
   @Override
   public Issue create(NewIssue newIssue) {
     String json = requestFactory.post("/api/issues/create", newIssue.urlParams());
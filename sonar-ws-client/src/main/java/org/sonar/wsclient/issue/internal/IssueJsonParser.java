@@ -20,17 +20,25 @@
 package org.sonar.wsclient.issue.internal;
 
 import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 import org.sonar.wsclient.base.Paging;
 import org.sonar.wsclient.component.Component;
 import org.sonar.wsclient.issue.BulkChange;
+import org.sonar.wsclient.issue.Issue;
 import org.sonar.wsclient.issue.IssueChange;
 import org.sonar.wsclient.issue.Issues;
 import org.sonar.wsclient.rule.Rule;
 import org.sonar.wsclient.unmarshallers.JsonUtils;
 import org.sonar.wsclient.user.User;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -41,6 +49,8 @@ public class IssueJsonParser {
 
   private static final String ISSUES = "issues";
   private static final String TOTAL = "total";
+  private static final String PAGING = "paging";
+  private static final String MAX_RESULTS_REACHED = "maxResultsReached";
 
   public Issues parseIssues(String json) {
     DefaultIssues result = new DefaultIssues();
@@ -60,10 +70,34 @@ public class IssueJsonParser {
     return result;
   }
 
+  /**
+   * Parses the response of /api/issues/search while it is being read. Only issues and paging are loaded, rules,
+   * users, components, projects and action plans are ignored.
+   *
+   * @since 4.2
+   */
+  public Issues parseIssuesAndPaging(Reader json) throws IOException {
+    IssuesHandler handler = new IssuesHandler();
+    try {
+      new JSONParser().parse(json, handler);
+    } catch (ParseException e) {
+      throw new IllegalStateException("Fail to parse issues: " + e, e);
+    }
+    DefaultIssues result = new DefaultIssues();
+    for (Issue issue : handler.issues) {
+      result.add(issue);
+    }
+    if (handler.paging != null) {
+      result.setPaging(new Paging(handler.paging));
+    }
+    result.setMaxResultsReached(handler.maxResultsReached);
+    return result;
+  }
+
   private void parsePaging(DefaultIssues result, Map jsonRoot) {
-    Map paging = (Map) jsonRoot.get("paging");
+    Map paging = (Map) jsonRoot.get(PAGING);
     result.setPaging(new Paging(paging));
-    result.setMaxResultsReached(JsonUtils.getBoolean(jsonRoot, "maxResultsReached"));
+    result.setMaxResultsReached(JsonUtils.getBoolean(jsonRoot, MAX_RESULTS_REACHED));
   }
 
   private void parseProjects(DefaultIssues result, Map jsonRoot) {
@@ -159,4 +193,116 @@ public class IssueJsonParser {
 
     return result;
   }
+
+  /**
+   * Builds the JSON objects of the elements of the root fields "issues" and "paging". Other fields are skipped
+   * without being loaded.
+   */
+  private static class IssuesHandler implements ContentHandler {
+    private final List<Issue> issues = new ArrayList<Issue>();
+    private Map paging;
+    private Boolean maxResultsReached;
+
+    // depth of the current object or array, the root object being at depth 1
+    private int depth = 0;
+    private String rootKey;
+    private final LinkedList<Object> values = new LinkedList<Object>();
+    private final LinkedList<String> keys = new LinkedList<String>();
+
+    private boolean isLoaded() {
+      return (ISSUES.equals(rootKey) && depth >= 3) || (PAGING.equals(rootKey) && depth >= 2);
+    }
+
+    public void startJSON() {
+      // nothing to do
+    }
+
+    public void endJSON() {
+      // nothing to do
+    }
+
+    public boolean startObject() {
+      depth++;
+      if (isLoaded()) {
+        startValue(new JSONObject());
+      }
+      return true;
+    }
+
+    public boolean endObject() {
+      if (isLoaded()) {
+        endValue();
+      }
+      depth--;
+      return true;
+    }
+
+    public boolean startObjectEntry(String key) {
+      if (depth == 1) {
+        rootKey = key;
+      } else if (isLoaded()) {
+        keys.push(key);
+      }
+      return true;
+    }
+
+    public boolean endObjectEntry() {
+      if (depth == 1) {
+        rootKey = null;
+      }
+      return true;
+    }
+
+    public boolean startArray() {
+      depth++;
+      if (isLoaded()) {
+        startValue(new JSONArray());
+      }
+      return true;
+    }
+
+    public boolean endArray() {
+      if (isLoaded()) {
+        endValue();
+      }
+      depth--;
+      return true;
+    }
+
+    public boolean primitive(Object value) {
+      if (depth == 1 && MAX_RESULTS_REACHED.equals(rootKey)) {
+        maxResultsReached = (Boolean) value;
+      } else if (isLoaded()) {
+        addValue(value);
+      }
+      return true;
+    }
+
+    private void startValue(Object value) {
+      if (!values.isEmpty()) {
+        addValue(value);
+      }
+      values.push(value);
+    }
+
+    private void endValue() {
+      Object value = values.pop();
+      if (values.isEmpty()) {
+        if (ISSUES.equals(rootKey)) {
+          issues.add(new DefaultIssue((Map) value));
+        } else {
+          paging = (Map) value;
+        }
+      }
+    }
+
+    private void addValue(Object value) {
+      Object parent = values.peek();
+      if (parent instanceof Map) {
+        ((Map) parent).put(keys.pop(), value);
+      } else {
+        ((List) parent).add(value);
+      }
+    }
+  }
 }
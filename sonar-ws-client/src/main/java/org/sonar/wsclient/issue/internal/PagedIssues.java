@@ -0,0 +1,102 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2013 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.wsclient.issue.internal;
+
+import org.sonar.wsclient.base.Paging;
+import org.sonar.wsclient.internal.HttpRequestFactory;
+import org.sonar.wsclient.issue.Issue;
+import org.sonar.wsclient.issue.IssueQuery;
+import org.sonar.wsclient.issue.Issues;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Issues of /api/issues/search, requested page after page while iterating.
+ *
+ * @since 4.2
+ */
+class PagedIssues implements Iterable<Issue> {
+
+  private static final String PAGE_INDEX = "pageIndex";
+
+  private final HttpRequestFactory requestFactory;
+  private final IssueJsonParser parser;
+  private final Map<String, Object> params;
+
+  PagedIssues(HttpRequestFactory requestFactory, IssueJsonParser parser, IssueQuery query) {
+    this.requestFactory = requestFactory;
+    this.parser = parser;
+    // copied, so that further changes of the query do not impact iteration
+    this.params = new HashMap<String, Object>(query.urlParams());
+  }
+
+  public Iterator<Issue> iterator() {
+    return new PageIterator();
+  }
+
+  private class PageIterator implements Iterator<Issue>, HttpRequestFactory.BodyParser<Issues> {
+    private Iterator<Issue> page = Collections.<Issue>emptyList().iterator();
+    private int nextPageIndex;
+    private boolean lastPage = false;
+
+    PageIterator() {
+      Object pageIndex = params.get(PAGE_INDEX);
+      nextPageIndex = pageIndex == null ? 1 : Integer.parseInt(pageIndex.toString());
+    }
+
+    public boolean hasNext() {
+      while (!page.hasNext() && !lastPage) {
+        loadNextPage();
+      }
+      return page.hasNext();
+    }
+
+    public Issue next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return page.next();
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    public Issues parse(Reader body) throws IOException {
+      return parser.parseIssuesAndPaging(body);
+    }
+
+    private void loadNextPage() {
+      Map<String, Object> pageParams = new HashMap<String, Object>(params);
+      pageParams.put(PAGE_INDEX, nextPageIndex);
+      Issues issues = requestFactory.get(DefaultIssueClient.SEARCH_URL, pageParams, this);
+      Paging paging = issues.paging();
+      lastPage = issues.list().isEmpty() || paging == null || paging.pages() == null || nextPageIndex >= paging.pages();
+      page = issues.list().iterator();
+      nextPageIndex++;
+    }
+  }
+}
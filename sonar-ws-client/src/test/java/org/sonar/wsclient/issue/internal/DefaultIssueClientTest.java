@@ -27,6 +27,7 @@ import org.sonar.wsclient.base.HttpException;
 import org.sonar.wsclient.internal.HttpRequestFactory;
 import org.sonar.wsclient.issue.*;
 
+import java.util.Iterator;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -52,6 +53,25 @@ public class DefaultIssueClientTest {
     assertThat(issues.list().get(0).key()).isEqualTo("ABCDE");
   }
 
+  @Test
+  public void should_find_all_issues_page_by_page() {
+    HttpRequestFactory requestFactory = new HttpRequestFactory(httpServer.url());
+    httpServer.stubResponseBody("{\"issues\": [{\"key\": \"ABCDE\"}], \"paging\": {\"pageIndex\": 1, \"pageSize\": 1, \"total\": 2, \"pages\": 2}}");
+
+    IssueClient client = new DefaultIssueClient(requestFactory);
+    Iterator<Issue> issues = client.findAll(IssueQuery.create().pageSize(1)).iterator();
+
+    assertThat(issues.hasNext()).isTrue();
+    assertThat(issues.next().key()).isEqualTo("ABCDE");
+    assertThat(httpServer.requestParams()).includes(entry("pageIndex", "1"), entry("pageSize", "1"));
+
+    assertThat(issues.hasNext()).isTrue();
+    assertThat(issues.next().key()).isEqualTo("ABCDE");
+    assertThat(httpServer.requestParams()).includes(entry("pageIndex", "2"));
+
+    assertThat(issues.hasNext()).isFalse();
+  }
+
   @Test
   public void should_fail_to_find_issues() {
     HttpRequestFactory requestFactory = new HttpRequestFactory(httpServer.url());
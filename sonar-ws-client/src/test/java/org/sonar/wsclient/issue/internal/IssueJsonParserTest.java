@@ -19,6 +19,7 @@
  */
 package org.sonar.wsclient.issue.internal;
 
+import com.github.kevinsawicki.http.HttpRequest;
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 import org.sonar.wsclient.base.Paging;
@@ -26,6 +27,8 @@ import org.sonar.wsclient.component.Component;
 import org.sonar.wsclient.issue.*;
 import org.sonar.wsclient.user.User;
 
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -89,6 +92,32 @@ public class IssueJsonParserTest {
     assertThat(issues.maxResultsReached()).isTrue();
   }
 
+  @Test
+  public void should_stream_issues_and_paging() throws Exception {
+    Reader json = new InputStreamReader(getClass().getResourceAsStream("/org/sonar/wsclient/issue/internal/IssueJsonParserTest/search.json"), HttpRequest.CHARSET_UTF8);
+    Issues issues = new IssueJsonParser().parseIssuesAndPaging(json);
+
+    List<Issue> list = issues.list();
+    assertThat(list).hasSize(2);
+    Issue first = list.get(0);
+    assertThat(first.key()).isEqualTo("ABCDE");
+    assertThat(first.line()).isEqualTo(10);
+    assertThat(first.effortToFix()).isEqualTo(4.2);
+    assertThat(first.creationDate()).isNotNull();
+    assertThat(first.attribute("JIRA")).isEqualTo("FOO-1234");
+    assertThat(list.get(1).key()).isEqualTo("FGHIJ");
+
+    // not loaded
+    assertThat(issues.rules()).isEmpty();
+
+    Paging paging = issues.paging();
+    assertThat(paging.pageIndex()).isEqualTo(1);
+    assertThat(paging.pageSize()).isEqualTo(100);
+    assertThat(paging.pages()).isEqualTo(1);
+    assertThat(paging.total()).isEqualTo(2);
+    assertThat(issues.maxResultsReached()).isTrue();
+  }
+
   @Test
   public void test_GET_empty_search() throws Exception {
     String json = IOUtils.toString(getClass().getResourceAsStream("/org/sonar/wsclient/issue/internal/IssueJsonParserTest/empty.json"));